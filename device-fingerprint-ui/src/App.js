@@ -1,6 +1,6 @@
 import React, { useEffect, useState } from 'react';
 import DeviceFingerprint from './components/DeviceFingerPrint';
-import { getDeviceData, createDevice, getBackendStatus } from './services/DeviceFingerprintService';
+import { createDevice, getBackendStatus } from './services/DeviceFingerprintService';
 import { motion } from 'framer-motion';
 import {
   Typography, Container, Box, Card, CardContent, Grid, Paper, Chip
@@ -65,26 +65,17 @@ function App() {
         deviceMemory: fp.deviceMemory
       };
 
-      let subscription;
-
-      subscription = getDeviceData(hash).subscribe({
+      // The backend derives the device id from the fingerprint, so the device is registered
+      // or its visit counted in one call, and the response carries the id to look it up by
+      createDevice(payload).subscribe({
         next: (data) => {
           setDeviceData(data);
           setLoading(false);
         },
         error: (error) => {
-          // If device not found, create new device
-          subscription = createDevice(payload).subscribe({
-            next: (data) => {
-              setDeviceData(data);
-              setLoading(false);
-            },
-            error: (error) => {
-              console.error('Error:', error);
-              setBackendStatusError(error.message); // Using backendStatusError for general errors
-              setLoading(false);
-            }
-          });
+          console.error('Error:', error);
+          setBackendStatusError(error.message); // Using backendStatusError for general errors
+          setLoading(false);
         }
       });
     } finally {
@@ -0,0 +1,41 @@
+package com.outseer.webfingerprint.benchmarks;
+
+import com.outseer.webfingerprint.WebFingerPrintApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+
+/**
+ * Application context for benchmarks: the services, repositories and aspects of the application
+ * against in-memory H2, without the web layer and without the application's startup runners.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@AutoConfigurationPackage(basePackages = "com.outseer.webfingerprint")
+@ComponentScan(basePackages = "com.outseer.webfingerprint",
+        excludeFilters = {
+                @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = WebFingerPrintApplication.class),
+                @ComponentScan.Filter(type = FilterType.REGEX,
+                        pattern = "com\\.outseer\\.webfingerprint\\.(config|controller|benchmarks)\\..*")
+        })
+public class BenchmarkApplication {
+
+    // Passed as arguments so they take precedence over application.properties
+    static ConfigurableApplicationContext start(String... properties) {
+        String[] args = new String[properties.length + 2];
+        args[0] = "--spring.datasource.url=jdbc:h2:mem:benchmarks;DB_CLOSE_DELAY=-1";
+        // SQL is still logged through org.hibernate.SQL, just not printed to stdout
+        args[1] = "--spring.jpa.show-sql=false";
+        for (int i = 0; i < properties.length; i++) {
+            args[i + 2] = "--" + properties[i];
+        }
+        return new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args);
+    }
+}
@@ -0,0 +1,114 @@
+package com.outseer.webfingerprint.benchmarks;
+
+import com.outseer.webfingerprint.dto.DeviceFingerprintRequest;
+import com.outseer.webfingerprint.dto.DeviceTrackingResponse;
+import com.outseer.webfingerprint.model.Device;
+import com.outseer.webfingerprint.service.DeviceTrackingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of the device tracking service against in-memory H2, including the cache,
+ * the Bloom filter and logging as configured for the application.
+ * Visits to known devices are recorded with an UPDATE per visit, in the write-behind buffer or in the visit journal.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeviceTrackingBenchmark {
+
+    private static final int KNOWN_DEVICES = 1024;
+
+    @Param({"update", "write-behind", "journal"})
+    public String visitRecording;
+
+    private ConfigurableApplicationContext context;
+    private DeviceTrackingService deviceTrackingService;
+    private DeviceFingerprintRequest[] knownDevices;
+    private final AtomicLong newDeviceSequence = new AtomicLong();
+    private Device device;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = switch (visitRecording) {
+            case "write-behind" -> BenchmarkApplication.start("device.tracking.write-behind.enabled=true");
+            case "journal" -> BenchmarkApplication.start("device.tracking.journal.enabled=true",
+                    "device.tracking.journal.directory=" + Files.createTempDirectory("visit-journal"));
+            default -> BenchmarkApplication.start();
+        };
+        deviceTrackingService = context.getBean(DeviceTrackingService.class);
+
+        knownDevices = new DeviceFingerprintRequest[KNOWN_DEVICES];
+        for (int i = 0; i < KNOWN_DEVICES; i++) {
+            knownDevices[i] = fingerprint("known-" + i);
+            deviceTrackingService.createOrUpdateDeviceInfo(knownDevices[i], knownDevices[i].getHash());
+        }
+        device = new Device("response-device", "Mozilla/5.0", "1920x1080", "UTC", "en-US", "Win32");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            next = (next + 1) & (KNOWN_DEVICES - 1);
+            return next;
+        }
+    }
+
+    @Benchmark
+    public DeviceTrackingResponse createOrUpdateExistingDevice(Cursor cursor) {
+        DeviceFingerprintRequest fingerprint = knownDevices[cursor.next()];
+        return deviceTrackingService.createOrUpdateDeviceInfo(fingerprint, fingerprint.getHash());
+    }
+
+    /**
+     * Every invocation registers a device that has never been seen, so the table grows during the run.
+     */
+    @Benchmark
+    public DeviceTrackingResponse createOrUpdateNewDevice() {
+        String hash = "new-" + newDeviceSequence.incrementAndGet();
+        return deviceTrackingService.createOrUpdateDeviceInfo(fingerprint(hash), hash);
+    }
+
+    @Benchmark
+    public DeviceTrackingResponse createDeviceTrackingResponse() {
+        return deviceTrackingService.createDeviceTrackingResponse(device, "success");
+    }
+
+    private static DeviceFingerprintRequest fingerprint(String hash) {
+        DeviceFingerprintRequest request = new DeviceFingerprintRequest();
+        request.setHash(hash);
+        request.setUserAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/126.0.0.0 Safari/537.36");
+        request.setPlatform("Win32");
+        request.setScreenResolution("2560x1440");
+        request.setTimezone("Europe/Berlin");
+        request.setLanguage("en-US");
+        return request;
+    }
+}
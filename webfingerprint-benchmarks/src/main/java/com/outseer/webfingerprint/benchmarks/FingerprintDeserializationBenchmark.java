@@ -0,0 +1,58 @@
+package com.outseer.webfingerprint.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.outseer.webfingerprint.dto.DeviceFingerprintRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson deserialization of fingerprint request bodies, with the ObjectMapper defaults Spring MVC uses.
+ * The full payload carries a canvas data URL, browser plugins and WebGL parameters as sent by the UI.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FingerprintDeserializationBenchmark {
+
+    private ObjectReader reader;
+    private byte[] fullPayload;
+    private byte[] minimalPayload;
+
+    @Setup
+    public void setUp() throws IOException {
+        reader = Jackson2ObjectMapperBuilder.json().build().readerFor(DeviceFingerprintRequest.class);
+        try (InputStream input = getClass().getResourceAsStream("/fingerprint.json")) {
+            fullPayload = input.readAllBytes();
+        }
+        minimalPayload = ("{\"hash\":\"3f9a1c2e7b8d4f60\",\"userAgent\":\"Mozilla/5.0\",\"language\":\"en-US\","
+                + "\"platform\":\"Win32\",\"screenResolution\":\"2560x1440\",\"timezone\":\"Europe/Berlin\"}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public DeviceFingerprintRequest deserializeFullFingerprint() throws IOException {
+        return reader.readValue(fullPayload);
+    }
+
+    @Benchmark
+    public DeviceFingerprintRequest deserializeMinimalFingerprint() throws IOException {
+        return reader.readValue(minimalPayload);
+    }
+}
@@ -0,0 +1,71 @@
+package com.outseer.webfingerprint.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.outseer.webfingerprint.service.LoggingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The LoggingService events written for every tracked device, with the event loggers switched off
+ * and at their default level. With the level off, gc.alloc.rate.norm from the GC profiler should
+ * be 0 B/op: fields are only boxed and formatted once an event is known to be logged.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LoggingEventBenchmark {
+
+    private static final String[] LOGGER_NAMES = {
+            LoggingService.class.getName(),
+            "com.outseer.webfingerprint.business",
+            "com.outseer.webfingerprint.performance",
+            "com.outseer.webfingerprint.security"};
+
+    @Param({"OFF", "INFO"})
+    public String level;
+
+    private LoggingService loggingService;
+    private int visitCount;
+    private long durationMs;
+
+    @Setup
+    public void setUp() {
+        for (String name : LOGGER_NAMES) {
+            ((Logger) LoggerFactory.getLogger(name)).setLevel(Level.toLevel(level));
+        }
+        loggingService = new LoggingService();
+    }
+
+    @Benchmark
+    public void trackingEvents() {
+        visitCount++;
+        durationMs = visitCount & 0xF;
+        loggingService.debug("Processing device tracking request for hash: {}", "3f9a1c2e7b8d4f60");
+        loggingService.cacheOperation("GET", "3f9a1c2e7b8d4f60", true);
+        loggingService.databaseOperation("UPSERT", "Device", durationMs);
+        loggingService.deviceTracked("3f9a1c2e7b8d4f60", "Mozilla/5.0", visitCount);
+        loggingService.devicePerformanceMetric("CREATE_OR_UPDATE_DEVICE", durationMs, "3f9a1c2e7b8d4f60", visitCount);
+    }
+
+    @Benchmark
+    public void apiResponse() {
+        durationMs = ++visitCount & 0xF;
+        loggingService.apiResponse("POST", "/api/device", 200, durationMs, "0190f3c2a4b1-5e2d9c7a13f0");
+    }
+}
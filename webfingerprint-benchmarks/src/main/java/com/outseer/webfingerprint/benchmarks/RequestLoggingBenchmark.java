@@ -0,0 +1,105 @@
+package com.outseer.webfingerprint.benchmarks;
+
+import com.outseer.webfingerprint.annotation.LogExecutionTime;
+import com.outseer.webfingerprint.aspect.LogExecutionTimeAspect;
+import com.outseer.webfingerprint.filter.RequestTelemetryFilter;
+import com.outseer.webfingerprint.monitoring.SlowOperationDetector;
+import com.outseer.webfingerprint.service.LoggingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost the request telemetry filter and the execution time aspect add to a trivial call, compared
+ * with calling the same method directly.
+ * Logging goes through LoggingService and the benchmark logback configuration, as in the application.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestLoggingBenchmark {
+
+    private Operations direct;
+    private Operations timed;
+    private RequestTelemetryFilter telemetryFilter;
+    private RequestTelemetryFilter sampledTelemetryFilter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private FilterChain chain;
+    private int visitCount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LoggingService loggingService = new LoggingService();
+        SlowOperationDetector slowOperationDetector =
+                new SlowOperationDetector(3.0, 10, 100, 60, 500, 100, new SimpleMeterRegistry());
+        direct = new Operations();
+        timed = proxy(new LogExecutionTimeAspect(loggingService, new SimpleMeterRegistry(), slowOperationDetector,
+                new double[0], true, new long[] {50, 100, 250, 500, 1000}));
+        telemetryFilter = new RequestTelemetryFilter(loggingService, slowOperationDetector, "X-Correlation-ID", 1.0, 1000);
+        sampledTelemetryFilter = new RequestTelemetryFilter(loggingService, slowOperationDetector, "X-Correlation-ID", 0.01, 1000);
+
+        request = new MockHttpServletRequest("GET", "/api/device/3f9a1c2e7b8d4f60");
+        request.addHeader("User-Agent", "Mozilla/5.0");
+        request.setRemoteAddr("192.168.1.10");
+        response = new MockHttpServletResponse();
+        chain = (req, res) -> visitCount = direct.visit(visitCount);
+    }
+
+    @Benchmark
+    public int baseline() {
+        return direct.visit(41);
+    }
+
+    @Benchmark
+    public int logExecutionTimeAspect() {
+        return timed.visit(41);
+    }
+
+    @Benchmark
+    public int requestTelemetryFilter() throws ServletException, IOException {
+        telemetryFilter.doFilter(request, response, chain);
+        return visitCount;
+    }
+
+    @Benchmark
+    public int requestTelemetryFilterSampled() throws ServletException, IOException {
+        sampledTelemetryFilter.doFilter(request, response, chain);
+        return visitCount;
+    }
+
+    private static Operations proxy(Object aspect) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Operations());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    public static class Operations {
+
+        @LogExecutionTime("BENCHMARK_VISIT")
+        public int visit(int visitCount) {
+            return visitCount + 1;
+        }
+    }
+}
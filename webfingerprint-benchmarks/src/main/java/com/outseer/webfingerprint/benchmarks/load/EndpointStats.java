@@ -0,0 +1,72 @@
+package com.outseer.webfingerprint.benchmarks.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and outcome counts of one endpoint. Safe to record into from any thread.
+ * Latency is measured from the intended start of a request, so time spent queued behind a slow
+ * server is included (no coordinated omission).
+ */
+final class EndpointStats {
+
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final String name;
+    private final Recorder recorder = new Recorder(HIGHEST_LATENCY_MICROS, 3);
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final Map<String, LongAdder> errorsByCause = new ConcurrentHashMap<>();
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    void success(long latencyNanos) {
+        requests.increment();
+        recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_LATENCY_MICROS));
+    }
+
+    void failure(long latencyNanos, String cause) {
+        success(latencyNanos);
+        errors.increment();
+        errorsByCause.computeIfAbsent(cause, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * A request that was never sent because too many were already in flight.
+     */
+    void dropped() {
+        requests.increment();
+        errors.increment();
+        errorsByCause.computeIfAbsent("dropped (client saturated)", key -> new LongAdder()).increment();
+    }
+
+    Histogram histogram() {
+        return recorder.getIntervalHistogram();
+    }
+
+    long requests() {
+        return requests.sum();
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    Map<String, Long> errorsByCause() {
+        Map<String, Long> counts = new TreeMap<>();
+        errorsByCause.forEach((cause, count) -> counts.put(cause, count.sum()));
+        return counts;
+    }
+}
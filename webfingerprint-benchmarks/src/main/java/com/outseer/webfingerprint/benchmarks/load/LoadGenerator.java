@@ -0,0 +1,401 @@
+package com.outseer.webfingerprint.benchmarks.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test of the REST API.
+ * Sends POST /api/device and GET /api/device/{id} at a constant arrival rate (open loop), whether or
+ * not earlier requests have completed, records latency in HDR histograms and writes a report with
+ * throughput, percentiles and error rates.
+ * <p>
+ * Without --target the application is started in this JVM on a random port, which is convenient but
+ * shares the CPU with the generator; point --target at a deployed instance to size replicas.
+ * With --threads=both the embedded application is run twice, on platform and on virtual threads,
+ * with the same traffic, and the report ends with a side-by-side comparison.
+ * See {@link LoadOptions} for all options.
+ */
+public final class LoadGenerator {
+
+    private static final int SEED_CHUNK_SIZE = 500;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final LoadOptions options;
+    private final String baseUrl;
+    private final String threadMode;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client;
+    private final ExecutorService clientExecutor;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final EndpointStats postStats = new EndpointStats("POST /api/device");
+    private final EndpointStats getStats = new EndpointStats("GET /api/device/{id}");
+
+    private ObjectNode template;
+    private String[] returningDevices;
+    private List<byte[]> replayBodies;
+    private List<String> replayHashes;
+    private int replayCursor;
+    private long newDevices;
+    private Summary summary;
+
+    private LoadGenerator(LoadOptions options, String baseUrl, String threadMode) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+        this.threadMode = threadMode;
+        this.clientExecutor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread thread = new Thread(r, "load-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(clientExecutor)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        if (options.target != null) {
+            LoadGenerator generator = new LoadGenerator(options, options.target, null);
+            writeReport(options, generator.run(false));
+            return;
+        }
+        StringBuilder report = new StringBuilder();
+        List<Summary> summaries = new ArrayList<>();
+        for (String threadMode : options.threadModes()) {
+            ConfigurableApplicationContext context = LoadTestApplication.start(threadMode.equals("virtual"),
+                    options.poolSize);
+            try {
+                LoadGenerator generator = new LoadGenerator(options,
+                        "http://localhost:" + LoadTestApplication.port(context), threadMode);
+                report.append(generator.run(true));
+                summaries.add(generator.summary);
+            } finally {
+                context.close();
+            }
+        }
+        if (summaries.size() > 1) {
+            String comparison = comparison(options, summaries);
+            System.out.print(comparison);
+            report.append(comparison);
+        }
+        writeReport(options, report.toString());
+    }
+
+    /**
+     * Runs the schedule and prints the report.
+     * @return The report
+     */
+    private String run(boolean embedded) throws Exception {
+        prepareTraffic();
+        System.out.printf("Load test against %s: %.0f req/s for %ds after %ds warmup%n",
+                baseUrl, options.rate, options.durationSeconds, options.warmupSeconds);
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.rate);
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        long sent = 0;
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean measured = intended >= measureFrom;
+            dispatch(intended, measured);
+            if (measured) {
+                sent++;
+            }
+        }
+        long scheduleEnd = System.nanoTime();
+        awaitInFlight();
+        long drained = System.nanoTime();
+
+        String report = report(embedded, sent, drained - measureFrom, scheduleEnd - measureFrom);
+        System.out.print(report);
+        clientExecutor.shutdownNow();
+        return report;
+    }
+
+    /**
+     * Registers the returning devices, or loads the replay file, before the clock starts.
+     */
+    private void prepareTraffic() throws IOException, InterruptedException {
+        try (InputStream input = getClass().getResourceAsStream("/fingerprint.json")) {
+            template = (ObjectNode) objectMapper.readTree(input);
+        }
+        if (options.replay != null) {
+            replayBodies = new ArrayList<>();
+            replayHashes = new ArrayList<>();
+            for (String line : Files.readAllLines(options.replay)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode hash = objectMapper.readTree(line).get("hash");
+                if (hash != null && hash.isTextual()) {
+                    replayBodies.add(line.getBytes(StandardCharsets.UTF_8));
+                    replayHashes.add(hash.asText());
+                }
+            }
+            if (replayBodies.isEmpty()) {
+                throw new IllegalArgumentException("No fingerprints with a hash in " + options.replay);
+            }
+            System.out.printf("Replaying %d fingerprints from %s%n", replayBodies.size(), options.replay);
+            return;
+        }
+
+        returningDevices = new String[options.devices];
+        for (int i = 0; i < returningDevices.length; i++) {
+            returningDevices[i] = "load-returning-" + i;
+        }
+        for (int from = 0; from < returningDevices.length; from += SEED_CHUNK_SIZE) {
+            ArrayNode chunk = objectMapper.createArrayNode();
+            for (int i = from; i < Math.min(from + SEED_CHUNK_SIZE, returningDevices.length); i++) {
+                chunk.add(template.deepCopy().put("hash", returningDevices[i]));
+            }
+            int status = post("/api/device/batch", objectMapper.writeValueAsBytes(chunk));
+            if ((status == 404 || status == 405) && from == 0) {
+                // No batch endpoint, e.g. the reactive variant
+                seedOneByOne();
+                break;
+            }
+            if (status != 200) {
+                throw new IllegalStateException("Seeding returning devices failed with HTTP " + status);
+            }
+        }
+        System.out.printf("Registered %d returning devices%n", returningDevices.length);
+    }
+
+    private void seedOneByOne() throws IOException, InterruptedException {
+        for (String hash : returningDevices) {
+            int status = post("/api/device", objectMapper.writeValueAsBytes(template.deepCopy().put("hash", hash)));
+            if (status != 200) {
+                throw new IllegalStateException("Seeding returning devices failed with HTTP " + status);
+            }
+        }
+    }
+
+    private int post(String path, byte[] body) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private void dispatch(long intended, boolean measured) throws IOException {
+        EndpointStats stats;
+        HttpRequest request;
+        String knownHash = pickKnownHash();
+        if (knownHash != null && random.nextDouble() < options.readRatio) {
+            stats = getStats;
+            request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/device/" + knownHash))
+                    .timeout(REQUEST_TIMEOUT)
+                    .GET()
+                    .build();
+        } else {
+            stats = postStats;
+            request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/device"))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(nextFingerprint()))
+                    .build();
+        }
+
+        if (inFlight.get() >= options.maxInFlight) {
+            if (measured) {
+                stats.dropped();
+            }
+            return;
+        }
+        inFlight.incrementAndGet();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            inFlight.decrementAndGet();
+            if (!measured) {
+                return;
+            }
+            long latency = System.nanoTime() - intended;
+            if (error != null) {
+                stats.failure(latency, cause(error));
+            } else if (response.statusCode() >= 400) {
+                stats.failure(latency, "HTTP " + response.statusCode());
+            } else {
+                stats.success(latency);
+            }
+        });
+    }
+
+    private String pickKnownHash() {
+        if (replayHashes != null) {
+            return replayCursor == 0 ? null : replayHashes.get(random.nextInt(Math.min(replayCursor, replayHashes.size())));
+        }
+        return returningDevices[random.nextInt(returningDevices.length)];
+    }
+
+    private byte[] nextFingerprint() throws IOException {
+        if (replayBodies != null) {
+            byte[] body = replayBodies.get(replayCursor % replayBodies.size());
+            replayCursor++;
+            return body;
+        }
+        String hash = random.nextDouble() < options.newDeviceRatio
+                ? "load-new-" + (++newDevices)
+                : returningDevices[random.nextInt(returningDevices.length)];
+        return objectMapper.writeValueAsBytes(template.put("hash", hash));
+    }
+
+    private void awaitInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + REQUEST_TIMEOUT.toNanos() * 2;
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static String cause(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof HttpTimeoutException) {
+            return "timeout";
+        }
+        if (cause instanceof ConnectException) {
+            return "connection refused";
+        }
+        return cause.getClass().getSimpleName();
+    }
+
+    private String report(boolean embedded, long sent, long measuredNanos, long scheduleNanos) {
+        double seconds = measuredNanos / 1e9;
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%nLoad test report%n"));
+        out.append(String.format("Target:      %s%s%n", baseUrl, embedded ? " (embedded, shares CPU with the generator)" : ""));
+        if (threadMode != null) {
+            out.append(String.format("Threads:     %s, %s%n", threadMode,
+                    options.poolSize > 0 ? "pool of " + options.poolSize + " connections" : "default connection pool"));
+        }
+        out.append(String.format("Schedule:    open loop, %.0f req/s for %ds after %ds warmup%n",
+                options.rate, options.durationSeconds, options.warmupSeconds));
+        if (replayBodies != null) {
+            out.append(String.format("Traffic:     replay of %s (%d fingerprints), %.0f%% GET%n",
+                    options.replay, replayBodies.size(), options.readRatio * 100));
+        } else {
+            out.append(String.format("Traffic:     %.0f%% GET, %.0f%% of POSTs new devices, %d returning devices%n",
+                    options.readRatio * 100, options.newDeviceRatio * 100, options.devices));
+        }
+        out.append(String.format("Offered:     %d requests (%.1f req/s)%n", sent, sent / (scheduleNanos / 1e9)));
+        out.append(String.format("%n%-22s %9s %11s %8s %8s %9s %9s %9s %9s %9s%n",
+                "Endpoint", "Requests", "Throughput", "Errors", "Error%", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+
+        Histogram total = null;
+        long totalRequests = 0;
+        long totalErrors = 0;
+        for (EndpointStats stats : List.of(postStats, getStats)) {
+            Histogram histogram = stats.histogram();
+            writeHistogram(stats.name(), histogram);
+            appendRow(out, stats.name(), stats.requests(), stats.errors(), histogram, seconds);
+            if (total == null) {
+                total = histogram.copy();
+            } else {
+                total.add(histogram);
+            }
+            totalRequests += stats.requests();
+            totalErrors += stats.errors();
+        }
+        appendRow(out, "All", totalRequests, totalErrors, total, seconds);
+        summary = new Summary(threadMode, totalRequests, totalErrors, seconds, total);
+
+        for (EndpointStats stats : List.of(postStats, getStats)) {
+            stats.errorsByCause().forEach((cause, count) ->
+                    out.append(String.format("%n  %s: %s x %d", stats.name(), cause, count)));
+        }
+        out.append(String.format("%n"));
+        return out.toString();
+    }
+
+    private static void appendRow(StringBuilder out, String name, long requests, long errors, Histogram histogram,
+                                  double seconds) {
+        out.append(String.format("%-22s %9d %9.1f/s %8d %7.2f%%", name, requests, requests / seconds, errors,
+                requests == 0 ? 0.0 : errors * 100.0 / requests));
+        for (double percentile : PERCENTILES) {
+            out.append(String.format(" %9.2f", histogram.getValueAtPercentile(percentile) / 1000.0));
+        }
+        out.append(String.format(" %9.2f%n", histogram.getMaxValue() / 1000.0));
+    }
+
+    /**
+     * Throughput, error rate and tail latency of every run, one row per thread mode.
+     */
+    private static String comparison(LoadOptions options, List<Summary> summaries) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%nThread mode comparison (%.0f req/s offered, %s)%n", options.rate,
+                options.poolSize > 0 ? "pool of " + options.poolSize + " connections" : "default connection pool"));
+        out.append(String.format("%-22s %9s %11s %8s %8s %9s %9s %9s %9s %9s%n",
+                "Threads", "Requests", "Throughput", "Errors", "Error%", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Summary summary : summaries) {
+            appendRow(out, summary.threadMode(), summary.requests(), summary.errors(), summary.latency(), summary.seconds());
+        }
+        return out.toString();
+    }
+
+    private static void writeReport(LoadOptions options, String report) throws IOException {
+        Path parent = options.report.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Files.writeString(options.report, report);
+        System.out.printf("Report written to %s, latency distributions to %s%n", options.report, parent);
+    }
+
+    /**
+     * Full percentile distribution in milliseconds, in the .hgrm format understood by HdrHistogram plotters.
+     */
+    private void writeHistogram(String endpoint, Histogram histogram) {
+        String fileName = "load-" + endpoint.split(" ")[0].toLowerCase()
+                + (threadMode == null ? "" : "-" + threadMode) + ".hgrm";
+        Path file = options.report.toAbsolutePath().getParent().resolve(fileName);
+        try {
+            Files.createDirectories(file.getParent());
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        } catch (IOException e) {
+            System.err.printf("Could not write %s: %s%n", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Throughput and latency of all requests of one run.
+     */
+    private record Summary(String threadMode, long requests, long errors, double seconds, Histogram latency) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.outseer.webfingerprint.benchmarks.load;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Command line options of {@link LoadGenerator}, given as --name=value.
+ */
+final class LoadOptions {
+
+    /** Base URL of a running instance; when absent the application is started on a random port */
+    String target;
+    /** Constant arrival rate in requests per second */
+    double rate = 200;
+    /** Measured duration in seconds */
+    int durationSeconds = 30;
+    /** Unmeasured warmup in seconds, at the same rate */
+    int warmupSeconds = 5;
+    /** Fraction of requests that are GET /api/device/{id} for a known device */
+    double readRatio = 0.3;
+    /** Fraction of POSTs that register a device never seen before */
+    double newDeviceRatio = 0.2;
+    /** Returning devices registered before the run */
+    int devices = 10_000;
+    /** NDJSON file of fingerprints to POST in order instead of synthetic ones */
+    Path replay;
+    /** Requests allowed in flight before new arrivals are counted as dropped */
+    int maxInFlight = 2_000;
+    /** Report file; histograms are written next to it */
+    Path report = Path.of("target", "load-report.txt");
+    /** Request threads of the embedded application: platform, virtual or both, one run after the other */
+    String threads;
+    /** Maximum connections of the embedded application's pool; 0 keeps the application default */
+    int poolSize;
+
+    /**
+     * Thread modes to run the embedded application in, in order.
+     */
+    List<String> threadModes() {
+        return threads == null ? List.of("platform")
+                : threads.equals("both") ? List.of("platform", "virtual") : List.of(threads);
+    }
+
+    static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            switch (name) {
+                case "target" -> options.target = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                case "rate" -> options.rate = Double.parseDouble(value);
+                case "duration" -> options.durationSeconds = Integer.parseInt(value);
+                case "warmup" -> options.warmupSeconds = Integer.parseInt(value);
+                case "read-ratio" -> options.readRatio = Double.parseDouble(value);
+                case "new-ratio" -> options.newDeviceRatio = Double.parseDouble(value);
+                case "devices" -> options.devices = Integer.parseInt(value);
+                case "replay" -> options.replay = Path.of(value);
+                case "max-in-flight" -> options.maxInFlight = Integer.parseInt(value);
+                case "report" -> options.report = Path.of(value);
+                case "threads" -> options.threads = value;
+                case "pool-size" -> options.poolSize = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+        }
+        if (options.rate <= 0 || options.durationSeconds <= 0 || options.devices <= 0) {
+            throw new IllegalArgumentException("rate, duration and devices must be positive");
+        }
+        if (options.threads != null && !List.of("platform", "virtual", "both").contains(options.threads)) {
+            throw new IllegalArgumentException("threads must be platform, virtual or both");
+        }
+        if (options.target != null && (options.threads != null || options.poolSize > 0)) {
+            throw new IllegalArgumentException("threads and pool-size apply to the embedded application only");
+        }
+        return options;
+    }
+}
@@ -0,0 +1,59 @@
+package com.outseer.webfingerprint.benchmarks.load;
+
+import com.outseer.webfingerprint.WebFingerPrintApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The complete application including the web layer on a random port, without the application's
+ * startup runners, as the embedded target of {@link LoadGenerator}.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@AutoConfigurationPackage(basePackages = "com.outseer.webfingerprint")
+@ComponentScan(basePackages = "com.outseer.webfingerprint",
+        excludeFilters = {
+                @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = WebFingerPrintApplication.class),
+                @ComponentScan.Filter(type = FilterType.REGEX, pattern = "com\\.outseer\\.webfingerprint\\.benchmarks\\..*")
+        })
+public class LoadTestApplication {
+
+    /**
+     * Starts the application with its own in-memory database.
+     * @param virtualThreads Whether Tomcat and the background executors run on virtual threads
+     * @param poolSize Maximum connections of the pool, 0 for the default
+     */
+    static ConfigurableApplicationContext start(boolean virtualThreads, int poolSize) {
+        // Passed as arguments so they take precedence over application.properties
+        List<String> args = new ArrayList<>(List.of("--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest-" + (virtualThreads ? "virtual" : "platform")
+                        + ";DB_CLOSE_DELAY=-1",
+                // SQL is still logged through org.hibernate.SQL, just not printed to stdout
+                "--spring.jpa.show-sql=false",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                // Every request comes from the generator's address and it revisits the same devices
+                "--device.rate-limit.enabled=false",
+                // Generated fingerprints differ only in their hash, which server-side keys would ignore
+                "--device.key.source=client"));
+        if (poolSize > 0) {
+            args.add("--spring.datasource.hikari.maximum-pool-size=" + poolSize);
+        }
+        return new SpringApplicationBuilder(LoadTestApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .run(args.toArray(String[]::new));
+    }
+
+    static int port(ConfigurableApplicationContext context) {
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+}
@@ -0,0 +1,20 @@
+package com.outseer.webfingerprint.reactive;
+
+import com.outseer.webfingerprint.fingerprint.DeviceKeys;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Non-blocking variant of the device tracking API on WebFlux (Netty) and R2DBC, serving
+ * POST /api/device and GET /api/device/{id} with the same requests and responses as the
+ * servlet application. Device ids come from the servlet application's {@link DeviceKeys}.
+ */
+@SpringBootApplication
+@Import(DeviceKeys.class)
+public class ReactiveWebFingerPrintApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveWebFingerPrintApplication.class, args);
+    }
+}
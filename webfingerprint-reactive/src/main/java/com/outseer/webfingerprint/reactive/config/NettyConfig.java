@@ -0,0 +1,27 @@
+package com.outseer.webfingerprint.reactive.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ReactorResourceFactory;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Runs the Netty server on a fixed number of event loop threads, however many connections are open.
+ */
+@Configuration
+public class NettyConfig {
+
+    /**
+     * Event loops used by the embedded Netty server instead of Reactor's global resources.
+     * @param workerThreads Event loop threads; every request is handled on one of them
+     * @return ReactorResourceFactory picked up by the Netty web server factory
+     */
+    @Bean
+    public ReactorResourceFactory reactorResourceFactory(@Value("${reactive.server.worker-threads:4}") int workerThreads) {
+        ReactorResourceFactory factory = new ReactorResourceFactory();
+        factory.setUseGlobalResources(false);
+        factory.setLoopResources(LoopResources.create("device-http", workerThreads, true));
+        return factory;
+    }
+}
@@ -0,0 +1,53 @@
+package com.outseer.webfingerprint.reactive.controller;
+
+import com.outseer.webfingerprint.dto.DeviceFingerprintRequest;
+import com.outseer.webfingerprint.dto.DeviceTrackingResponse;
+import com.outseer.webfingerprint.fingerprint.DeviceKeys;
+import com.outseer.webfingerprint.reactive.service.ReactiveDeviceTrackingService;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("api/device")
+public class ReactiveDeviceTrackingController {
+
+    private final ReactiveDeviceTrackingService deviceTrackingService;
+    private final DeviceKeys deviceKeys;
+
+    public ReactiveDeviceTrackingController(ReactiveDeviceTrackingService service, DeviceKeys deviceKeys) {
+        this.deviceTrackingService = service;
+        this.deviceKeys = deviceKeys;
+    }
+
+    /**
+     * Retrieves device statistics by device ID.
+     *
+     * @param id Device fingerprint hash
+     * @return Mono of ResponseEntity with DeviceTrackingResponse and HTTP status
+     */
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<DeviceTrackingResponse>> getStats(@PathVariable String id) {
+        return deviceTrackingService.getDeviceStats(id).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Tracks a device by fingerprint and returns tracking info.
+     * The device id is the client hash, or computed from the fingerprint when device.key.source is server.
+     *
+     * @param fingerprint DeviceFingerprintRequest from client
+     * @return Mono of ResponseEntity with DeviceTrackingResponse and HTTP status
+     */
+    @PostMapping
+    public Mono<ResponseEntity<DeviceTrackingResponse>> trackDevice(
+            @Valid @RequestBody DeviceFingerprintRequest fingerprint) {
+        String deviceId = deviceKeys.deviceIdOf(fingerprint);
+        return deviceTrackingService.createOrUpdateDeviceInfo(fingerprint, deviceId).map(ResponseEntity::ok);
+    }
+}
@@ -0,0 +1,76 @@
+package com.outseer.webfingerprint.reactive.controller;
+
+import com.outseer.webfingerprint.dto.DeviceTrackingResponse;
+import com.outseer.webfingerprint.exception.DeviceNotFoundException;
+import com.outseer.webfingerprint.exception.InvalidFingerprintException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+
+/**
+ * Maps errors to the response bodies of the servlet application's GlobalExceptionHandler.
+ * Fingerprints failing validation, or without the hash their device id is taken from, are answered with 400;
+ * routing errors such as unsupported methods keep their status.
+ */
+@RestControllerAdvice
+public class ReactiveExceptionHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveExceptionHandler.class);
+
+    @ExceptionHandler(DeviceNotFoundException.class)
+    public ResponseEntity<DeviceTrackingResponse> handleDeviceNotFoundException(DeviceNotFoundException ex) {
+        DeviceTrackingResponse response = new DeviceTrackingResponse();
+        response.setStatus("not_found");
+        response.setMessage(ex.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<DeviceTrackingResponse> handleValidationException(WebExchangeBindException ex) {
+        DeviceTrackingResponse response = new DeviceTrackingResponse();
+        response.setStatus("invalid");
+        response.setMessage(ex.getBindingResult().getFieldErrors().stream()
+                .map(error -> error.getField() + ": " + error.getDefaultMessage())
+                .findFirst()
+                .orElse("Invalid request"));
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidFingerprintException.class)
+    public ResponseEntity<DeviceTrackingResponse> handleInvalidFingerprintException(InvalidFingerprintException ex) {
+        DeviceTrackingResponse response = new DeviceTrackingResponse();
+        response.setStatus("invalid");
+        response.setMessage(ex.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<DeviceTrackingResponse> handleResponseStatusException(ResponseStatusException ex) {
+        DeviceTrackingResponse response = new DeviceTrackingResponse();
+        response.setStatus("error");
+        response.setMessage(ex.getReason());
+        return new ResponseEntity<>(response, ex.getStatusCode());
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<DeviceTrackingResponse> handleGeneralException(Exception ex) {
+        logger.error("An unexpected error occurred: {}", ex.getMessage(), ex);
+        DeviceTrackingResponse errorResponse = new DeviceTrackingResponse(
+                "error_" + System.currentTimeMillis(),
+                0L,
+                "An unexpected error occurred: " + ex.getMessage(),
+                0,
+                "Fail",
+                LocalDateTime.now(),
+                LocalDateTime.now()
+        );
+        return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+}
@@ -0,0 +1,17 @@
+package com.outseer.webfingerprint.reactive.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Row of the devices table, immutable so it can be passed between reactive stages without copying.
+ */
+public record DeviceRecord(String deviceId,
+                           LocalDateTime firstSeen,
+                           LocalDateTime lastSeen,
+                           String userAgent,
+                           String screenResolution,
+                           String timezone,
+                           String language,
+                           String platform,
+                           int visitCount) {
+}
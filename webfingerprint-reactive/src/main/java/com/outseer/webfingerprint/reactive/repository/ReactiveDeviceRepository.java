@@ -0,0 +1,88 @@
+package com.outseer.webfingerprint.reactive.repository;
+
+import com.outseer.webfingerprint.reactive.model.DeviceRecord;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking access to the devices table through R2DBC.
+ * Like the JDBC repository of the servlet application, a visit is one MERGE or UPDATE statement
+ * returning the new row (H2's FINAL TABLE), so concurrent visits to a device need no locking.
+ */
+@Repository
+public class ReactiveDeviceRepository {
+
+    static final String DEVICE_COLUMNS = "device_id, first_seen, last_seen, user_agent, screen_resolution, "
+            + "timezone, language, platform, visit_count";
+
+    static final String UPSERT_SQL = "SELECT " + DEVICE_COLUMNS + " FROM FINAL TABLE ("
+            + "MERGE INTO devices d USING (SELECT CAST($1 AS VARCHAR(32)) AS device_id) s "
+            + "ON d.device_id = s.device_id "
+            + "WHEN MATCHED THEN UPDATE SET visit_count = d.visit_count + 1, last_seen = $2 "
+            + "WHEN NOT MATCHED THEN INSERT (" + DEVICE_COLUMNS + ") "
+            + "VALUES (s.device_id, $2, $2, $3, $4, $5, $6, $7, 1))";
+
+    static final String INCREMENT_SQL = "SELECT " + DEVICE_COLUMNS + " FROM FINAL TABLE ("
+            + "UPDATE devices SET visit_count = visit_count + 1, last_seen = $1 WHERE device_id = $2)";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveDeviceRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Inserts the device with one visit or increments the visit count of the stored one.
+     * @param device Device attributes, stored only if the device is new
+     * @param seenAt Time of the visit
+     * @return Stored row after the visit
+     */
+    public Mono<DeviceRecord> upsertVisit(DeviceRecord device, LocalDateTime seenAt) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(UPSERT_SQL)
+                .bind(0, device.deviceId())
+                .bind(1, seenAt);
+        spec = bindNullable(spec, 2, device.userAgent());
+        spec = bindNullable(spec, 3, device.screenResolution());
+        spec = bindNullable(spec, 4, device.timezone());
+        spec = bindNullable(spec, 5, device.language());
+        spec = bindNullable(spec, 6, device.platform());
+        return spec.map(ReactiveDeviceRepository::toDevice).one();
+    }
+
+    /**
+     * Increments the visit count of a stored device.
+     * @param deviceId Device fingerprint hash
+     * @param seenAt Time of the visit
+     * @return Stored row after the visit, empty if the device does not exist
+     */
+    public Mono<DeviceRecord> incrementVisit(String deviceId, LocalDateTime seenAt) {
+        return databaseClient.sql(INCREMENT_SQL)
+                .bind(0, seenAt)
+                .bind(1, deviceId)
+                .map(ReactiveDeviceRepository::toDevice)
+                .one();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec, int index,
+                                                                  String value) {
+        return value == null ? spec.bindNull(index, String.class) : spec.bind(index, value);
+    }
+
+    private static DeviceRecord toDevice(Readable row) {
+        Integer visitCount = row.get("visit_count", Integer.class);
+        return new DeviceRecord(
+                row.get("device_id", String.class),
+                row.get("first_seen", LocalDateTime.class),
+                row.get("last_seen", LocalDateTime.class),
+                row.get("user_agent", String.class),
+                row.get("screen_resolution", String.class),
+                row.get("timezone", String.class),
+                row.get("language", String.class),
+                row.get("platform", String.class),
+                visitCount == null ? 0 : visitCount);
+    }
+}
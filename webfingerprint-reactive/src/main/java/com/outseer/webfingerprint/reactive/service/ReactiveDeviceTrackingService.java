@@ -0,0 +1,80 @@
+package com.outseer.webfingerprint.reactive.service;
+
+import com.outseer.webfingerprint.dto.DeviceFingerprintRequest;
+import com.outseer.webfingerprint.dto.DeviceTrackingResponse;
+import com.outseer.webfingerprint.exception.DeviceNotFoundException;
+import com.outseer.webfingerprint.reactive.model.DeviceRecord;
+import com.outseer.webfingerprint.reactive.repository.ReactiveDeviceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Reactive counterpart of the servlet application's DeviceTrackingService.
+ * Every visit is a single atomic statement, so no locks are taken and no thread waits for the database.
+ */
+@Service
+public class ReactiveDeviceTrackingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveDeviceTrackingService.class);
+
+    private final ReactiveDeviceRepository deviceRepository;
+
+    public ReactiveDeviceTrackingService(ReactiveDeviceRepository deviceRepository) {
+        this.deviceRepository = deviceRepository;
+    }
+
+    /**
+     * Creates a new device entry or adds a visit to an existing one.
+     * @param request Device fingerprint data from client
+     * @param deviceId Id the device is tracked under, see DeviceKeys
+     * @return DeviceTrackingResponse with visit count and a relevant message
+     */
+    public Mono<DeviceTrackingResponse> createOrUpdateDeviceInfo(DeviceFingerprintRequest request, String deviceId) {
+        DeviceRecord candidate = new DeviceRecord(deviceId, null, null, request.getUserAgent(),
+                request.getScreenResolution(), request.getTimezone(), request.getLanguage(), request.getPlatform(), 0);
+        return deviceRepository.upsertVisit(candidate, LocalDateTime.now())
+                .doOnNext(device -> logger.debug("Device {} tracked, visit {}", device.deviceId(), device.visitCount()))
+                .map(device -> createDeviceTrackingResponse(device, "success"));
+    }
+
+    /**
+     * Retrieves device statistics by device ID and updates visit count.
+     * @param id Device fingerprint hash
+     * @return DeviceTrackingResponse with updated stats, or a DeviceNotFoundException error
+     */
+    public Mono<DeviceTrackingResponse> getDeviceStats(String id) {
+        return deviceRepository.incrementVisit(id, LocalDateTime.now())
+                .switchIfEmpty(Mono.error(() -> new DeviceNotFoundException("Device Not Found")))
+                .map(device -> createDeviceTrackingResponse(device, "success"));
+    }
+
+    /**
+     * Builds a DeviceTrackingResponse from a stored device.
+     * @param device Device row
+     * @param status Status string for response
+     * @return DeviceTrackingResponse with device info and stats
+     */
+    DeviceTrackingResponse createDeviceTrackingResponse(DeviceRecord device, String status) {
+        int visitCount = device.visitCount();
+        String message;
+        if (visitCount == 1) {
+            message = "Welcome! This is your first visit.";
+        } else {
+            message = "Welcome back! This is your " + visitCount + " visit.";
+        }
+        return new DeviceTrackingResponse(
+                device.deviceId(),
+                Duration.between(device.firstSeen(), LocalDateTime.now()).toMinutes(),
+                message,
+                visitCount,
+                status,
+                device.firstSeen(),
+                device.lastSeen()
+        );
+    }
+}
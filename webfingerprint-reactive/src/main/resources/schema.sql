@@ -0,0 +1,12 @@
+-- Same table as the servlet application, where Hibernate creates it
+CREATE TABLE IF NOT EXISTS devices (
+    device_id VARCHAR(32) NOT NULL PRIMARY KEY,
+    first_seen TIMESTAMP(6) NOT NULL,
+    last_seen TIMESTAMP(6) NOT NULL,
+    user_agent VARCHAR(1000),
+    screen_resolution VARCHAR(255),
+    timezone VARCHAR(255),
+    language VARCHAR(255),
+    platform VARCHAR(255),
+    visit_count INTEGER
+);
@@ -0,0 +1,69 @@
+package com.outseer.webfingerprint.reactive.controller;
+
+import com.outseer.webfingerprint.dto.DeviceFingerprintRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureWebTestClient
+class ReactiveDeviceTrackingControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    private DeviceFingerprintRequest request;
+
+    @BeforeEach
+    void setUp() {
+        request = new DeviceFingerprintRequest();
+        request.setUserAgent("testAgent");
+        request.setPlatform("testPlatform");
+        request.setScreenResolution("1920x1080");
+        request.setTimezone("UTC");
+        request.setLanguage("en");
+    }
+
+    @Test
+    void trackDevice_ShouldRegisterAndCountVisits() {
+        request.setHash("reactiveHash");
+
+        track().expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.visitCount").isEqualTo(1)
+                .jsonPath("$.message").isEqualTo("Welcome! This is your first visit.");
+        track().expectStatus().isOk()
+                .expectBody().jsonPath("$.visitCount").isEqualTo(2);
+
+        webTestClient.get().uri("/api/device/{id}", "reactiveHash").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.deviceId").isEqualTo("reactiveHash")
+                .jsonPath("$.visitCount").isEqualTo(3)
+                .jsonPath("$.status").isEqualTo("success");
+    }
+
+    @Test
+    void getStats_ShouldReturnNotFound_WhenDeviceDoesNotExist() {
+        webTestClient.get().uri("/api/device/{id}", "nonExistentHash").exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.status").isEqualTo("not_found");
+    }
+
+    @Test
+    void trackDevice_ShouldRejectFingerprintWithoutHash() {
+        track().expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.status").isEqualTo("invalid");
+    }
+
+    private WebTestClient.ResponseSpec track() {
+        return webTestClient.post().uri("/api/device")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .exchange();
+    }
+}
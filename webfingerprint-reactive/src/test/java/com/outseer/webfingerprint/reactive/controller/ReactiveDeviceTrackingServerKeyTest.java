@@ -0,0 +1,43 @@
+package com.outseer.webfingerprint.reactive.controller;
+
+import com.outseer.webfingerprint.dto.DeviceFingerprintRequest;
+import com.outseer.webfingerprint.fingerprint.DeviceKeys;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "device.key.source=server")
+@AutoConfigureWebTestClient
+class ReactiveDeviceTrackingServerKeyTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void trackDevice_ShouldTrackUnderTheSameServerKeyAsTheServletApplication() {
+        DeviceFingerprintRequest request = new DeviceFingerprintRequest();
+        request.setUserAgent("reactiveServerKeyAgent");
+        request.setPlatform("testPlatform");
+        request.setScreenResolution("1920x1080");
+        request.setHardwareConcurrency(4);
+        String deviceId = DeviceKeys.keyOf(request).toString();
+
+        track(request).expectStatus().isOk()
+                .expectBody().jsonPath("$.deviceId").isEqualTo(deviceId);
+        request.setHash("ignoredClientHash");
+        track(request).expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.deviceId").isEqualTo(deviceId)
+                .jsonPath("$.visitCount").isEqualTo(2);
+    }
+
+    private WebTestClient.ResponseSpec track(DeviceFingerprintRequest request) {
+        return webTestClient.post().uri("/api/device")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .exchange();
+    }
+}
@@ -1,49 +1,30 @@
 package com.outseer.webfingerprint;
 
 import org.springframework.boot.ApplicationRunner;
-import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.env.Environment;
 
+import com.outseer.webfingerprint.retention.RetentionCleanupRunner;
 import com.outseer.webfingerprint.service.LoggingService;
 
 @SpringBootApplication
-@EnableCaching
-public class WebFingerPrintApplication implements CommandLineRunner {
+public class WebFingerPrintApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(WebFingerPrintApplication.class, args);
-    }
-
-    @Bean
-    public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager("devices");
-    }
-
-    @Override
-    public void run(String... args) {
-        new Thread(this::cleanupJob).start();
-    }
-
-    private void cleanupJob() {
-        System.out.println("cleanupJob Started....");
-        long endTime = System.currentTimeMillis() + (60 * 1000);
-        while (System.currentTimeMillis() < endTime) {
-            System.out.println("Running cleanup logic...");
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            }
+        SpringApplication application = new SpringApplication(WebFingerPrintApplication.class);
+        boolean cleanupRun = RetentionCleanupRunner.isCleanupRun(args);
+        if (cleanupRun) {
+            // The cleanup job only needs the database; it exits once the purge has run
+            application.setWebApplicationType(WebApplicationType.NONE);
+        }
+        ConfigurableApplicationContext context = application.run(args);
+        if (cleanupRun) {
+            System.exit(SpringApplication.exit(context));
         }
-        System.out.println("cleanupJob Ended....");
-        System.exit(0);
     }
 
     @Bean
@@ -0,0 +1,334 @@
+package com.outseer.webfingerprint.analytics;
+
+import com.outseer.webfingerprint.service.LoggingService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming analytics fed by the tracking path, so product questions never scan the devices table.
+ * <p>
+ * Unique devices are counted with one {@link HyperLogLog} per hour and per day, keeping the last hourly-buckets
+ * hours and daily-buckets days, and the most active devices with a {@link SpaceSavingTopK} of top-k-capacity
+ * counters split into top-k-stripes locks. Memory is fixed by these settings: 16 KB per bucket at the default precision, about 1.3 MB in all.
+ * Recording a visit takes two register compare-and-sets and one heap update; queries read only the sketches.
+ * Sketches that changed are written to the database every snapshot-interval-ms and on shutdown, and are
+ * restored on startup, so a restart loses at most one interval of visits.
+ */
+@Component
+public class DeviceAnalytics {
+
+    public enum Granularity {
+        HOUR(ChronoUnit.HOURS), DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Granularity(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        LocalDateTime bucketStart(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+    }
+
+    /**
+     * Estimated unique devices of one bucket.
+     * @param bucketStart Start of the hour or day
+     * @param uniqueDevices Estimated number of distinct devices that visited within it
+     */
+    public record BucketCount(LocalDateTime bucketStart, long uniqueDevices) {
+    }
+
+    /**
+     * Estimated unique devices over consecutive buckets.
+     * @param buckets Per-bucket estimates, oldest first
+     * @param uniqueDevices Estimated number of distinct devices over all the buckets
+     * @param relativeError Standard error of the estimates relative to the true counts
+     */
+    public record UniqueDevices(List<BucketCount> buckets, long uniqueDevices, double relativeError) {
+    }
+
+    static final String CREATE_SKETCHES_SQL = "CREATE TABLE IF NOT EXISTS analytics_unique_devices ("
+            + "granularity VARCHAR(8) NOT NULL, bucket_start TIMESTAMP NOT NULL, registers VARBINARY NOT NULL, "
+            + "PRIMARY KEY (granularity, bucket_start))";
+
+    static final String CREATE_TOP_DEVICES_SQL = "CREATE TABLE IF NOT EXISTS analytics_top_devices ("
+            + "device_id VARCHAR(32) PRIMARY KEY, visits BIGINT NOT NULL, error BIGINT NOT NULL)";
+
+    static final String SELECT_SKETCHES_SQL = "SELECT bucket_start, registers FROM analytics_unique_devices "
+            + "WHERE granularity = ? AND bucket_start >= ?";
+
+    static final String UPDATE_SKETCH_SQL = "UPDATE analytics_unique_devices SET registers = ? "
+            + "WHERE granularity = ? AND bucket_start = ?";
+
+    static final String INSERT_SKETCH_SQL = "INSERT INTO analytics_unique_devices (granularity, bucket_start, registers) "
+            + "VALUES (?, ?, ?)";
+
+    static final String DELETE_EXPIRED_SKETCHES_SQL = "DELETE FROM analytics_unique_devices "
+            + "WHERE granularity = ? AND bucket_start < ?";
+
+    static final String SELECT_TOP_DEVICES_SQL = "SELECT device_id, visits, error FROM analytics_top_devices "
+            + "ORDER BY visits DESC";
+
+    static final String DELETE_TOP_DEVICES_SQL = "DELETE FROM analytics_top_devices";
+
+    static final String INSERT_TOP_DEVICE_SQL = "INSERT INTO analytics_top_devices (device_id, visits, error) "
+            + "VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LoggingService loggingService;
+    private final boolean enabled;
+    private final int precision;
+    private final Map<Granularity, Integer> retainedBuckets;
+    private final long snapshotIntervalMs;
+    private final boolean virtualThreads;
+
+    private final Map<Granularity, NavigableMap<LocalDateTime, HyperLogLog>> sketches = Map.of(
+            Granularity.HOUR, new ConcurrentSkipListMap<>(), Granularity.DAY, new ConcurrentSkipListMap<>());
+    private final SpaceSavingTopK topDevices;
+    private ScheduledExecutorService scheduler;
+
+    public DeviceAnalytics(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           LoggingService loggingService,
+                           @Value("${device.analytics.enabled:true}") boolean enabled,
+                           @Value("${device.analytics.hll-precision:14}") int precision,
+                           @Value("${device.analytics.hourly-buckets:48}") int hourlyBuckets,
+                           @Value("${device.analytics.daily-buckets:31}") int dailyBuckets,
+                           @Value("${device.analytics.top-k-capacity:1000}") int topKCapacity,
+                           @Value("${device.analytics.top-k-stripes:16}") int topKStripes,
+                           @Value("${device.analytics.snapshot-interval-ms:60000}") long snapshotIntervalMs,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.loggingService = loggingService;
+        this.enabled = enabled;
+        this.precision = precision;
+        this.retainedBuckets = Map.of(Granularity.HOUR, hourlyBuckets, Granularity.DAY, dailyBuckets);
+        this.topDevices = new SpaceSavingTopK(topKCapacity, topKStripes);
+        this.snapshotIntervalMs = snapshotIntervalMs;
+        this.virtualThreads = virtualThreads;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.execute(CREATE_SKETCHES_SQL);
+        jdbcTemplate.execute(CREATE_TOP_DEVICES_SQL);
+        restore();
+        scheduler = Executors.newSingleThreadScheduledExecutor(virtualThreads
+                ? Thread.ofVirtual().name("analytics-snapshot").factory()
+                : Thread.ofPlatform().name("analytics-snapshot").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::snapshotDue, snapshotIntervalMs, snapshotIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes the sketches on shutdown.
+     */
+    @PreDestroy
+    void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(snapshotIntervalMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshot();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Counts visits of a device.
+     * @param deviceId Device fingerprint hash
+     * @param visitedAt Time of the visits
+     * @param visits Number of visits at that time
+     */
+    public void recordVisits(String deviceId, LocalDateTime visitedAt, int visits) {
+        if (!enabled) {
+            return;
+        }
+        long hash = HyperLogLog.hash(deviceId);
+        for (Granularity granularity : Granularity.values()) {
+            HyperLogLog sketch = sketch(granularity, visitedAt);
+            if (sketch != null) {
+                sketch.offer(hash);
+            }
+        }
+        topDevices.offer(deviceId, visits);
+    }
+
+    /**
+     * Counts a visit of a device.
+     * @param deviceId Device fingerprint hash
+     * @param visitedAt Time of the visit
+     */
+    public void recordVisit(String deviceId, LocalDateTime visitedAt) {
+        recordVisits(deviceId, visitedAt, 1);
+    }
+
+    /**
+     * Estimates unique devices over the latest buckets, the current one included.
+     * Reads only the sketches, so the cost does not depend on the number of devices.
+     * @param granularity Hourly or daily buckets
+     * @param buckets Number of buckets, capped at the number retained
+     * @return Per-bucket and overall estimates
+     */
+    public UniqueDevices uniqueDevices(Granularity granularity, int buckets) {
+        LocalDateTime current = granularity.bucketStart(LocalDateTime.now());
+        int count = Math.max(1, Math.min(buckets, retainedBuckets.get(granularity)));
+        NavigableMap<LocalDateTime, HyperLogLog> retained = sketches.get(granularity);
+        HyperLogLog union = new HyperLogLog(precision);
+        List<BucketCount> counts = new ArrayList<>(count);
+        for (int i = count - 1; i >= 0; i--) {
+            LocalDateTime bucketStart = current.minus(i, granularity.unit);
+            HyperLogLog sketch = retained.get(bucketStart);
+            if (sketch == null) {
+                counts.add(new BucketCount(bucketStart, 0));
+            } else {
+                counts.add(new BucketCount(bucketStart, sketch.estimate()));
+                union.merge(sketch);
+            }
+        }
+        return new UniqueDevices(counts, union.estimate(), union.relativeError());
+    }
+
+    /**
+     * Most visited devices since the counters were first started, most visits first.
+     * @param limit Maximum number of devices, capped at top-k-capacity
+     */
+    public List<SpaceSavingTopK.Entry> topDevices(int limit) {
+        return topDevices.top(limit);
+    }
+
+    public int topDevicesCapacity() {
+        return topDevices.capacity();
+    }
+
+    /**
+     * Sketch of the bucket a visit falls in, created on first use; null if the bucket is no longer retained.
+     * Creating a bucket drops the ones that fell out of the retention window.
+     */
+    private HyperLogLog sketch(Granularity granularity, LocalDateTime visitedAt) {
+        NavigableMap<LocalDateTime, HyperLogLog> retained = sketches.get(granularity);
+        LocalDateTime bucketStart = granularity.bucketStart(visitedAt);
+        HyperLogLog sketch = retained.get(bucketStart);
+        if (sketch != null) {
+            return sketch;
+        }
+        LocalDateTime oldest = oldestRetained(granularity);
+        if (bucketStart.isBefore(oldest)) {
+            return null;
+        }
+        sketch = retained.computeIfAbsent(bucketStart, start -> new HyperLogLog(precision));
+        retained.headMap(oldest).clear();
+        return sketch;
+    }
+
+    private LocalDateTime oldestRetained(Granularity granularity) {
+        return granularity.bucketStart(LocalDateTime.now()).minus(retainedBuckets.get(granularity) - 1,
+                granularity.unit);
+    }
+
+    void snapshotDue() {
+        try {
+            snapshot();
+        } catch (Exception e) {
+            loggingService.error("Failed to snapshot device analytics", e);
+        }
+    }
+
+    /**
+     * Writes the sketches changed since the last snapshot and the top-K counters in one transaction.
+     * @return Number of sketches written
+     */
+    int snapshot() {
+        Map<Granularity, Map<LocalDateTime, HyperLogLog>> changed = new EnumMap<>(Granularity.class);
+        sketches.forEach((granularity, retained) -> {
+            Map<LocalDateTime, HyperLogLog> buckets = new HashMap<>();
+            retained.forEach((bucketStart, sketch) -> {
+                if (sketch.takeDirty()) {
+                    buckets.put(bucketStart, sketch);
+                }
+            });
+            changed.put(granularity, buckets);
+        });
+        List<SpaceSavingTopK.Entry> top = topDevices.top(topDevices.capacity());
+
+        long dbStartTime = System.currentTimeMillis();
+        int[] written = {0};
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                changed.forEach((granularity, buckets) -> {
+                    buckets.forEach((bucketStart, sketch) -> {
+                        Timestamp start = Timestamp.valueOf(bucketStart);
+                        byte[] registers = sketch.registers();
+                        if (jdbcTemplate.update(UPDATE_SKETCH_SQL, registers, granularity.name(), start) == 0) {
+                            jdbcTemplate.update(INSERT_SKETCH_SQL, granularity.name(), start, registers);
+                        }
+                        written[0]++;
+                    });
+                    jdbcTemplate.update(DELETE_EXPIRED_SKETCHES_SQL, granularity.name(),
+                            Timestamp.valueOf(oldestRetained(granularity)));
+                });
+                jdbcTemplate.update(DELETE_TOP_DEVICES_SQL);
+                List<Object[]> args = new ArrayList<>(top.size());
+                for (SpaceSavingTopK.Entry entry : top) {
+                    args.add(new Object[] {entry.deviceId(), entry.visits(), entry.error()});
+                }
+                jdbcTemplate.batchUpdate(INSERT_TOP_DEVICE_SQL, args);
+            });
+        } catch (RuntimeException e) {
+            changed.values().forEach(buckets -> buckets.values().forEach(HyperLogLog::markDirty));
+            throw e;
+        }
+        loggingService.databaseOperation("SNAPSHOT", "DeviceAnalytics", System.currentTimeMillis() - dbStartTime);
+        return written[0];
+    }
+
+    /**
+     * Loads the retained sketches and the top-K counters of the last snapshot.
+     */
+    private void restore() {
+        for (Granularity granularity : Granularity.values()) {
+            NavigableMap<LocalDateTime, HyperLogLog> retained = sketches.get(granularity);
+            jdbcTemplate.query(SELECT_SKETCHES_SQL, rs -> {
+                byte[] registers = rs.getBytes("registers");
+                if (registers.length == 1 << precision) {
+                    retained.put(rs.getTimestamp("bucket_start").toLocalDateTime(), HyperLogLog.of(registers));
+                }
+            }, granularity.name(), Timestamp.valueOf(oldestRetained(granularity)));
+        }
+        jdbcTemplate.query(SELECT_TOP_DEVICES_SQL, rs -> {
+            topDevices.restore(rs.getString("device_id"), rs.getLong("visits"), rs.getLong("error"));
+        });
+    }
+}
@@ -0,0 +1,148 @@
+package com.outseer.webfingerprint.analytics;
+
+import com.outseer.webfingerprint.fingerprint.DeviceKey;
+import com.outseer.webfingerprint.fingerprint.Murmur3Hasher;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct devices.
+ * <p>
+ * Holds 2^precision one-byte registers, 16 KB at the default precision of 14, for a standard error of
+ * 1.04 / sqrt(2^precision) (0.81%) however many devices are offered. Registers only ever grow and are
+ * updated with a compare-and-set, so concurrent visits need no lock and sketches merge by taking the
+ * maximum of each register.
+ */
+public final class HyperLogLog {
+
+    private static final VarHandle REGISTERS = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private final int precision;
+    private final byte[] registers;
+    private volatile boolean dirty;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between 4 and 18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Restores a sketch from its registers.
+     * @param registers Registers as returned by {@link #registers()}
+     */
+    public static HyperLogLog of(byte[] registers) {
+        int precision = Integer.numberOfTrailingZeros(registers.length);
+        if (registers.length != 1 << precision) {
+            throw new IllegalArgumentException("Invalid HyperLogLog register count: " + registers.length);
+        }
+        HyperLogLog sketch = new HyperLogLog(precision);
+        System.arraycopy(registers, 0, sketch.registers, 0, registers.length);
+        return sketch;
+    }
+
+    /**
+     * 64-bit hash of a device id: half of its {@link DeviceKey}. A server key already is a MurmurHash3 of the
+     * fingerprint and is used as is; any other id, such as a client hash, is hashed with {@link Murmur3Hasher}.
+     */
+    public static long hash(String deviceId) {
+        return DeviceKey.ofId(deviceId).low();
+    }
+
+    /**
+     * Adds a device to the sketch.
+     * @param hash Hash of the device id, see {@link #hash(String)}
+     */
+    public void offer(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // Position of the first set bit after the index bits; the guard bit bounds it at 65 - precision
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        byte current = (byte) REGISTERS.getVolatile(registers, index);
+        while (rank > current) {
+            if (REGISTERS.compareAndSet(registers, index, current, rank)) {
+                dirty = true;
+                return;
+            }
+            current = (byte) REGISTERS.getVolatile(registers, index);
+        }
+    }
+
+    /**
+     * Adds every device of another sketch of the same precision to this one.
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog sketches of precision "
+                    + other.precision + " and " + precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            byte rank = (byte) REGISTERS.getVolatile(other.registers, i);
+            byte current = (byte) REGISTERS.getVolatile(registers, i);
+            while (rank > current && !REGISTERS.compareAndSet(registers, i, current, rank)) {
+                current = (byte) REGISTERS.getVolatile(registers, i);
+            }
+        }
+        dirty = true;
+    }
+
+    /**
+     * Estimated number of distinct devices offered, with linear counting for small cardinalities.
+     * Runs in time proportional to the number of registers, independent of the number of devices.
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < m; i++) {
+            byte rank = (byte) REGISTERS.getVolatile(registers, i);
+            sum += Double.longBitsToDouble((1023L - rank) << 52);
+            if (rank == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Standard error of {@link #estimate()} relative to the true count.
+     */
+    public double relativeError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    /**
+     * Copy of the registers, for snapshots.
+     */
+    public byte[] registers() {
+        byte[] copy = new byte[registers.length];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = (byte) REGISTERS.getVolatile(registers, i);
+        }
+        return copy;
+    }
+
+    /**
+     * Whether devices were added since the last call, which resets the flag.
+     */
+    boolean takeDirty() {
+        boolean wasDirty = dirty;
+        dirty = false;
+        return wasDirty;
+    }
+
+    void markDirty() {
+        dirty = true;
+    }
+}
@@ -0,0 +1,209 @@
+package com.outseer.webfingerprint.analytics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Space-Saving sketch of the most visited devices (Metwally et al.).
+ * <p>
+ * Monitors at most capacity devices. A visit to an unmonitored device when all counters are taken replaces the
+ * device with the fewest visits and inherits its count, recorded as the new device's maximum overestimate.
+ * Every device with more than 1 / capacity of all visits is guaranteed to be monitored, and each count is within
+ * its error of the true count. Counters sit in a min-heap indexed by device, so an update costs O(log capacity)
+ * and the memory is bounded by the capacity however many devices visit.
+ * <p>
+ * Every tracked visit updates the sketch, so it is split into stripes, each an independent sketch with its share
+ * of the capacity and its own {@link ReentrantLock} (rather than a monitor, so virtual threads waiting for it are
+ * not pinned). A device always maps to the same stripe by its hash code, so its count and error are those of a
+ * single sketch; the guarantee holds per stripe, which with evenly spread devices is the same threshold overall.
+ * {@link #top(int)} merges the stripes.
+ */
+public final class SpaceSavingTopK {
+
+    /**
+     * A monitored device.
+     * @param deviceId Device fingerprint hash
+     * @param visits Counted visits, at least the true number of visits
+     * @param error Maximum overestimate included in visits
+     */
+    public record Entry(String deviceId, long visits, long error) {
+    }
+
+    private static final class Counter {
+        private final String deviceId;
+        private long visits;
+        private final long error;
+        private int heapIndex;
+
+        private Counter(String deviceId, long visits, long error) {
+            this.deviceId = deviceId;
+            this.visits = visits;
+            this.error = error;
+        }
+    }
+
+    private static final class Stripe {
+        private final int capacity;
+        private final Map<String, Counter> counters;
+        private final Counter[] heap;
+        private final ReentrantLock lock = new ReentrantLock();
+        private int size;
+
+        private Stripe(int capacity) {
+            this.capacity = capacity;
+            this.counters = HashMap.newHashMap(capacity);
+            this.heap = new Counter[capacity];
+        }
+
+        private void offer(String deviceId, long visits) {
+            lock.lock();
+            try {
+                Counter counter = counters.get(deviceId);
+                if (counter != null) {
+                    counter.visits += visits;
+                    siftDown(counter.heapIndex);
+                } else if (size < capacity) {
+                    add(new Counter(deviceId, visits, 0));
+                } else {
+                    Counter evicted = heap[0];
+                    counters.remove(evicted.deviceId);
+                    counter = new Counter(deviceId, evicted.visits + visits, evicted.visits);
+                    counters.put(deviceId, counter);
+                    heap[0] = counter;
+                    siftDown(0);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void restore(String deviceId, long visits, long error) {
+            lock.lock();
+            try {
+                if (size < capacity && !counters.containsKey(deviceId)) {
+                    add(new Counter(deviceId, visits, error));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void copyTo(List<Entry> entries) {
+            lock.lock();
+            try {
+                for (int i = 0; i < size; i++) {
+                    entries.add(new Entry(heap[i].deviceId, heap[i].visits, heap[i].error));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void add(Counter counter) {
+            counters.put(counter.deviceId, counter);
+            heap[size] = counter;
+            counter.heapIndex = size++;
+            siftUp(counter.heapIndex);
+        }
+
+        private void siftUp(int index) {
+            Counter counter = heap[index];
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (heap[parent].visits <= counter.visits) {
+                    break;
+                }
+                place(heap[parent], index);
+                index = parent;
+            }
+            place(counter, index);
+        }
+
+        private void siftDown(int index) {
+            Counter counter = heap[index];
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                if (child + 1 < size && heap[child + 1].visits < heap[child].visits) {
+                    child++;
+                }
+                if (counter.visits <= heap[child].visits) {
+                    break;
+                }
+                place(heap[child], index);
+                index = child;
+            }
+            place(counter, index);
+        }
+
+        private void place(Counter counter, int index) {
+            heap[index] = counter;
+            counter.heapIndex = index;
+        }
+    }
+
+    private final int capacity;
+    private final Stripe[] stripes;
+
+    /**
+     * @param capacity Number of devices monitored across all stripes
+     * @param stripes Number of independently locked stripes, at most the capacity
+     */
+    public SpaceSavingTopK(int capacity, int stripes) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Top-K capacity must be positive: " + capacity);
+        }
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Top-K stripes must be positive: " + stripes);
+        }
+        this.capacity = capacity;
+        this.stripes = new Stripe[Math.min(stripes, capacity)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            // Spread the remainder so the stripes add up to exactly the capacity
+            this.stripes[i] = new Stripe(capacity / this.stripes.length
+                    + (i < capacity % this.stripes.length ? 1 : 0));
+        }
+    }
+
+    /**
+     * Counts visits of a device.
+     * @param deviceId Device fingerprint hash
+     * @param visits Number of visits
+     */
+    public void offer(String deviceId, long visits) {
+        stripe(deviceId).offer(deviceId, visits);
+    }
+
+    /**
+     * Restores a monitored device from a snapshot, if there is room for it in its stripe.
+     */
+    void restore(String deviceId, long visits, long error) {
+        stripe(deviceId).restore(deviceId, visits, error);
+    }
+
+    /**
+     * Most visited devices, most visits first.
+     * @param limit Maximum number of devices, at most the capacity; none if negative
+     */
+    public List<Entry> top(int limit) {
+        List<Entry> entries = new ArrayList<>(capacity);
+        for (Stripe stripe : stripes) {
+            stripe.copyTo(entries);
+        }
+        entries.sort(Comparator.comparingLong(Entry::visits).reversed().thenComparing(Entry::deviceId));
+        return entries.subList(0, Math.clamp(limit, 0, entries.size()));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    private Stripe stripe(String deviceId) {
+        int hash = deviceId.hashCode();
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+}
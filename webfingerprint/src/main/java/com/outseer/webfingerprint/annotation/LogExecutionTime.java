@@ -7,7 +7,8 @@ import java.lang.annotation.Target;
 
 /**
  * Custom annotation to log method execution time.
- * Can be used on methods to automatically log performance metrics.
+ * Can be used on methods to automatically log performance metrics. Each call is also recorded in
+ * the Micrometer timer "method.execution", tagged with the operation name and its outcome.
  */
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
@@ -19,7 +20,8 @@ public @interface LogExecutionTime {
     String value() default "";
     
     /**
-     * Threshold in milliseconds to trigger a slow operation warning
+     * Threshold in milliseconds to trigger a slow operation warning until enough calls have been
+     * seen to compare against the operation's recent p99
      */
     long slowThreshold() default 1000L;
     
@@ -32,4 +34,22 @@ public @interface LogExecutionTime {
      * Whether to log the return value
      */
     boolean logReturnValue() default false;
+    
+    /**
+     * Client-side percentiles to publish for this operation, e.g. {0.5, 0.99}.
+     * Empty uses telemetry.execution-time.percentiles
+     */
+    double[] percentiles() default {};
+    
+    /**
+     * Whether to publish a percentile histogram for this operation, in addition to
+     * telemetry.execution-time.percentile-histogram
+     */
+    boolean percentileHistogram() default false;
+    
+    /**
+     * Service level objectives in milliseconds, published as histogram buckets.
+     * Empty uses telemetry.execution-time.slo-ms
+     */
+    long[] slo() default {};
 }
@@ -1,78 +1,164 @@
 package com.outseer.webfingerprint.aspect;
 
 import com.outseer.webfingerprint.annotation.LogExecutionTime;
+import com.outseer.webfingerprint.monitoring.SlowCall;
+import com.outseer.webfingerprint.monitoring.SlowOperationDetector;
 import com.outseer.webfingerprint.service.LoggingService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Aspect for logging method execution time using the @LogExecutionTime annotation.
+ * Every call is also recorded in the Micrometer timer "method.execution", tagged with the
+ * operation name, outcome ("success" or "error") and exception type ("none" for success).
+ * The operation name, parameter names and timers are resolved once per method and cached.
+ * Slow calls are detected by {@link SlowOperationDetector} against the operation's recent latency,
+ * with the annotation's slowThreshold as the fallback.
  */
 @Aspect
 @Component
 public class LogExecutionTimeAspect {
 
+    static final String TIMER_NAME = "method.execution";
+
     private final LoggingService loggingService;
+    private final MeterRegistry meterRegistry;
+    private final SlowOperationDetector slowOperationDetector;
+    private final double[] defaultPercentiles;
+    private final boolean defaultPercentileHistogram;
+    private final long[] defaultSloMs;
+    private final Map<Method, TimedOperation> operations = new ConcurrentHashMap<>();
 
-    public LogExecutionTimeAspect(LoggingService loggingService) {
+    public LogExecutionTimeAspect(LoggingService loggingService,
+                                  MeterRegistry meterRegistry,
+                                  SlowOperationDetector slowOperationDetector,
+                                  @Value("${telemetry.execution-time.percentiles:}") double[] defaultPercentiles,
+                                  @Value("${telemetry.execution-time.percentile-histogram:false}") boolean defaultPercentileHistogram,
+                                  @Value("${telemetry.execution-time.slo-ms:}") long[] defaultSloMs) {
         this.loggingService = loggingService;
+        this.meterRegistry = meterRegistry;
+        this.slowOperationDetector = slowOperationDetector;
+        this.defaultPercentiles = defaultPercentiles;
+        this.defaultPercentileHistogram = defaultPercentileHistogram;
+        this.defaultSloMs = defaultSloMs;
     }
 
     @Around("@annotation(com.outseer.webfingerprint.annotation.LogExecutionTime)")
     public Object logExecutionTime(ProceedingJoinPoint joinPoint) throws Throwable {
-        long startTime = System.currentTimeMillis();
-        
+        long startTime = System.nanoTime();
+
         MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-        Method method = signature.getMethod();
-        LogExecutionTime annotation = method.getAnnotation(LogExecutionTime.class);
-        
-        String methodName = method.getName();
-        String className = method.getDeclaringClass().getSimpleName();
-        String operationName = annotation.value().isEmpty() ? 
-            className + "." + methodName : annotation.value();
-        
+        TimedOperation operation = operations.computeIfAbsent(signature.getMethod(),
+            method -> new TimedOperation(method, signature.getParameterNames()));
+        LogExecutionTime annotation = operation.annotation;
+        String operationName = operation.name;
+
         // Log method entry with parameters if enabled
-        if (annotation.logParameters()) {
-            Object[] args = joinPoint.getArgs();
-            String[] paramNames = signature.getParameterNames();
-            StringBuilder params = new StringBuilder();
-            for (int i = 0; i < args.length; i++) {
-                if (i > 0) params.append(", ");
-                params.append(paramNames[i]).append("=").append(args[i]);
+        if (loggingService.isDebugEnabled()) {
+            if (annotation.logParameters()) {
+                Object[] args = joinPoint.getArgs();
+                StringBuilder params = new StringBuilder();
+                for (int i = 0; i < args.length; i++) {
+                    if (i > 0) params.append(", ");
+                    params.append(operation.parameterNames[i]).append("=").append(args[i]);
+                }
+                loggingService.debug("Starting execution of {} with parameters: {}", operationName, params.toString());
+            } else {
+                loggingService.debug("Starting execution of {}", operationName);
             }
-            loggingService.debug("Starting execution of {} with parameters: {}", operationName, params.toString());
-        } else {
-            loggingService.debug("Starting execution of {}", operationName);
         }
-        
+
         Object result = null;
+        Throwable failure = null;
         try {
             result = joinPoint.proceed();
             return result;
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
         } finally {
-            long duration = System.currentTimeMillis() - startTime;
-            
+            long durationNanos = System.nanoTime() - startTime;
+            long duration = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+            operation.timer(failure).record(durationNanos, TimeUnit.NANOSECONDS);
+
             // Log execution time
-            loggingService.performanceMetric(operationName, duration, 
-                String.format("Method: %s.%s", className, methodName));
-            
+            loggingService.methodPerformanceMetric(operationName, duration, operation.className, operation.methodName);
+
             // Check for slow operation
-            if (duration > annotation.slowThreshold()) {
-                loggingService.slowOperation(operationName, duration, annotation.slowThreshold());
+            SlowCall slowCall = slowOperationDetector.record(operationName, durationNanos, annotation.slowThreshold());
+            if (slowCall != null) {
+                loggingService.slowOperation(operationName, duration, (long) slowCall.thresholdMs());
             }
-            
+
             // Log return value if enabled
-            if (annotation.logReturnValue() && result != null) {
-                loggingService.debug("Completed execution of {} in {}ms, returned: {}", 
-                    operationName, duration, result);
-            } else {
-                loggingService.debug("Completed execution of {} in {}ms", operationName, duration);
+            if (loggingService.isDebugEnabled()) {
+                if (annotation.logReturnValue() && result != null) {
+                    loggingService.debug("Completed execution of {} in {}ms, returned: {}",
+                        operationName, duration, result);
+                } else {
+                    loggingService.debug("Completed execution of {} in {}ms", operationName, duration);
+                }
+            }
+        }
+    }
+
+    /**
+     * Everything about an annotated method that does not change between calls.
+     */
+    private final class TimedOperation {
+        private final LogExecutionTime annotation;
+        private final String name;
+        private final String className;
+        private final String methodName;
+        private final String[] parameterNames;
+        private final Timer successTimer;
+        private final Map<Class<?>, Timer> failureTimers = new ConcurrentHashMap<>();
+
+        private TimedOperation(Method method, String[] parameterNames) {
+            this.annotation = method.getAnnotation(LogExecutionTime.class);
+            this.className = method.getDeclaringClass().getSimpleName();
+            this.methodName = method.getName();
+            this.name = annotation.value().isEmpty() ? className + "." + methodName : annotation.value();
+            this.parameterNames = parameterNames;
+            this.successTimer = register("success", "none");
+        }
+
+        private Timer timer(Throwable failure) {
+            if (failure == null) {
+                return successTimer;
+            }
+            return failureTimers.computeIfAbsent(failure.getClass(),
+                type -> register("error", type.getSimpleName()));
+        }
+
+        private Timer register(String outcome, String exception) {
+            double[] percentiles = annotation.percentiles().length > 0 ? annotation.percentiles() : defaultPercentiles;
+            long[] sloMs = annotation.slo().length > 0 ? annotation.slo() : defaultSloMs;
+            Duration[] slo = new Duration[sloMs.length];
+            for (int i = 0; i < sloMs.length; i++) {
+                slo[i] = Duration.ofMillis(sloMs[i]);
             }
+            return Timer.builder(TIMER_NAME)
+                    .description("Execution time of methods annotated with @LogExecutionTime")
+                    .tag("operation", name)
+                    .tag("outcome", outcome)
+                    .tag("exception", exception)
+                    .publishPercentiles(percentiles)
+                    .publishPercentileHistogram(annotation.percentileHistogram() || defaultPercentileHistogram)
+                    .serviceLevelObjectives(slo)
+                    .register(meterRegistry);
         }
     }
 }
@@ -0,0 +1,285 @@
+package com.outseer.webfingerprint.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.outseer.webfingerprint.fingerprint.DeviceKey;
+import com.outseer.webfingerprint.jfr.DeviceCacheEvent;
+import com.outseer.webfingerprint.jfr.DeviceLookupEvent;
+import com.outseer.webfingerprint.model.Device;
+import com.outseer.webfingerprint.monitoring.ServerTiming;
+import com.outseer.webfingerprint.repository.DeviceRepository;
+import com.outseer.webfingerprint.service.LoggingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through, write-through cache of devices backed by Caffeine.
+ * Cached devices are shared between requests and must not be mutated; callers put a new
+ * instance after every update. Hit, miss and eviction statistics are exported to Micrometer
+ * under the cache name "devices". Entries are keyed by the {@link DeviceKey#ofId(String) DeviceKey} of the
+ * device id, 16 bytes of key per device instead of the id string.
+ * <p>
+ * Concurrent lookups of the same id share one in-flight load, run on the thread of the first
+ * caller. With refreshAfterWrite in the cache spec, entries that are read after that age are
+ * reloaded in the background while the current value keeps being served, at most two at a time,
+ * on virtual threads when spring.threads.virtual.enabled is set.
+ * <p>
+ * Unknown device ids are answered without touching the database by a short-lived negative cache
+ * and, when device.cache.bloom.enabled is set, a Bloom filter of all known ids built at startup.
+ * Every id must be registered with {@link #registerDeviceId(String)} before it is inserted so the
+ * filter never gives a false "not found". Ids inserted by other instances are never registered,
+ * so the filter is off by default and only safe when this instance is the sole writer.
+ * <p>
+ * Lookups and database loads are emitted as {@link DeviceCacheEvent} and {@link DeviceLookupEvent}
+ * JFR events when a flight recording has them enabled. Database loads on the requesting thread are
+ * also added to the request's {@link ServerTiming} as db-read.
+ */
+@Component
+public class DeviceCache {
+
+    static final String CACHE_NAME = "devices";
+    static final String MISSING_CACHE_NAME = "missing-devices";
+
+    private final DeviceRepository deviceRepository;
+    private final LoggingService loggingService;
+    private final AsyncLoadingCache<DeviceKey, Device> cache;
+    private final Cache<DeviceKey, Boolean> missingDevices;
+    private final ExecutorService refreshExecutor;
+    private final Counter coalescedLoads;
+    private final DeviceIdBloomFilter knownDevices;
+    private final boolean filterEnabled;
+    private final Counter filterRejections;
+    private final Counter filterFalsePositives;
+    private final AtomicLong filteredDevices = new AtomicLong();
+    private volatile boolean filterReady;
+
+    public DeviceCache(DeviceRepository deviceRepository,
+                       LoggingService loggingService,
+                       MeterRegistry meterRegistry,
+                       @Value("${device.cache.spec:maximumSize=10000,expireAfterWrite=600s,refreshAfterWrite=480s}") String spec,
+                       @Value("${device.cache.negative-spec:maximumSize=100000,expireAfterWrite=30s}") String negativeSpec,
+                       @Value("${device.cache.bloom.enabled:false}") boolean filterEnabled,
+                       @Value("${device.cache.bloom.expected-devices:1000000}") long expectedDevices,
+                       @Value("${device.cache.bloom.false-positive-rate:0.01}") double falsePositiveRate,
+                       @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.deviceRepository = deviceRepository;
+        this.loggingService = loggingService;
+        // The pool bounds concurrent refresh loads, so they cannot take over the connection pool
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("device-cache-refresh-", 1).factory()
+                : Thread.ofPlatform().name("device-cache-refresh-", 1).daemon().factory();
+        this.refreshExecutor = Executors.newFixedThreadPool(2, threadFactory);
+        this.cache = Caffeine.from(spec).recordStats().executor(refreshExecutor).buildAsync(new CacheLoader<>() {
+            @Override
+            public Device load(DeviceKey key) {
+                // The id cannot be recovered from its key, so lookups pass their own loader; see get()
+                throw new UnsupportedOperationException("Devices are loaded by id");
+            }
+
+            @Override
+            public Device reload(DeviceKey key, Device oldValue) {
+                return DeviceCache.this.load(oldValue.getDeviceId(), key);
+            }
+        });
+        this.missingDevices = Caffeine.from(negativeSpec).recordStats().build();
+        this.filterEnabled = filterEnabled;
+        this.knownDevices = new DeviceIdBloomFilter(expectedDevices, falsePositiveRate);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        CaffeineCacheMetrics.monitor(meterRegistry, missingDevices, MISSING_CACHE_NAME);
+        this.coalescedLoads = Counter.builder("device.cache.coalesced.loads")
+                .description("Lookups that waited for another thread's in-flight load of the same device")
+                .register(meterRegistry);
+        this.filterRejections = Counter.builder("device.bloom.rejections")
+                .description("Lookups answered as not found by the Bloom filter")
+                .register(meterRegistry);
+        this.filterFalsePositives = Counter.builder("device.bloom.false.positives")
+                .description("Lookups that passed the Bloom filter but were not found in the database")
+                .register(meterRegistry);
+        Gauge.builder("device.bloom.false.positive.rate", knownDevices, DeviceIdBloomFilter::expectedFalsePositiveRate)
+                .description("Expected false-positive rate of the Bloom filter given its fill")
+                .register(meterRegistry);
+        Gauge.builder("device.bloom.memory", knownDevices, DeviceIdBloomFilter::memoryBytes)
+                .description("Memory used by the Bloom filter bit array")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("device.bloom.devices", filteredDevices, AtomicLong::get)
+                .description("Device ids added to the Bloom filter")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Builds the Bloom filter from the devices table. Until it is ready every id passes the filter.
+     */
+    @PostConstruct
+    public void loadKnownDeviceIds() {
+        if (!filterEnabled) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        deviceRepository.forEachDeviceId(this::addToFilter);
+        filterReady = true;
+        loggingService.databaseOperation("LOAD_IDS", "Device", System.currentTimeMillis() - startTime);
+        loggingService.info("Device Bloom filter ready with {} devices ({} bytes, {} hashes)",
+                filteredDevices.get(), knownDevices.memoryBytes(), knownDevices.hashCount());
+    }
+
+    /**
+     * Returns the device, loading it from the repository on a cache miss.
+     * @param deviceId Device fingerprint hash
+     * @return Optional containing the Device if found, otherwise empty
+     */
+    public Optional<Device> get(String deviceId) {
+        DeviceCacheEvent event = new DeviceCacheEvent(deviceId);
+        if (isDefinitelyUnknown(deviceId)) {
+            loggingService.cacheOperation("GET", deviceId, false);
+            event.complete("BLOOM_REJECTED", false);
+            return Optional.empty();
+        }
+        DeviceKey key = DeviceKey.ofId(deviceId);
+        if (missingDevices.getIfPresent(key) != null) {
+            loggingService.cacheOperation("GET_MISSING", deviceId, true);
+            event.complete("KNOWN_MISSING", false);
+            return Optional.empty();
+        }
+        CompletableFuture<Device> loading = new CompletableFuture<>();
+        CompletableFuture<Device> future = cache.get(key, (k, executor) -> loading);
+        String result = "HIT";
+        if (future == loading) {
+            result = "MISS";
+            try {
+                loading.complete(load(deviceId, key));
+            } catch (RuntimeException e) {
+                loading.completeExceptionally(e);
+            }
+        } else if (!future.isDone()) {
+            result = "COALESCED";
+            coalescedLoads.increment();
+        }
+        loggingService.cacheOperation("GET", deviceId, future != loading);
+        try {
+            Optional<Device> device = Optional.ofNullable(future.join());
+            event.complete(result, device.isPresent());
+            return device;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Whether the device is known not to exist without asking the database.
+     * @param deviceId Device fingerprint hash
+     * @return true if the Bloom filter has never seen the id
+     */
+    public boolean isDefinitelyUnknown(String deviceId) {
+        if (filterEnabled && filterReady && !knownDevices.mightContain(deviceId)) {
+            filterRejections.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Marks a device id as known. Must be called before the device is inserted.
+     * @param deviceId Device fingerprint hash
+     */
+    public void registerDeviceId(String deviceId) {
+        addToFilter(deviceId);
+        missingDevices.invalidate(DeviceKey.ofId(deviceId));
+    }
+
+    /**
+     * Stores the latest state of a device after it has been written to the database.
+     * @param device Device with the stored row state
+     */
+    public void put(Device device) {
+        DeviceKey key = DeviceKey.ofId(device.getDeviceId());
+        cache.put(key, CompletableFuture.completedFuture(device));
+        missingDevices.invalidate(key);
+    }
+
+    /**
+     * Stores a device unless the cache already holds a higher visit count for it, which a visit written to the
+     * database after this device was read has put there.
+     * @param device Device with the stored row state
+     */
+    public void putIfNotOlder(Device device) {
+        DeviceKey key = DeviceKey.ofId(device.getDeviceId());
+        cache.asMap().compute(key, (k, cached) -> {
+            Device current = cached != null && cached.isDone() && !cached.isCompletedExceptionally()
+                    ? cached.join() : null;
+            return current != null && current.getVisitCount() > device.getVisitCount()
+                    ? cached : CompletableFuture.completedFuture(device);
+        });
+        missingDevices.invalidate(key);
+    }
+
+    /**
+     * Removes a device, e.g. after it has been deleted from the database.
+     * @param deviceId Device fingerprint hash
+     */
+    public void evict(String deviceId) {
+        cache.synchronous().invalidate(DeviceKey.ofId(deviceId));
+    }
+
+    /**
+     * Approximate number of cached devices.
+     */
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private void addToFilter(String deviceId) {
+        if (filterEnabled && !knownDevices.mightContain(deviceId)) {
+            knownDevices.add(deviceId);
+            filteredDevices.incrementAndGet();
+        }
+    }
+
+    private Device load(String deviceId, DeviceKey key) {
+        long startTime = System.currentTimeMillis();
+        long phaseStart = ServerTiming.start();
+        DeviceLookupEvent event = new DeviceLookupEvent(deviceId);
+        Optional<Device> device = deviceRepository.findById(deviceId);
+        event.complete(device.map(Device::getVisitCount).orElse(-1));
+        ServerTiming.record(ServerTiming.Phase.DB_READ, phaseStart);
+        loggingService.databaseOperation("FIND", "Device", System.currentTimeMillis() - startTime);
+        if (device.isEmpty()) {
+            missingDevices.put(key, Boolean.TRUE);
+            if (filterReady) {
+                filterFalsePositives.increment();
+            }
+            // The device may have been inserted and put while this lookup ran; put() and this check
+            // run in opposite order, so one of them always drops the stale "missing" entry
+            CompletableFuture<Device> current = cache.asMap().get(key);
+            if (current != null && current.isDone() && current.getNow(null) != null) {
+                missingDevices.invalidate(key);
+            }
+        }
+        return device.orElse(null);
+    }
+}
@@ -0,0 +1,72 @@
+package com.outseer.webfingerprint.cache;
+
+import com.outseer.webfingerprint.fingerprint.DeviceKey;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over device ids.
+ * Answers "definitely unknown" or "maybe known"; ids can be added concurrently but never removed.
+ * The bit indexes are derived from the two halves of the id's {@link DeviceKey}.
+ */
+final class DeviceIdBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    DeviceIdBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (optimalBits + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    void add(String deviceId) {
+        DeviceKey key = DeviceKey.ofId(deviceId);
+        long hash1 = key.high();
+        long hash2 = key.low();
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitCount);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    boolean mightContain(String deviceId) {
+        DeviceKey key = DeviceKey.ofId(deviceId);
+        long hash1 = key.high();
+        long hash2 = key.low();
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * False-positive probability given the bits currently set.
+     */
+    double expectedFalsePositiveRate() {
+        long set = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            set += Long.bitCount(bits.get(i));
+        }
+        return Math.pow((double) set / bitCount, hashCount);
+    }
+
+    long memoryBytes() {
+        return bitCount / 8;
+    }
+
+    int hashCount() {
+        return hashCount;
+    }
+}
@@ -2,6 +2,7 @@ package com.outseer.webfingerprint.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -21,14 +22,20 @@ public class SecurityConfig {
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
+            // Stateless API without session or login cookies, so there is no session for CSRF to ride on
+            .csrf(AbstractHttpConfigurer::disable)
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .sessionManagement(session -> session
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/api/device/**").permitAll()
+                .requestMatchers("/api/analytics/**").permitAll()
                 .requestMatchers("/swagger-ui.html", "/swagger-ui/**", "/api-docs/**").permitAll()
+                // Starting, stopping and dumping flight recordings writes files and can slow the application
+                .requestMatchers("/actuator/jfr", "/actuator/jfr/**").authenticated()
                 .requestMatchers("/actuator/**").permitAll()
-                .anyRequest().authenticated());
+                .anyRequest().authenticated())
+            .httpBasic(Customizer.withDefaults());
 
         return http.build();
     }
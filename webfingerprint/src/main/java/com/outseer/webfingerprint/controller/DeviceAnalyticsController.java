@@ -0,0 +1,84 @@
+package com.outseer.webfingerprint.controller;
+
+import com.outseer.webfingerprint.analytics.DeviceAnalytics;
+import com.outseer.webfingerprint.dto.TopDevicesResponse;
+import com.outseer.webfingerprint.dto.UniqueDevicesResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("api/analytics")
+@Tag(name = "Device Analytics", description = "Unique device counts and most active devices, served from in-memory sketches")
+public class DeviceAnalyticsController {
+
+    private final DeviceAnalytics deviceAnalytics;
+
+    public DeviceAnalyticsController(DeviceAnalytics deviceAnalytics) {
+        this.deviceAnalytics = deviceAnalytics;
+    }
+
+    /**
+     * Estimates unique devices per hour or day over the latest buckets.
+     *
+     * @param granularity hour or day
+     * @param buckets Number of buckets up to and including the current one
+     * @return ResponseEntity with UniqueDevicesResponse and HTTP status
+     */
+    @Operation(summary = "Get unique devices",
+            description = "Estimates distinct devices per hour or day from HyperLogLog sketches, without scanning the devices table")
+    @ApiResponse(responseCode = "200", description = "Unique devices estimated successfully",
+            content = @Content(schema = @Schema(implementation = UniqueDevicesResponse.class)))
+    @ApiResponse(responseCode = "400", description = "Granularity is neither hour nor day")
+    @GetMapping("/unique-devices")
+    public ResponseEntity<UniqueDevicesResponse> getUniqueDevices(
+            @RequestParam(defaultValue = "hour") String granularity,
+            @RequestParam(defaultValue = "24") int buckets) {
+        DeviceAnalytics.Granularity bucketGranularity;
+        try {
+            bucketGranularity = DeviceAnalytics.Granularity.valueOf(granularity.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new UniqueDevicesResponse(granularity, List.of(), 0, 0,
+                    "invalid_granularity"));
+        }
+        DeviceAnalytics.UniqueDevices uniqueDevices = deviceAnalytics.uniqueDevices(bucketGranularity, buckets);
+        List<UniqueDevicesResponse.Bucket> bucketCounts = uniqueDevices.buckets().stream()
+                .map(bucket -> new UniqueDevicesResponse.Bucket(bucket.bucketStart(), bucket.uniqueDevices()))
+                .toList();
+        return ResponseEntity.ok(new UniqueDevicesResponse(bucketGranularity.name().toLowerCase(Locale.ROOT),
+                bucketCounts, uniqueDevices.uniqueDevices(), uniqueDevices.relativeError(), "success"));
+    }
+
+    /**
+     * Lists the most visited devices.
+     *
+     * @param limit Maximum number of devices
+     * @return ResponseEntity with TopDevicesResponse and HTTP status
+     */
+    @Operation(summary = "Get most active devices",
+            description = "Lists the most visited devices from a Space-Saving sketch, without sorting the devices table")
+    @ApiResponse(responseCode = "200", description = "Top devices retrieved successfully",
+            content = @Content(schema = @Schema(implementation = TopDevicesResponse.class)))
+    @ApiResponse(responseCode = "400", description = "Limit is negative")
+    @GetMapping("/top-devices")
+    public ResponseEntity<TopDevicesResponse> getTopDevices(@RequestParam(defaultValue = "10") int limit) {
+        if (limit < 0) {
+            return ResponseEntity.badRequest().body(new TopDevicesResponse(List.of(),
+                    deviceAnalytics.topDevicesCapacity(), "invalid_limit"));
+        }
+        List<TopDevicesResponse.TopDevice> devices = deviceAnalytics.topDevices(limit).stream()
+                .map(entry -> new TopDevicesResponse.TopDevice(entry.deviceId(), entry.visits(), entry.error()))
+                .toList();
+        return ResponseEntity.ok(new TopDevicesResponse(devices, deviceAnalytics.topDevicesCapacity(), "success"));
+    }
+}
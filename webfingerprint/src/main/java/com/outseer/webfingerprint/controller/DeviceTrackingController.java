@@ -2,18 +2,32 @@ package com.outseer.webfingerprint.controller;
 
 import com.outseer.webfingerprint.dto.DeviceFingerprintRequest;
 import com.outseer.webfingerprint.dto.DeviceTrackingResponse;
+import com.outseer.webfingerprint.dto.DeviceVisitHistoryResponse;
+import com.outseer.webfingerprint.fingerprint.DeviceKeys;
+import com.outseer.webfingerprint.jfr.DeviceRequestEvent;
+import com.outseer.webfingerprint.ratelimit.RateLimiter;
+import com.outseer.webfingerprint.service.DeviceBatchTrackingService;
+import com.outseer.webfingerprint.service.DeviceStreamIngestService;
 import com.outseer.webfingerprint.service.DeviceTrackingService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+
 @RestController
 @RequestMapping("api/device")
 @Tag(name = "Device Tracking", description = "Device fingerprint tracking API endpoints")
@@ -21,15 +35,26 @@ public class DeviceTrackingController {
 
     private static final Logger logger = LoggerFactory.getLogger(DeviceTrackingController.class);
     private final DeviceTrackingService deviceTrackingService;
+    private final DeviceBatchTrackingService deviceBatchTrackingService;
+    private final DeviceStreamIngestService deviceStreamIngestService;
+    private final RateLimiter rateLimiter;
+    private final DeviceKeys deviceKeys;
 
-    public DeviceTrackingController(DeviceTrackingService service) {
+    public DeviceTrackingController(DeviceTrackingService service, DeviceBatchTrackingService batchService,
+                                    DeviceStreamIngestService streamIngestService, RateLimiter rateLimiter,
+                                    DeviceKeys deviceKeys) {
         this.deviceTrackingService = service;
+        this.deviceBatchTrackingService = batchService;
+        this.deviceStreamIngestService = streamIngestService;
+        this.rateLimiter = rateLimiter;
+        this.deviceKeys = deviceKeys;
     }
 
     /**
      * Retrieves device statistics by device ID.
      *
      * @param id Device fingerprint hash
+     * @param httpRequest Request the client IP address is taken from
      * @return ResponseEntity with DeviceTrackingResponse and HTTP status
      */
     @Operation(summary = "Get device statistics",
@@ -37,25 +62,129 @@ public class DeviceTrackingController {
     @ApiResponse(responseCode = "200", description = "Device stats retrieved successfully",
             content = @Content(schema = @Schema(implementation = DeviceTrackingResponse.class)))
     @ApiResponse(responseCode = "404", description = "Device not found")
+    @ApiResponse(responseCode = "429", description = "Too many requests from this client or for this device")
     @GetMapping("/{id}")
-    public ResponseEntity<DeviceTrackingResponse> getStats(@PathVariable String id) {
-        DeviceTrackingResponse stats = deviceTrackingService.getDeviceStats(id);
-        return ResponseEntity.ok(stats);
+    public ResponseEntity<DeviceTrackingResponse> getStats(@PathVariable String id, HttpServletRequest httpRequest) {
+        DeviceRequestEvent event = new DeviceRequestEvent("GET_STATS", id);
+        try {
+            rateLimiter.acquireDevice(id);
+            DeviceTrackingResponse stats = deviceTrackingService.getDeviceStats(id, httpRequest.getRemoteAddr());
+            event.succeeded(stats.getVisitCount());
+            return ResponseEntity.ok(stats);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Retrieves the visits of a device within a time range. Reading the history does not count as a visit.
+     *
+     * @param id Device fingerprint hash
+     * @param from Start of the range (ISO date-time), defaults to the device's first visit
+     * @param to End of the range (ISO date-time), defaults to now
+     * @param limit Maximum number of visits to return, the oldest ones first
+     * @return ResponseEntity with DeviceVisitHistoryResponse and HTTP status
+     */
+    @Operation(summary = "Get device visit history",
+            description = "Retrieves the visit times of a device within a time range, oldest first")
+    @ApiResponse(responseCode = "200", description = "Visit history retrieved successfully",
+            content = @Content(schema = @Schema(implementation = DeviceVisitHistoryResponse.class)))
+    @ApiResponse(responseCode = "404", description = "Device not found")
+    @GetMapping("/{id}/visits")
+    public ResponseEntity<DeviceVisitHistoryResponse> getVisits(
+            @PathVariable String id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "1000") int limit) {
+        return ResponseEntity.ok(deviceTrackingService.getVisitHistory(id, from, to, limit));
     }
 
     /**
      * Tracks a device by fingerprint and returns tracking info.
+     * The device id is the client hash, or computed by the server from the fingerprint when device.key.source is server.
      *
      * @param fingerprint DeviceFingerprintRequest from client
+     * @param httpRequest Request the client IP address is taken from
      * @return ResponseEntity with DeviceTrackingResponse and HTTP status
      */
     @Operation(summary = "Track device",
             description = "Register or update device tracking information")
     @ApiResponse(responseCode = "200", description = "Device tracked successfully",
             content = @Content(schema = @Schema(implementation = DeviceTrackingResponse.class)))
+    @ApiResponse(responseCode = "429", description = "Too many requests from this client or for this device")
     @PostMapping
-    public ResponseEntity<DeviceTrackingResponse> trackDevice(@Valid @RequestBody DeviceFingerprintRequest fingerprint) {
-        DeviceTrackingResponse response = deviceTrackingService.createOrUpdateDeviceInfo(fingerprint);
-        return ResponseEntity.ok(response);
+    public ResponseEntity<DeviceTrackingResponse> trackDevice(@Valid @RequestBody DeviceFingerprintRequest fingerprint,
+                                                              HttpServletRequest httpRequest) {
+        String deviceId = deviceKeys.deviceIdOf(fingerprint);
+        DeviceRequestEvent event = new DeviceRequestEvent("TRACK_DEVICE", deviceId);
+        try {
+            rateLimiter.acquireDevice(deviceId);
+            DeviceTrackingResponse response =
+                    deviceTrackingService.createOrUpdateDeviceInfo(fingerprint, deviceId, httpRequest.getRemoteAddr());
+            event.succeeded(response.getVisitCount());
+            return ResponseEntity.ok(response);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Tracks a batch of device fingerprints and returns tracking info for each of them.
+     *
+     * The batch first waits for the client's ingest quota to cover all its fingerprints; if that would take too
+     * long, the whole batch is rejected with 429 and nothing is tracked.
+     *
+     * @param fingerprints DeviceFingerprintRequests collected by an edge collector
+     * @param httpRequest Request the client IP address is taken from
+     * @return ResponseEntity with one DeviceTrackingResponse per fingerprint, in request order
+     */
+    @Operation(summary = "Track devices in batch",
+            description = "Register or update tracking information for many devices in one call")
+    @ApiResponse(responseCode = "200", description = "Devices tracked successfully")
+    @ApiResponse(responseCode = "429", description = "Too many requests or fingerprints from this client")
+    @PostMapping("/batch")
+    public ResponseEntity<List<DeviceTrackingResponse>> trackDevices(
+            @RequestBody List<@Valid DeviceFingerprintRequest> fingerprints, HttpServletRequest httpRequest) {
+        DeviceRequestEvent event = new DeviceRequestEvent("TRACK_BATCH", null);
+        try {
+            rateLimiter.acquireIngest(httpRequest.getRemoteAddr(), fingerprints.size());
+            List<DeviceTrackingResponse> responses = deviceBatchTrackingService.trackDevices(fingerprints);
+            event.succeeded((long) fingerprints.size());
+            return ResponseEntity.ok(responses);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Ingests a newline-delimited JSON stream of fingerprints for bulk replay.
+     * Results are streamed back as NDJSON, followed by a summary line with throughput.
+     * Each chunk waits for the client's ingest quota before it is tracked, which slows down reading the body; if
+     * that would take too long the stream stops with the status partial and the line to resend from.
+     *
+     * @param body NDJSON request body, one DeviceFingerprintRequest per line
+     * @param summaryOnly Whether to return only the summary line
+     * @param httpRequest Request the client IP address is taken from
+     * @param response Servlet response the results are streamed to
+     */
+    @Operation(summary = "Ingest device stream",
+            description = "Track newline-delimited JSON fingerprints in bounded chunks and stream the results back")
+    @ApiResponse(responseCode = "200", description = "Stream ingested, results and summary returned as NDJSON")
+    @ApiResponse(responseCode = "429", description = "Too many requests from this client")
+    @PostMapping(value = "/stream", consumes = "application/x-ndjson", produces = "application/x-ndjson")
+    public void ingestStream(InputStream body,
+                             @RequestParam(defaultValue = "false") boolean summaryOnly,
+                             HttpServletRequest httpRequest,
+                             HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        DeviceRequestEvent event = new DeviceRequestEvent("INGEST_STREAM", null);
+        try {
+            String clientIp = httpRequest.getRemoteAddr();
+            event.succeeded(deviceStreamIngestService.ingest(body, response.getOutputStream(), summaryOnly,
+                    fingerprints -> rateLimiter.acquireIngest(clientIp, fingerprints)).getLines());
+        } finally {
+            event.commit();
+        }
     }
 }
@@ -2,7 +2,6 @@ package com.outseer.webfingerprint.dto;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
-import jakarta.validation.constraints.NotNull;
 
 import java.util.List;
 import java.util.Map;
@@ -11,8 +10,7 @@ import java.util.Map;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class DeviceFingerprintRequest {
     // Basic browser information
-    // Computed hash or deviceId
-    @NotNull(message = "Hash cannot be null")
+    // Hash computed by the browser; only required when devices are keyed by it (device.key.source=client)
     private String hash;
     private String userAgent;
     private String language;
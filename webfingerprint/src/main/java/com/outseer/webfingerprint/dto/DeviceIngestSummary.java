@@ -0,0 +1,82 @@
+package com.outseer.webfingerprint.dto;
+
+/**
+ * Summary written as the last line of a streaming NDJSON ingestion.
+ */
+public class DeviceIngestSummary {
+    private long lines;
+    private long tracked;
+    private long rejected;
+    private long durationMs;
+    private double linesPerSecond;
+    private String status;
+    private String message;
+
+    public DeviceIngestSummary(){}
+
+    public DeviceIngestSummary(long lines, long tracked, long rejected, long durationMs, double linesPerSecond, String status, String message) {
+        this.lines = lines;
+        this.tracked = tracked;
+        this.rejected = rejected;
+        this.durationMs = durationMs;
+        this.linesPerSecond = linesPerSecond;
+        this.status = status;
+        this.message = message;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public void setLines(long lines) {
+        this.lines = lines;
+    }
+
+    public long getTracked() {
+        return tracked;
+    }
+
+    public void setTracked(long tracked) {
+        this.tracked = tracked;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public double getLinesPerSecond() {
+        return linesPerSecond;
+    }
+
+    public void setLinesPerSecond(double linesPerSecond) {
+        this.linesPerSecond = linesPerSecond;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
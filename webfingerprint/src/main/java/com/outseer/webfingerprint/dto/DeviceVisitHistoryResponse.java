@@ -0,0 +1,102 @@
+package com.outseer.webfingerprint.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Visits of a device within a time range, oldest first.
+ */
+public class DeviceVisitHistoryResponse {
+    private String deviceId;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private int visitCount;
+    private boolean truncated;
+    private boolean downsampled;
+    private List<LocalDateTime> visits;
+    private String status;
+
+    public DeviceVisitHistoryResponse(){}
+
+    public DeviceVisitHistoryResponse(String deviceId, LocalDateTime from, LocalDateTime to, List<LocalDateTime> visits,
+                                      boolean truncated, boolean downsampled, String status) {
+        this.deviceId = deviceId;
+        this.from = from;
+        this.to = to;
+        this.visits = visits;
+        this.visitCount = visits.size();
+        this.truncated = truncated;
+        this.downsampled = downsampled;
+        this.status = status;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+
+    public int getVisitCount() {
+        return visitCount;
+    }
+
+    public void setVisitCount(int visitCount) {
+        this.visitCount = visitCount;
+    }
+
+    /**
+     * Whether the range holds more visits than the requested limit.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    /**
+     * Whether part of the range is old enough to keep only the first visit per downsampling interval.
+     */
+    public boolean isDownsampled() {
+        return downsampled;
+    }
+
+    public void setDownsampled(boolean downsampled) {
+        this.downsampled = downsampled;
+    }
+
+    public List<LocalDateTime> getVisits() {
+        return visits;
+    }
+
+    public void setVisits(List<LocalDateTime> visits) {
+        this.visits = visits;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,57 @@
+package com.outseer.webfingerprint.dto;
+
+import java.util.List;
+
+/**
+ * Most visited devices, from a Space-Saving sketch.
+ */
+public class TopDevicesResponse {
+
+    /**
+     * A device with its counted visits, at most error above the true count.
+     */
+    public record TopDevice(String deviceId, long visits, long error) {
+    }
+
+    private List<TopDevice> devices;
+    private int capacity;
+    private String status;
+
+    public TopDevicesResponse(){}
+
+    public TopDevicesResponse(List<TopDevice> devices, int capacity, String status) {
+        this.devices = devices;
+        this.capacity = capacity;
+        this.status = status;
+    }
+
+    /**
+     * Devices with their counted visits, most first. Each count exceeds the true one by at most its error.
+     */
+    public List<TopDevice> getDevices() {
+        return devices;
+    }
+
+    public void setDevices(List<TopDevice> devices) {
+        this.devices = devices;
+    }
+
+    /**
+     * Number of devices the sketch monitors.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,79 @@
+package com.outseer.webfingerprint.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Estimated unique devices per hour or day, from HyperLogLog sketches.
+ */
+public class UniqueDevicesResponse {
+
+    /**
+     * Estimated unique devices of one hour or day.
+     */
+    public record Bucket(LocalDateTime bucketStart, long uniqueDevices) {
+    }
+
+    private String granularity;
+    private List<Bucket> buckets;
+    private long uniqueDevices;
+    private double relativeError;
+    private String status;
+
+    public UniqueDevicesResponse(){}
+
+    public UniqueDevicesResponse(String granularity, List<Bucket> buckets, long uniqueDevices,
+                                 double relativeError, String status) {
+        this.granularity = granularity;
+        this.buckets = buckets;
+        this.uniqueDevices = uniqueDevices;
+        this.relativeError = relativeError;
+        this.status = status;
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+
+    public List<Bucket> getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(List<Bucket> buckets) {
+        this.buckets = buckets;
+    }
+
+    /**
+     * Estimated distinct devices over all the buckets; a device visiting in several buckets counts once.
+     */
+    public long getUniqueDevices() {
+        return uniqueDevices;
+    }
+
+    public void setUniqueDevices(long uniqueDevices) {
+        this.uniqueDevices = uniqueDevices;
+    }
+
+    /**
+     * Standard error of the estimates relative to the true counts.
+     */
+    public double getRelativeError() {
+        return relativeError;
+    }
+
+    public void setRelativeError(double relativeError) {
+        this.relativeError = relativeError;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+}
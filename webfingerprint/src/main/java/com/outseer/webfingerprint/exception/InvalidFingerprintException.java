@@ -0,0 +1,7 @@
+package com.outseer.webfingerprint.exception;
+
+public class InvalidFingerprintException extends RuntimeException {
+    public InvalidFingerprintException(String message) {
+        super(message);
+    }
+}
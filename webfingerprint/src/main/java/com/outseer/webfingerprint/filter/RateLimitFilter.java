@@ -0,0 +1,59 @@
+package com.outseer.webfingerprint.filter;
+
+import com.outseer.webfingerprint.ratelimit.RateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Rejects device API requests from client IP addresses over their rate limit with 429 Too Many Requests.
+ * Runs after {@link ServerTimingFilter} and ahead of Spring Security, so a rejection costs no authentication,
+ * request body parsing or database work. The address is the request's remote address: with
+ * server.forward-headers-strategy=native, as configured, Tomcat replaces it with the X-Forwarded-For client
+ * address when the connection comes from a trusted internal proxy, and keeps the peer address otherwise so
+ * clients cannot pick their own bucket.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    static final String API_PATH = "/api/device";
+    static final String REJECTED_BODY = "{\"status\":\"rate_limited\",\"message\":\"Too many requests\"}";
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitFilter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !rateLimiter.isEnabled()
+                || !request.getRequestURI().startsWith(API_PATH, request.getContextPath().length());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String clientIp = request.getRemoteAddr();
+        if (rateLimiter.tryAcquire(RateLimiter.Limit.IP, clientIp)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER,
+                Long.toString(rateLimiter.retryAfterSeconds(RateLimiter.Limit.IP, clientIp)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write(REJECTED_BODY);
+    }
+}
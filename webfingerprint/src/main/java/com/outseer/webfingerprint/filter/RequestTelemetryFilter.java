@@ -0,0 +1,129 @@
+package com.outseer.webfingerprint.filter;
+
+import com.outseer.webfingerprint.monitoring.SlowCall;
+import com.outseer.webfingerprint.monitoring.SlowOperationDetector;
+import com.outseer.webfingerprint.service.LoggingService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs one line per HTTP request with method, path, status and duration, and puts a correlation ID
+ * in the MDC for everything logged while the request is handled.
+ * Runs ahead of Spring Security, so requests rejected there are reported with their real status.
+ * Successful requests are logged at the configured sample rate; server errors and slow requests
+ * are always logged. Whether a request is slow is decided by {@link SlowOperationDetector} per
+ * method and route pattern, with the configured threshold used until a route has enough samples.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestTelemetryFilter extends OncePerRequestFilter {
+
+    static final String CORRELATION_ID_MDC_KEY = "correlationId";
+    private static final int MAX_CORRELATION_ID_LENGTH = 64;
+
+    private final LoggingService loggingService;
+    private final SlowOperationDetector slowOperationDetector;
+    private final String correlationHeader;
+    private final double sampleRate;
+    private final long slowThresholdMs;
+
+    public RequestTelemetryFilter(LoggingService loggingService,
+                                  SlowOperationDetector slowOperationDetector,
+                                  @Value("${telemetry.correlation-header:X-Correlation-ID}") String correlationHeader,
+                                  @Value("${telemetry.request-log.sample-rate:1.0}") double sampleRate,
+                                  @Value("${telemetry.request-log.slow-threshold-ms:1000}") long slowThresholdMs) {
+        this.loggingService = loggingService;
+        this.slowOperationDetector = slowOperationDetector;
+        this.correlationHeader = correlationHeader;
+        this.sampleRate = sampleRate;
+        this.slowThresholdMs = slowThresholdMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long startTime = System.nanoTime();
+        String correlationId = request.getHeader(correlationHeader);
+        if (!isValidCorrelationId(correlationId)) {
+            correlationId = loggingService.generateCorrelationId();
+        }
+        MDC.put(CORRELATION_ID_MDC_KEY, correlationId);
+        response.setHeader(correlationHeader, correlationId);
+
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            long durationNanos = System.nanoTime() - startTime;
+            long durationMs = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+            // An exception escaping the chain is turned into a 500 by the container after this filter returns
+            int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+            try {
+                SlowCall slowCall = slowOperationDetector.record(operationName(request), durationNanos, slowThresholdMs);
+                if (shouldLog(status, slowCall != null)) {
+                    logRequest(request, status, durationMs, correlationId, slowCall);
+                }
+            } finally {
+                MDC.remove(CORRELATION_ID_MDC_KEY);
+            }
+        }
+    }
+
+    private boolean shouldLog(int status, boolean slow) {
+        if (status >= 500 || slow || sampleRate >= 1.0) {
+            return true;
+        }
+        return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private void logRequest(HttpServletRequest request, int status, long durationMs, String correlationId,
+                            SlowCall slowCall) {
+        String method = request.getMethod();
+        String path = request.getRequestURI();
+        String query = request.getQueryString();
+        loggingService.apiResponse(method, query == null ? path : path + '?' + query, status, durationMs, correlationId);
+        if (slowCall != null) {
+            loggingService.slowOperation(slowCall.operation(), durationMs, (long) slowCall.thresholdMs());
+        }
+    }
+
+    /**
+     * Method and route pattern, e.g. "GET /api/device/{id}", so every device id maps to the same operation.
+     */
+    private static String operationName(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + (pattern == null ? " UNMAPPED" : " " + pattern);
+    }
+
+    /**
+     * Accepts IDs from upstream services as long as they are short and cannot break a log line.
+     */
+    private static boolean isValidCorrelationId(String correlationId) {
+        if (correlationId == null || correlationId.isEmpty() || correlationId.length() > MAX_CORRELATION_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < correlationId.length(); i++) {
+            char c = correlationId.charAt(i);
+            boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.';
+            if (!allowed) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,49 @@
+package com.outseer.webfingerprint.filter;
+
+import com.outseer.webfingerprint.monitoring.ServerTiming;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Opens a {@link ServerTiming} context for every device API request, which
+ * {@link ServerTimingHeaderAdvice} turns into the Server-Timing response header.
+ * Runs right after {@link RequestTelemetryFilter} and ahead of Spring Security, so "total" includes
+ * the security filter chain. When disabled no context is opened and the timed phases cost nothing.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    static final String API_PATH = "/api/device";
+
+    private final boolean enabled;
+
+    public ServerTimingFilter(@Value("${telemetry.server-timing.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith(API_PATH, request.getContextPath().length());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ServerTiming.open(System.nanoTime());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ServerTiming.close();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.outseer.webfingerprint.filter;
+
+import com.outseer.webfingerprint.monitoring.ServerTiming;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds the Server-Timing header to responses of requests with an open {@link ServerTiming} context,
+ * including error responses from the exception handlers. Headers have to be set before the body is
+ * written, so "total" ends when serialization starts. Streamed responses (/api/device/stream) write
+ * their body directly and carry no header.
+ */
+@ControllerAdvice
+public class ServerTimingHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        ServerTiming timing = ServerTiming.current();
+        if (timing != null) {
+            response.getHeaders().set(ServerTiming.HEADER, timing.headerValue(System.nanoTime()));
+        }
+        return body;
+    }
+}
@@ -0,0 +1,59 @@
+package com.outseer.webfingerprint.fingerprint;
+
+import java.util.HexFormat;
+
+/**
+ * 128-bit canonical device key computed by the server from a fingerprint.
+ * <p>
+ * Its text form, used as the device id, is always 32 lowercase hex digits: the first half of the hash, then
+ * the second, each big-endian. {@link #ofId(String)} also gives every other device id a key, so in-memory maps
+ * can hold 16 bytes of key per device instead of a string.
+ * @param high First 64 bits of the hash
+ * @param low Last 64 bits of the hash
+ */
+public record DeviceKey(long high, long low) {
+
+    public static final int HEX_LENGTH = 32;
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    /**
+     * Parses the text form of a key.
+     * @throws IllegalArgumentException if the text is not 32 hex digits
+     */
+    public static DeviceKey fromHex(CharSequence hex) {
+        if (hex.length() != HEX_LENGTH) {
+            throw new IllegalArgumentException("Device key must have " + HEX_LENGTH + " hex digits: " + hex);
+        }
+        return new DeviceKey(HexFormat.fromHexDigitsToLong(hex, 0, 16), HexFormat.fromHexDigitsToLong(hex, 16, 32));
+    }
+
+    /**
+     * Key of any device id: the id parsed when it is the text form of a key, else the {@link Murmur3Hasher} hash
+     * of the id, such as a client hash.
+     */
+    public static DeviceKey ofId(String deviceId) {
+        if (isKeyText(deviceId)) {
+            return fromHex(deviceId);
+        }
+        return new Murmur3Hasher().putString(deviceId).hash();
+    }
+
+    @Override
+    public String toString() {
+        return HEX.toHexDigits(high) + HEX.toHexDigits(low);
+    }
+
+    private static boolean isKeyText(String deviceId) {
+        if (deviceId.length() != HEX_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < HEX_LENGTH; i++) {
+            char c = deviceId.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
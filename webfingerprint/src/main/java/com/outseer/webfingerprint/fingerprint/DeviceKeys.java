@@ -0,0 +1,137 @@
+package com.outseer.webfingerprint.fingerprint;
+
+import com.outseer.webfingerprint.dto.DeviceFingerprintRequest;
+import com.outseer.webfingerprint.exception.InvalidFingerprintException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decides which device id a fingerprint is tracked under.
+ * <p>
+ * In server mode the id is the {@link DeviceKey} hashed from the fingerprint's attributes with
+ * {@link Murmur3Hasher}, replacing the 32-bit hash the browser computed, which collides easily. Every attribute
+ * except the client hash is fed in a fixed order, each value prefixed by its type, so a missing attribute and an
+ * empty one hash differently. Map keys are fed in sorted order and integral numbers as longs whatever their JSON
+ * form, so 8 and 8.0 give the same key. In client mode the hash sent by the browser is kept as it is, and a
+ * fingerprint without one, or with one longer than a server key, cannot be tracked.
+ */
+@Component
+public class DeviceKeys {
+
+    public enum Source { SERVER, CLIENT }
+
+    public static final String MISSING_HASH = "Hash cannot be null";
+    public static final String HASH_TOO_LONG = "Hash must be at most " + DeviceKey.HEX_LENGTH + " characters";
+
+    private static final int NULL = 0;
+    private static final int STRING = 1;
+    private static final int BOOLEAN = 2;
+    private static final int INTEGRAL = 3;
+    private static final int DECIMAL = 4;
+    private static final int MAP = 5;
+    private static final int LIST = 6;
+
+    private final Source source;
+
+    public DeviceKeys(@Value("${device.key.source:client}") String source) {
+        this.source = Source.valueOf(source.toUpperCase(Locale.ROOT));
+    }
+
+    public Source source() {
+        return source;
+    }
+
+    /**
+     * Checks that the fingerprint's device id can be computed and stored; only client mode needs a hash, of at
+     * most {@link DeviceKey#HEX_LENGTH} characters like a server key.
+     * @return Why the fingerprint cannot be tracked, or null if it can
+     */
+    public String validate(DeviceFingerprintRequest request) {
+        if (source == Source.SERVER) {
+            return null;
+        }
+        if (request.getHash() == null) {
+            return MISSING_HASH;
+        }
+        return request.getHash().length() > DeviceKey.HEX_LENGTH ? HASH_TOO_LONG : null;
+    }
+
+    /**
+     * Device id a fingerprint is tracked under: its server key in server mode, its client hash otherwise.
+     * The request is left unchanged; callers pass the id along with it.
+     * @param request Device fingerprint from the client
+     * @return Device id the request is tracked under
+     * @throws InvalidFingerprintException if the request has no usable hash in client mode
+     */
+    public String deviceIdOf(DeviceFingerprintRequest request) {
+        String violation = validate(request);
+        if (violation != null) {
+            throw new InvalidFingerprintException(violation);
+        }
+        return source == Source.SERVER ? keyOf(request).toString() : request.getHash();
+    }
+
+    /**
+     * 128-bit key of a fingerprint's attributes, ignoring the client hash.
+     */
+    public static DeviceKey keyOf(DeviceFingerprintRequest request) {
+        Murmur3Hasher hasher = new Murmur3Hasher();
+        put(hasher, request.getUserAgent());
+        put(hasher, request.getLanguage());
+        put(hasher, request.getPlatform());
+        put(hasher, request.getCookiesEnabled());
+        put(hasher, request.getScreenResolution());
+        put(hasher, request.getTimezone());
+        put(hasher, request.getPlugins());
+        put(hasher, request.getCanvas());
+        put(hasher, request.getWebGLFingerprint());
+        put(hasher, request.getTouchSupport());
+        put(hasher, request.getDeviceMemory());
+        put(hasher, request.getHardwareConcurrency());
+        return hasher.hash();
+    }
+
+    private static void put(Murmur3Hasher hasher, Object value) {
+        switch (value) {
+            case null -> hasher.putByte(NULL);
+            case CharSequence text -> hasher.putByte(STRING).putString(text);
+            case Boolean flag -> hasher.putByte(BOOLEAN).putByte(flag ? 1 : 0);
+            case Integer number -> hasher.putByte(INTEGRAL).putLong(number);
+            case Long number -> hasher.putByte(INTEGRAL).putLong(number);
+            case Number number -> {
+                double decimal = number.doubleValue();
+                if (decimal == Math.rint(decimal) && Math.abs(decimal) < 0x1p63) {
+                    hasher.putByte(INTEGRAL).putLong((long) decimal);
+                } else {
+                    hasher.putByte(DECIMAL).putLong(Double.doubleToLongBits(decimal));
+                }
+            }
+            case Map<?, ?> map -> {
+                Map.Entry<?, ?>[] entries = map.entrySet().toArray(new Map.Entry<?, ?>[0]);
+                Arrays.sort(entries, (a, b) -> compareKeys(a.getKey(), b.getKey()));
+                hasher.putByte(MAP).putInt(entries.length);
+                for (Map.Entry<?, ?> entry : entries) {
+                    put(hasher, entry.getKey());
+                    put(hasher, entry.getValue());
+                }
+            }
+            case Collection<?> values -> {
+                hasher.putByte(LIST).putInt(values.size());
+                for (Object element : values) {
+                    put(hasher, element);
+                }
+            }
+            default -> hasher.putByte(STRING).putString(value.toString());
+        }
+    }
+
+    private static int compareKeys(Object a, Object b) {
+        // JSON object keys are always strings
+        return CharSequence.compare(String.valueOf(a), String.valueOf(b));
+    }
+}
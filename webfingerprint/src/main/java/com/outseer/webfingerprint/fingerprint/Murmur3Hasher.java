@@ -0,0 +1,135 @@
+package com.outseer.webfingerprint.fingerprint;
+
+/**
+ * Streaming MurmurHash3 x64 128-bit hash (Austin Appleby), seed 0.
+ * <p>
+ * Values are fed in as little-endian bytes and mixed 16 bytes at a time as they arrive, so hashing a fingerprint
+ * never builds a byte array or an intermediate string. Strings are fed as their UTF-16 code units, preceded by
+ * their length so that consecutive fields cannot run into each other. The result of {@link #hash()} for a byte
+ * sequence equals the reference implementation's. Not thread safe; a hasher is used once.
+ */
+public final class Murmur3Hasher {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private long h1;
+    private long h2;
+    private long k1;
+    private long k2;
+    private int position;
+    private long length;
+
+    public Murmur3Hasher putByte(int value) {
+        long b = value & 0xFFL;
+        if (position < 8) {
+            k1 |= b << (position << 3);
+        } else {
+            k2 |= b << ((position - 8) << 3);
+        }
+        length++;
+        if (++position == 16) {
+            mixBlock();
+        }
+        return this;
+    }
+
+    public Murmur3Hasher putLong(long value) {
+        if (position == 0) {
+            k1 = value;
+            position = 8;
+            length += 8;
+        } else if (position == 8) {
+            k2 = value;
+            length += 8;
+            mixBlock();
+        } else {
+            for (int i = 0; i < 64; i += 8) {
+                putByte((int) (value >>> i));
+            }
+        }
+        return this;
+    }
+
+    public Murmur3Hasher putInt(int value) {
+        for (int i = 0; i < 32; i += 8) {
+            putByte(value >>> i);
+        }
+        return this;
+    }
+
+    public Murmur3Hasher putChar(char value) {
+        putByte(value);
+        return putByte(value >>> 8);
+    }
+
+    /**
+     * Feeds the string's length, then its characters.
+     */
+    public Murmur3Hasher putString(CharSequence value) {
+        int size = value.length();
+        putInt(size);
+        for (int i = 0; i < size; i++) {
+            putChar(value.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * Finishes the hash. The hasher must not be fed afterwards.
+     */
+    public DeviceKey hash() {
+        if (position > 8) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+        }
+        if (position > 0) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+        }
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new DeviceKey(h1, h2);
+    }
+
+    private void mixBlock() {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        h1 ^= k1;
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        h2 ^= k2;
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+
+        k1 = 0;
+        k2 = 0;
+        position = 0;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -2,7 +2,10 @@ package com.outseer.webfingerprint.globalException;
 
 import com.outseer.webfingerprint.dto.DeviceTrackingResponse;
 import com.outseer.webfingerprint.exception.DeviceNotFoundException;
+import com.outseer.webfingerprint.exception.InvalidFingerprintException;
+import com.outseer.webfingerprint.exception.RateLimitExceededException;
 import com.outseer.webfingerprint.service.LoggingService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -31,6 +34,24 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(InvalidFingerprintException.class)
+    public ResponseEntity<DeviceTrackingResponse> handleInvalidFingerprintException(InvalidFingerprintException ex) {
+        DeviceTrackingResponse response = new DeviceTrackingResponse();
+        response.setStatus("invalid");
+        response.setMessage(ex.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<DeviceTrackingResponse> handleRateLimitExceededException(RateLimitExceededException ex) {
+        DeviceTrackingResponse response = new DeviceTrackingResponse();
+        response.setStatus("rate_limited");
+        response.setMessage(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                .body(response);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<DeviceTrackingResponse> handleGeneralException(Exception ex) {
         loggingService.error("An unexpected error occurred: {}", ex.getMessage(), ex);
@@ -0,0 +1,412 @@
+package com.outseer.webfingerprint.history;
+
+import com.outseer.webfingerprint.service.LoggingService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-device visit history, stored as blocks of delta and varint encoded timestamps (see {@link VisitHistoryCodec}).
+ * <p>
+ * Visits are collected in memory and appended to each device's latest block every flush-interval-ms, in one
+ * transaction. A block holds up to block-size visits at one-second resolution and is keyed by the device and
+ * its number in the device's sequence of blocks. It also stores its first and last visit, so a time range is read
+ * by decoding only the blocks that overlap it. Whenever one of a
+ * device's blocks fills up, its blocks older than downsample-after-days are thinned out to the first visit per
+ * downsample-resolution-minutes, which bounds the storage of devices that keep visiting.
+ * <p>
+ * Flushes are serialised, so the final flush on shutdown never runs alongside a scheduled one.
+ */
+@Component
+public class VisitHistory {
+
+    static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS device_visit_blocks ("
+            + "device_id VARCHAR(32) NOT NULL, block_seq INTEGER NOT NULL, block_start BIGINT NOT NULL, "
+            + "block_end BIGINT NOT NULL, visits INTEGER NOT NULL, resolution INTEGER NOT NULL, "
+            + "data VARBINARY NOT NULL, PRIMARY KEY (device_id, block_seq))";
+
+    static final String SELECT_LATEST_SQL = "SELECT block_seq, block_start, block_end, visits, resolution, data "
+            + "FROM device_visit_blocks WHERE device_id = ? ORDER BY block_seq DESC FETCH FIRST 1 ROWS ONLY";
+
+    static final String SELECT_RANGE_SQL = "SELECT block_seq, block_start, block_end, visits, resolution, data "
+            + "FROM device_visit_blocks WHERE device_id = ? AND block_start <= ? AND block_end >= ? "
+            + "ORDER BY block_seq";
+
+    static final String SELECT_DOWNSAMPLE_SQL = "SELECT block_seq, block_start, block_end, visits, resolution, data "
+            + "FROM device_visit_blocks WHERE device_id = ? AND resolution < ? AND block_end < ?";
+
+    static final String INSERT_SQL = "INSERT INTO device_visit_blocks "
+            + "(device_id, block_seq, block_start, block_end, visits, resolution, data) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    static final String UPDATE_SQL = "UPDATE device_visit_blocks SET block_end = ?, visits = ?, resolution = ?, "
+            + "data = ? WHERE device_id = ? AND block_seq = ?";
+
+    static final String DELETE_DEVICE_SQL = "DELETE FROM device_visit_blocks WHERE device_id = ?";
+
+    private static final RowMapper<Block> BLOCK_MAPPER = (rs, rowNum) -> new Block(rs.getInt("block_seq"),
+            rs.getLong("block_start"), rs.getLong("block_end"), rs.getInt("visits"), rs.getInt("resolution"),
+            rs.getBytes("data"));
+
+    /**
+     * Visits of a device within a time range.
+     * @param visits Visit times in epoch seconds, oldest first
+     * @param truncated Whether the range holds more visits than were returned
+     * @param downsampled Whether part of the range only has the first visit per downsample resolution
+     */
+    public record VisitRange(long[] visits, boolean truncated, boolean downsampled) {
+    }
+
+    private record Block(int seq, long start, long end, int visits, int resolution, byte[] data) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LoggingService loggingService;
+    private final boolean enabled;
+    private final int blockSize;
+    private final Duration downsampleAfter;
+    private final int downsampleResolutionSeconds;
+    private final long flushIntervalMs;
+    private final int maxRangeVisits;
+    private final boolean virtualThreads;
+
+    private final Map<String, PendingVisits> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private ScheduledExecutorService scheduler;
+
+    public VisitHistory(JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager,
+                        LoggingService loggingService,
+                        @Value("${device.history.enabled:true}") boolean enabled,
+                        @Value("${device.history.block-size:256}") int blockSize,
+                        @Value("${device.history.downsample-after-days:30}") long downsampleAfterDays,
+                        @Value("${device.history.downsample-resolution-minutes:60}") int downsampleResolutionMinutes,
+                        @Value("${device.history.flush-interval-ms:1000}") long flushIntervalMs,
+                        @Value("${device.history.max-range-visits:10000}") int maxRangeVisits,
+                        @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.loggingService = loggingService;
+        this.enabled = enabled;
+        this.blockSize = blockSize;
+        this.downsampleAfter = Duration.ofDays(downsampleAfterDays);
+        this.downsampleResolutionSeconds = downsampleResolutionMinutes * 60;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxRangeVisits = maxRangeVisits;
+        this.virtualThreads = virtualThreads;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.execute(CREATE_TABLE_SQL);
+        scheduler = Executors.newSingleThreadScheduledExecutor(virtualThreads
+                ? Thread.ofVirtual().name("visit-history-flush").factory()
+                : Thread.ofPlatform().name("visit-history-flush").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::flushDue, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes every collected visit on shutdown.
+     */
+    @PreDestroy
+    void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(flushIntervalMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Adds visits to a device's history.
+     * @param deviceId Device fingerprint hash
+     * @param visitedAt Time of the visits
+     * @param visits Number of visits at that time
+     */
+    public void recordVisits(String deviceId, LocalDateTime visitedAt, int visits) {
+        if (!enabled) {
+            return;
+        }
+        long epochSecond = toEpochSecond(visitedAt);
+        pending.compute(deviceId, (id, existing) -> {
+            PendingVisits pendingVisits = existing != null ? existing : new PendingVisits();
+            for (int i = 0; i < visits; i++) {
+                pendingVisits.add(epochSecond);
+            }
+            return pendingVisits;
+        });
+    }
+
+    /**
+     * Adds a visit to a device's history.
+     * @param deviceId Device fingerprint hash
+     * @param visitedAt Time of the visit
+     */
+    public void recordVisit(String deviceId, LocalDateTime visitedAt) {
+        recordVisits(deviceId, visitedAt, 1);
+    }
+
+    /**
+     * Reads a device's visits within a time range, including visits not yet written.
+     * Only the stored blocks overlapping the range are loaded and decoded.
+     * @param deviceId Device fingerprint hash
+     * @param from Start of the range, inclusive
+     * @param to End of the range, inclusive
+     * @param limit Maximum number of visits to return, the oldest ones first; capped at max-range-visits
+     * @return Visits in the range, none if the history is disabled
+     */
+    public VisitRange visits(String deviceId, LocalDateTime from, LocalDateTime to, int limit) {
+        if (!enabled) {
+            return new VisitRange(new long[0], false, false);
+        }
+        RangeCollector collector = new RangeCollector(toEpochSecond(from), toEpochSecond(to),
+                Math.max(1, Math.min(limit, maxRangeVisits)));
+        for (Block block : jdbcTemplate.query(SELECT_RANGE_SQL, BLOCK_MAPPER, deviceId, collector.to, collector.from)) {
+            collector.downsampled |= block.resolution() > 1;
+            VisitHistoryCodec.decode(block.data(), block.start(), collector);
+            if (collector.truncated) {
+                return collector.result();
+            }
+        }
+
+        long[] unwritten = new long[0];
+        PendingVisits pendingVisits = pending.get(deviceId);
+        if (pendingVisits != null) {
+            synchronized (pendingVisits) {
+                unwritten = Arrays.copyOf(pendingVisits.visits, pendingVisits.count);
+            }
+        }
+        Arrays.sort(unwritten);
+        for (long visitedAt : unwritten) {
+            if (!collector.accept(visitedAt)) {
+                break;
+            }
+        }
+        return collector.result();
+    }
+
+    /**
+     * Deletes the history of devices, e.g. when they are purged.
+     * Runs in the caller's transaction, if there is one.
+     * @param deviceIds Device fingerprint hashes
+     */
+    public void delete(List<String> deviceIds) {
+        if (!enabled || deviceIds.isEmpty()) {
+            return;
+        }
+        deviceIds.forEach(pending::remove);
+        List<Object[]> args = new ArrayList<>(deviceIds.size());
+        for (String deviceId : deviceIds) {
+            args.add(new Object[]{deviceId});
+        }
+        jdbcTemplate.batchUpdate(DELETE_DEVICE_SQL, args);
+    }
+
+    void flushDue() {
+        try {
+            flush();
+        } catch (Exception e) {
+            loggingService.error("Failed to write visit history", e);
+        }
+    }
+
+    /**
+     * Appends the collected visits to the stored histories in one transaction.
+     * On failure they are put back and written by the next flush.
+     * @return Number of devices written
+     */
+    int flush() {
+        flushLock.lock();
+        try {
+            return flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int flushPending() {
+        Map<String, PendingVisits> batch = new HashMap<>();
+        for (String deviceId : pending.keySet()) {
+            PendingVisits visits = pending.remove(deviceId);
+            if (visits != null) {
+                batch.put(deviceId, visits);
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        long dbStartTime = System.currentTimeMillis();
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(this::append));
+        } catch (RuntimeException e) {
+            batch.forEach((deviceId, visits) -> pending.merge(deviceId, visits, PendingVisits::addAll));
+            throw e;
+        }
+        loggingService.databaseOperation("BATCH_APPEND", "DeviceVisitBlock", System.currentTimeMillis() - dbStartTime);
+        return batch.size();
+    }
+
+    /**
+     * Appends visits to the device's latest block, starting new blocks as blocks fill up.
+     */
+    private void append(String deviceId, PendingVisits pendingVisits) {
+        long[] visits;
+        synchronized (pendingVisits) {
+            visits = Arrays.copyOf(pendingVisits.visits, pendingVisits.count);
+        }
+        Arrays.sort(visits);
+        List<Block> stored = jdbcTemplate.query(SELECT_LATEST_SQL, BLOCK_MAPPER, deviceId);
+        Block latest = stored.isEmpty() ? null : stored.get(0);
+        boolean filled = false;
+        int next = 0;
+        while (next < visits.length) {
+            int appended;
+            if (latest == null || latest.visits() >= blockSize || latest.resolution() > 1) {
+                // Blocks are numbered, so a block filled up within one second is followed by one with the same start
+                int seq = latest == null ? 0 : latest.seq() + 1;
+                long start = visits[next];
+                appended = Math.min(blockSize, visits.length - next);
+                byte[] data = VisitHistoryCodec.append(new byte[0], start, visits, next, next + appended);
+                long end = visits[next + appended - 1];
+                jdbcTemplate.update(INSERT_SQL, deviceId, seq, start, end, appended, 1, data);
+                latest = new Block(seq, start, end, appended, 1, data);
+            } else {
+                appended = Math.min(blockSize - latest.visits(), visits.length - next);
+                byte[] data = VisitHistoryCodec.append(latest.data(), latest.end(), visits, next, next + appended);
+                long end = Math.max(latest.end(), visits[next + appended - 1]);
+                jdbcTemplate.update(UPDATE_SQL, end, latest.visits() + appended, 1, data, deviceId, latest.seq());
+                latest = new Block(latest.seq(), latest.start(), end, latest.visits() + appended, 1, data);
+            }
+            filled |= latest.visits() >= blockSize;
+            next += appended;
+        }
+        if (filled) {
+            downsample(deviceId);
+        }
+    }
+
+    /**
+     * Keeps only the first visit per downsample resolution in the device's blocks older than downsample-after-days.
+     */
+    private void downsample(String deviceId) {
+        long cutoff = toEpochSecond(LocalDateTime.now().minus(downsampleAfter));
+        for (Block block : jdbcTemplate.query(SELECT_DOWNSAMPLE_SQL, BLOCK_MAPPER, deviceId,
+                downsampleResolutionSeconds, cutoff)) {
+            long[] kept = new long[block.visits()];
+            int[] count = {0};
+            VisitHistoryCodec.decode(block.data(), block.start(), visitedAt -> {
+                if (count[0] == 0 || Math.floorDiv(visitedAt, downsampleResolutionSeconds)
+                        != Math.floorDiv(kept[count[0] - 1], downsampleResolutionSeconds)) {
+                    kept[count[0]++] = visitedAt;
+                }
+                return true;
+            });
+            byte[] data = VisitHistoryCodec.append(new byte[0], block.start(), kept, 0, count[0]);
+            jdbcTemplate.update(UPDATE_SQL, kept[count[0] - 1], count[0], downsampleResolutionSeconds, data,
+                    deviceId, block.seq());
+        }
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    /**
+     * Visits collected for a device since the last flush. Only mutated while holding the map bin lock,
+     * and read under its own monitor.
+     */
+    private static final class PendingVisits {
+        private long[] visits = new long[4];
+        private int count;
+
+        private synchronized void add(long epochSecond) {
+            if (count == visits.length) {
+                visits = Arrays.copyOf(visits, count * 2);
+            }
+            visits[count++] = epochSecond;
+        }
+
+        private synchronized PendingVisits addAll(PendingVisits other) {
+            synchronized (other) {
+                for (int i = 0; i < other.count; i++) {
+                    add(other.visits[i]);
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Collects the visits of a range, up to a limit, from blocks decoded oldest first.
+     */
+    private static final class RangeCollector implements VisitHistoryCodec.VisitConsumer {
+        private final long from;
+        private final long to;
+        private final int limit;
+        private long[] visits = new long[16];
+        private int count;
+        private boolean truncated;
+        private boolean downsampled;
+
+        private RangeCollector(long from, long to, int limit) {
+            this.from = from;
+            this.to = to;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean accept(long visitedAt) {
+            if (visitedAt < from) {
+                return true;
+            }
+            if (visitedAt > to) {
+                return false;
+            }
+            if (count == limit) {
+                truncated = true;
+                return false;
+            }
+            if (count == visits.length) {
+                visits = Arrays.copyOf(visits, Math.min(limit, count * 2));
+            }
+            visits[count++] = visitedAt;
+            return true;
+        }
+
+        private VisitRange result() {
+            return new VisitRange(Arrays.copyOf(visits, count), truncated, downsampled);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.outseer.webfingerprint.history;
+
+import java.util.Arrays;
+
+/**
+ * Delta and varint encoding of visit timestamps.
+ * <p>
+ * A block of visits is stored as the gaps between consecutive visits, in seconds, each written as an
+ * unsigned LEB128 varint: 7 bits per byte, the high bit set on every byte but the last. The first gap is
+ * taken from the block's start time. Gaps under two minutes take one byte, under 1.5 days two and under
+ * six months three, so a device's history costs a few bytes per visit.
+ */
+final class VisitHistoryCodec {
+
+    /** Longest varint of a non-negative long. */
+    static final int MAX_VARINT_BYTES = 10;
+
+    private VisitHistoryCodec() {
+    }
+
+    /**
+     * Appends visits to an encoded block.
+     * @param data Encoded block, empty for a new block
+     * @param previous Time of the block's last visit, or its start time if it is empty, in epoch seconds
+     * @param visits Visit times in epoch seconds, ascending
+     * @param from Index of the first visit to append
+     * @param to Index after the last visit to append
+     * @return New encoded block
+     */
+    static byte[] append(byte[] data, long previous, long[] visits, int from, int to) {
+        byte[] out = Arrays.copyOf(data, data.length + (to - from) * MAX_VARINT_BYTES);
+        int position = data.length;
+        for (int i = from; i < to; i++) {
+            // Visits recorded slightly out of order are kept at the previous time rather than going backwards
+            long delta = Math.max(0, visits[i] - previous);
+            previous += delta;
+            while ((delta & ~0x7FL) != 0) {
+                out[position++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            out[position++] = (byte) delta;
+        }
+        return Arrays.copyOf(out, position);
+    }
+
+    /**
+     * Receives decoded visit times.
+     */
+    @FunctionalInterface
+    interface VisitConsumer {
+        /**
+         * @param visitedAt Visit time in epoch seconds
+         * @return false to stop decoding
+         */
+        boolean accept(long visitedAt);
+    }
+
+    /**
+     * Decodes a block, oldest visit first.
+     * @param data Encoded block
+     * @param start Block start time in epoch seconds
+     * @param consumer Receives each visit time until it returns false
+     * @return false if the consumer stopped decoding
+     */
+    static boolean decode(byte[] data, long start, VisitConsumer consumer) {
+        long time = start;
+        int position = 0;
+        while (position < data.length) {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            time += delta;
+            if (!consumer.accept(time)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,48 @@
+package com.outseer.webfingerprint.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Lookup in the device cache, including the database load on a miss.
+ */
+@Name("com.outseer.webfingerprint.DeviceCacheGet")
+@Label("Device Cache Get")
+@Category({"WebFingerprint", "Device Cache"})
+@Description("Device cache lookup and its outcome")
+@StackTrace(false)
+public class DeviceCacheEvent extends Event {
+
+    @Label("Device Hash")
+    String deviceHash;
+
+    @Label("Result")
+    @Description("HIT, MISS, COALESCED, BLOOM_REJECTED or KNOWN_MISSING")
+    String result;
+
+    @Label("Found")
+    boolean found;
+
+    public DeviceCacheEvent(String deviceHash) {
+        this.deviceHash = deviceHash;
+        begin();
+    }
+
+    /**
+     * Ends the lookup and records it if enabled.
+     * @param result How the lookup was answered
+     * @param found Whether a device was returned
+     */
+    public void complete(String result, boolean found) {
+        end();
+        if (shouldCommit()) {
+            this.result = result;
+            this.found = found;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.outseer.webfingerprint.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Database lookup of a device after a cache miss.
+ */
+@Name("com.outseer.webfingerprint.DeviceLookup")
+@Label("Device Lookup")
+@Category({"WebFingerprint", "Device Tracking"})
+@Description("Database lookup of a device by fingerprint hash")
+@StackTrace(false)
+public class DeviceLookupEvent extends Event {
+
+    @Label("Device Hash")
+    String deviceHash;
+
+    @Label("Found")
+    boolean found;
+
+    @Label("Visit Count")
+    int visitCount;
+
+    public DeviceLookupEvent(String deviceHash) {
+        this.deviceHash = deviceHash;
+        begin();
+    }
+
+    /**
+     * Ends the lookup and records it if enabled.
+     * @param visitCount Stored visit count, or -1 if the device was not found
+     */
+    public void complete(int visitCount) {
+        end();
+        if (shouldCommit()) {
+            this.found = visitCount >= 0;
+            this.visitCount = visitCount;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.outseer.webfingerprint.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Handling of one device tracking API call, from the controller's point of view.
+ * Starts timing when created; {@link #commit()} is a no-op unless a recording has the event enabled.
+ */
+@Name("com.outseer.webfingerprint.DeviceRequest")
+@Label("Device Request")
+@Category({"WebFingerprint", "Device Tracking"})
+@Description("Handling of a device tracking API call")
+@StackTrace(false)
+public class DeviceRequestEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Device Hash")
+    String deviceHash;
+
+    @Label("Visit Count")
+    int visitCount;
+
+    @Label("Devices")
+    @Description("Fingerprints in a batch or stream")
+    long devices;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    public DeviceRequestEvent(String operation, String deviceHash) {
+        this.operation = operation;
+        this.deviceHash = deviceHash;
+        begin();
+    }
+
+    /**
+     * Marks a single-device call as successful.
+     * @param visitCount Visit count returned to the client
+     */
+    public void succeeded(int visitCount) {
+        this.visitCount = visitCount;
+        this.devices = 1;
+        this.succeeded = true;
+    }
+
+    /**
+     * Marks a batch or stream call as successful.
+     * @param devices Fingerprints handled
+     */
+    public void succeeded(long devices) {
+        this.devices = devices;
+        this.succeeded = true;
+    }
+}
@@ -0,0 +1,47 @@
+package com.outseer.webfingerprint.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recording of a visit: an upsert or increment in the database, or a write-behind buffer update.
+ */
+@Name("com.outseer.webfingerprint.DeviceSave")
+@Label("Device Save")
+@Category({"WebFingerprint", "Device Tracking"})
+@Description("Recording of a device visit")
+@StackTrace(false)
+public class DeviceSaveEvent extends Event {
+
+    @Label("Operation")
+    @Description("UPSERT, INCREMENT or BUFFERED")
+    String operation;
+
+    @Label("Device Hash")
+    String deviceHash;
+
+    @Label("Visit Count")
+    int visitCount;
+
+    public DeviceSaveEvent(String operation, String deviceHash) {
+        this.operation = operation;
+        this.deviceHash = deviceHash;
+        begin();
+    }
+
+    /**
+     * Ends the save and records it if enabled.
+     * @param visitCount Visit count after the visit
+     */
+    public void complete(int visitCount) {
+        end();
+        if (shouldCommit()) {
+            this.visitCount = visitCount;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.outseer.webfingerprint.jfr;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.text.ParseException;
+import java.util.Map;
+
+/**
+ * Actuator endpoint controlling the flight recording:
+ * GET /actuator/jfr shows its state, POST /actuator/jfr/start (optional "settings": "default" or
+ * "profile"), /actuator/jfr/stop and /actuator/jfr/dump start, stop and dump it.
+ */
+@Component
+@Endpoint(id = "jfr")
+public class FlightRecorderEndpoint {
+
+    private final FlightRecordings flightRecordings;
+
+    public FlightRecorderEndpoint(FlightRecordings flightRecordings) {
+        this.flightRecordings = flightRecordings;
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return flightRecordings.status();
+    }
+
+    @WriteOperation
+    public Map<String, Object> control(@Selector String action, @Nullable String settings) throws IOException {
+        try {
+            return switch (action) {
+                case "start" -> flightRecordings.start(settings);
+                case "stop" -> flightRecordings.stop();
+                case "dump" -> flightRecordings.dump();
+                default -> throw new InvalidEndpointRequestException("Unknown action: " + action,
+                        "Action must be start, stop or dump");
+            };
+        } catch (NoSuchFileException e) {
+            throw new InvalidEndpointRequestException("Unknown settings: " + settings,
+                    "Settings must be default, profile or a .jfc file");
+        } catch (ParseException | IllegalArgumentException | IllegalStateException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+}
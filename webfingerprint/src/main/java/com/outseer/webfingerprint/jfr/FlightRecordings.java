@@ -0,0 +1,156 @@
+package com.outseer.webfingerprint.jfr;
+
+import com.outseer.webfingerprint.service.LoggingService;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Controls the application's Java Flight Recorder recording, which captures the device tracking
+ * events in this package together with the JDK's GC, lock, I/O and CPU events.
+ * Only one recording is managed at a time; starting a new one closes the previous one.
+ * Recordings are kept on disk, bounded by max age and size, and dumped into the dump directory,
+ * where only the newest max-dumps dump files are kept.
+ */
+@Component
+public class FlightRecordings {
+
+    static final String RECORDING_NAME = "webfingerprint";
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final LoggingService loggingService;
+    private final String defaultSettings;
+    private final Duration maxAge;
+    private final long maxSizeBytes;
+    private final int maxDumps;
+    private final Path dumpDirectory;
+    private Recording recording;
+    private String settings;
+    private Path lastDump;
+
+    public FlightRecordings(LoggingService loggingService,
+                            @Value("${telemetry.jfr.settings:default}") String defaultSettings,
+                            @Value("${telemetry.jfr.max-age-minutes:30}") long maxAgeMinutes,
+                            @Value("${telemetry.jfr.max-size-mb:40}") long maxSizeMb,
+                            @Value("${telemetry.jfr.max-dumps:2}") int maxDumps,
+                            @Value("${telemetry.jfr.dump-directory:./logs/jfr}") String dumpDirectory) {
+        this.loggingService = loggingService;
+        this.defaultSettings = defaultSettings;
+        this.maxAge = Duration.ofMinutes(maxAgeMinutes);
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+        this.maxDumps = Math.max(1, maxDumps);
+        this.dumpDirectory = Path.of(dumpDirectory);
+    }
+
+    /**
+     * Starts a new recording, closing any previous one.
+     * @param settingsName JFR configuration, "default" (low overhead) or "profile"; null for the configured default
+     * @return Status of the new recording
+     */
+    public synchronized Map<String, Object> start(String settingsName) throws IOException, ParseException {
+        String name = settingsName == null || settingsName.isBlank() ? defaultSettings : settingsName;
+        Recording started = new Recording(Configuration.getConfiguration(name));
+        started.setName(RECORDING_NAME);
+        started.setToDisk(true);
+        started.setMaxAge(maxAge);
+        started.setMaxSize(maxSizeBytes);
+        if (recording != null) {
+            recording.close();
+        }
+        started.start();
+        recording = started;
+        settings = name;
+        lastDump = null;
+        loggingService.info("Flight recording started with settings '{}'", name);
+        return status();
+    }
+
+    /**
+     * Stops the recording. Its data stays available for {@link #dump()} until the next start.
+     * @return Status of the stopped recording
+     */
+    public synchronized Map<String, Object> stop() {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            loggingService.info("Flight recording stopped");
+        }
+        return status();
+    }
+
+    /**
+     * Writes the recorded data to a new file in the dump directory, leaving the recording running,
+     * and deletes the oldest dumps beyond max-dumps.
+     * @return Status including the path of the dump
+     */
+    public synchronized Map<String, Object> dump() throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("No flight recording has been started");
+        }
+        Files.createDirectories(dumpDirectory);
+        Path file = dumpDirectory.resolve(RECORDING_NAME + "-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".jfr");
+        recording.dump(file);
+        lastDump = file.toAbsolutePath().normalize();
+        loggingService.info("Flight recording dumped to {}", lastDump);
+        deleteOldDumps();
+        return status();
+    }
+
+    private void deleteOldDumps() throws IOException {
+        List<Path> dumps;
+        try (Stream<Path> files = Files.list(dumpDirectory)) {
+            // Timestamped names sort oldest first
+            dumps = files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(RECORDING_NAME + "-") && name.endsWith(".jfr");
+            }).sorted().toList();
+        }
+        for (Path dump : dumps.subList(0, Math.max(0, dumps.size() - maxDumps))) {
+            Files.deleteIfExists(dump);
+            loggingService.info("Deleted old flight recording dump {}", dump);
+        }
+    }
+
+    /**
+     * State of the managed recording.
+     */
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (recording == null) {
+            status.put("state", "NONE");
+            return status;
+        }
+        status.put("state", recording.getState().name());
+        status.put("name", recording.getName());
+        status.put("settings", settings);
+        status.put("startTime", recording.getStartTime());
+        status.put("stopTime", recording.getStopTime());
+        status.put("sizeBytes", recording.getSize());
+        status.put("maxAge", recording.getMaxAge());
+        status.put("maxSizeBytes", recording.getMaxSize());
+        status.put("lastDump", lastDump == null ? null : lastDump.toString());
+        return status;
+    }
+
+    @PreDestroy
+    synchronized void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
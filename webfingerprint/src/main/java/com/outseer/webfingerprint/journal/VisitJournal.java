@@ -0,0 +1,448 @@
+package com.outseer.webfingerprint.journal;
+
+import com.outseer.webfingerprint.service.LoggingService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of visits to known devices.
+ * <p>
+ * A visit costs one sequential append to the active memory-mapped segment instead of a transactional
+ * UPDATE. Segments are rolled when full or after roll-interval-ms and then folded into the devices table
+ * by {@link VisitJournalCompactor}; segments found on disk at startup are replayed the same way.
+ * The fsync policy decides when appended records reach the storage device: after every append, every
+ * fsync-interval-ms, or only when a segment is rolled.
+ * <p>
+ * Request threads append without a journal-wide lock; see {@link VisitJournalSegment} for how they share a
+ * segment. The maintenance thread keeps the next segment created and mapped ahead of time, so rolling a full
+ * segment on a request thread only swaps it in, and it closes rolled segments, writing them through, off the
+ * request path. In ALWAYS mode appenders force as a group, each waiting for at most one force of the others.
+ * <p>
+ * Like the write-behind buffer, the journal keeps the visit count of each device with uncompacted
+ * visits, so responses count them before they reach the database.
+ */
+@Component
+public class VisitJournal {
+
+    public enum FsyncPolicy { ALWAYS, INTERVAL, NEVER }
+
+    private static final int MAX_KEY_BYTES = Short.MAX_VALUE;
+    private static final int MAX_IP_BYTES = Byte.MAX_VALUE;
+
+    private final LoggingService loggingService;
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final long rollIntervalMs;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMs;
+    private final boolean virtualThreads;
+
+    /** Guards swapping the active segment and the standby. */
+    private final ReentrantLock rollLock = new ReentrantLock();
+    private final Condition standbyPrepared = rollLock.newCondition();
+    /** Serialises closing rolled segments, so a roll returns only once its segment is sealed. */
+    private final ReentrantLock closeLock = new ReentrantLock();
+    private final NavigableMap<Long, Path> sealed = new ConcurrentSkipListMap<>();
+    private final Queue<VisitJournalSegment> rolled = new ConcurrentLinkedQueue<>();
+    private final Map<String, JournaledVisits> journaled = new ConcurrentHashMap<>();
+    private volatile VisitJournalSegment active;
+    /** Next segment, created ahead of time by the maintenance thread. Guarded by rollLock. */
+    private VisitJournalSegment standby;
+    /** Whether the maintenance thread is creating the standby. Guarded by rollLock. */
+    private boolean preparing;
+    /** Guarded by rollLock. */
+    private boolean stopped;
+    private ScheduledExecutorService scheduler;
+
+    public VisitJournal(LoggingService loggingService,
+                        @Value("${device.tracking.journal.enabled:false}") boolean enabled,
+                        @Value("${device.tracking.journal.directory:./data/journal}") String directory,
+                        @Value("${device.tracking.journal.segment-size-mb:64}") int segmentSizeMb,
+                        @Value("${device.tracking.journal.roll-interval-ms:2000}") long rollIntervalMs,
+                        @Value("${device.tracking.journal.fsync:interval}") String fsyncPolicy,
+                        @Value("${device.tracking.journal.fsync-interval-ms:1000}") long fsyncIntervalMs,
+                        @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.loggingService = loggingService;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentSize = Math.multiplyExact(segmentSizeMb, 1024 * 1024);
+        this.rollIntervalMs = rollIntervalMs;
+        this.fsyncPolicy = FsyncPolicy.valueOf(fsyncPolicy.toUpperCase(Locale.ROOT));
+        this.fsyncIntervalMs = fsyncIntervalMs;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Picks up segments left by the previous run, which the compactor replays, and opens a new active segment.
+     */
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> {
+                long sequence = VisitJournalSegment.sequenceOf(path);
+                if (sequence >= 0) {
+                    sealed.put(sequence, path);
+                }
+            });
+        }
+        active = VisitJournalSegment.create(directory, sealed.isEmpty() ? 0 : sealed.lastKey() + 1, segmentSize);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(virtualThreads
+                ? Thread.ofVirtual().name("visit-journal").factory()
+                : Thread.ofPlatform().name("visit-journal").daemon().factory());
+        long tickMs = fsyncPolicy == FsyncPolicy.INTERVAL ? Math.min(fsyncIntervalMs, rollIntervalMs) : rollIntervalMs;
+        scheduler.scheduleWithFixedDelay(this::maintain, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        loggingService.info("Visit journal enabled in {} ({} segments to replay, segment size: {} bytes, fsync: {})",
+                directory.toAbsolutePath(), sealed.size(), segmentSize, fsyncPolicy);
+    }
+
+    /**
+     * Writes the active segment through and closes it, and deletes the standby. The compactor has rolled and
+     * compacted the active segment by then.
+     */
+    @PreDestroy
+    void stop() throws IOException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+                loggingService.warn("Visit journal maintenance did not finish within 10 seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rollLock.lock();
+        try {
+            stopped = true;
+            while (preparing) {
+                standbyPrepared.awaitUninterruptibly();
+            }
+            discardStandby();
+            active.close();
+            if (active.isEmpty()) {
+                Files.deleteIfExists(active.path());
+            }
+        } finally {
+            rollLock.unlock();
+        }
+        closeRolled();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Appends a visit to an existing device.
+     * @param deviceId Device fingerprint hash
+     * @param persistedVisitCount Visit count as currently stored in the database
+     * @param seenAt Time of the visit
+     * @param ip Client IP address, or null if unknown
+     * @return Visit count including all journaled visits for this device
+     */
+    public int recordVisit(String deviceId, int persistedVisitCount, LocalDateTime seenAt, String ip) {
+        return recordVisits(deviceId, persistedVisitCount, 1, seenAt, ip);
+    }
+
+    /**
+     * Appends several visits to an existing device at once, one record each.
+     * @param deviceId Device fingerprint hash
+     * @param persistedVisitCount Visit count as currently stored in the database
+     * @param visits Number of visits to add
+     * @param seenAt Time of the visits
+     * @param ip Client IP address, or null if unknown
+     * @return Visit count including all journaled visits for this device
+     */
+    public int recordVisits(String deviceId, int persistedVisitCount, int visits, LocalDateTime seenAt, String ip) {
+        String address = ip == null ? "" : ip;
+        int keyLength = VisitJournalSegment.utf8Length(deviceId);
+        if (keyLength > MAX_KEY_BYTES || address.length() > MAX_IP_BYTES) {
+            throw new IllegalArgumentException("Device id or IP address too long for the visit journal");
+        }
+        long visitedAt = seenAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long now = System.currentTimeMillis();
+
+        // Counted before appending, so a segment holding the visits cannot be compacted before the device
+        // is tracked here
+        int visitCount = journaled.compute(deviceId, (id, existing) -> {
+            JournaledVisits entry = existing != null ? existing : new JournaledVisits(persistedVisitCount);
+            entry.visitCount += visits;
+            entry.lastTouchedAt = now;
+            return entry;
+        }).visitCount;
+        int remaining = visits;
+        try {
+            while (remaining > 0) {
+                VisitJournalSegment segment = active;
+                int appended = segment.append(visitedAt, deviceId, keyLength, address, remaining);
+                if (appended == 0) {
+                    rollFull(segment);
+                    continue;
+                }
+                remaining -= appended;
+                if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                    segment.force();
+                }
+            }
+        } catch (RuntimeException e) {
+            int unrecorded = remaining;
+            journaled.computeIfPresent(deviceId, (id, entry) -> {
+                entry.visitCount -= unrecorded;
+                return entry;
+            });
+            throw e;
+        }
+        return visitCount;
+    }
+
+    /**
+     * Seals the active segment, if it holds any visits, so the next compaction picks it up.
+     */
+    public void roll() {
+        rollLock.lock();
+        try {
+            if (!active.isEmpty()) {
+                activate(nextSegment());
+            }
+        } finally {
+            rollLock.unlock();
+        }
+        closeRolled();
+    }
+
+    /**
+     * Replaces a segment an appender found full, unless another appender already has. The rolled segment is
+     * closed by the maintenance thread.
+     */
+    private void rollFull(VisitJournalSegment full) {
+        rollLock.lock();
+        try {
+            if (active == full) {
+                activate(nextSegment());
+            }
+        } finally {
+            rollLock.unlock();
+        }
+    }
+
+    /**
+     * Takes the standby, waiting if the maintenance thread is still creating it, or creates the next segment
+     * if there is none. Called holding rollLock.
+     */
+    private VisitJournalSegment nextSegment() {
+        if (stopped) {
+            throw new IllegalStateException("Visit journal is stopped");
+        }
+        while (preparing) {
+            standbyPrepared.awaitUninterruptibly();
+        }
+        VisitJournalSegment next = standby;
+        standby = null;
+        if (next != null) {
+            return next;
+        }
+        try {
+            return VisitJournalSegment.create(directory, active.sequence() + 1, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll visit journal segment", e);
+        }
+    }
+
+    /**
+     * Makes the next segment the active one and queues the previous one to be closed. Appenders still
+     * reserving in the previous segment find it sealed and move on. Called holding rollLock.
+     */
+    private void activate(VisitJournalSegment next) {
+        VisitJournalSegment previous = active;
+        next.activate();
+        active = next;
+        previous.seal();
+        rolled.add(previous);
+    }
+
+    /**
+     * Closes rolled segments, waiting for their last appends, and hands them to the compactor.
+     */
+    private void closeRolled() {
+        closeLock.lock();
+        try {
+            VisitJournalSegment segment;
+            while ((segment = rolled.poll()) != null) {
+                try {
+                    segment.close();
+                } finally {
+                    sealed.put(segment.sequence(), segment.path());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close visit journal segment", e);
+        } finally {
+            closeLock.unlock();
+        }
+    }
+
+    /**
+     * Creates and maps the next segment ahead of the roll that needs it. The file is created outside rollLock;
+     * a roll meanwhile waits for it rather than creating a segment with the same number.
+     */
+    private void prepareStandby() throws IOException {
+        long sequence;
+        rollLock.lock();
+        try {
+            if (stopped || preparing || standby != null) {
+                return;
+            }
+            preparing = true;
+            sequence = active.sequence() + 1;
+        } finally {
+            rollLock.unlock();
+        }
+        VisitJournalSegment segment = null;
+        try {
+            segment = VisitJournalSegment.create(directory, sequence, segmentSize);
+        } finally {
+            rollLock.lock();
+            try {
+                standby = segment;
+                preparing = false;
+                standbyPrepared.signalAll();
+            } finally {
+                rollLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Closes and deletes the standby, which holds no visits. Called holding rollLock.
+     */
+    private void discardStandby() throws IOException {
+        if (standby != null) {
+            standby.close();
+            Files.deleteIfExists(standby.path());
+            standby = null;
+        }
+    }
+
+    /**
+     * Moves the active segment past the last compacted one. Segment numbers then keep increasing across runs
+     * even when a clean shutdown compacted and deleted every segment file, so new segments are never mistaken
+     * for already compacted ones. Called by the compactor at startup, before any visit is appended.
+     * @param compactedSequence Last segment recorded as compacted
+     */
+    void resumeAfter(long compactedSequence) throws IOException {
+        rollLock.lock();
+        try {
+            if (active.sequence() > compactedSequence) {
+                return;
+            }
+            if (!active.isEmpty()) {
+                throw new IllegalStateException("Visits were journaled before the compaction checkpoint was loaded");
+            }
+            while (preparing) {
+                standbyPrepared.awaitUninterruptibly();
+            }
+            discardStandby();
+            VisitJournalSegment next = VisitJournalSegment.create(directory, compactedSequence + 1, segmentSize);
+            active.close();
+            Files.deleteIfExists(active.path());
+            active = next;
+        } finally {
+            rollLock.unlock();
+        }
+    }
+
+    /**
+     * Sealed segments waiting for compaction, in append order.
+     */
+    List<Path> sealedSegments() {
+        return new ArrayList<>(sealed.values());
+    }
+
+    /**
+     * Deletes a segment once its visits are in the database.
+     * @param path Sealed segment file
+     * @param visitCounts Visits compacted per device
+     */
+    void compacted(Path path, Map<String, Integer> visitCounts) throws IOException {
+        visitCounts.forEach((deviceId, visits) -> journaled.computeIfPresent(deviceId, (id, entry) -> {
+            entry.compactedCount += visits;
+            return entry;
+        }));
+        long now = System.currentTimeMillis();
+        journaled.keySet().forEach(deviceId -> journaled.computeIfPresent(deviceId, (id, entry) ->
+                entry.visitCount == entry.compactedCount && now - entry.lastTouchedAt >= rollIntervalMs
+                        ? null : entry));
+        sealed.remove(VisitJournalSegment.sequenceOf(path));
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Number of devices with visits not yet compacted.
+     */
+    public int pendingDevices() {
+        return journaled.size();
+    }
+
+    void maintain() {
+        try {
+            closeRolled();
+            // Appends carry on while the segment is written through; a force after a roll closed it is skipped
+            VisitJournalSegment segment = active;
+            if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+                segment.force();
+            }
+            if (System.currentTimeMillis() - segment.activatedAt() >= rollIntervalMs) {
+                roll();
+            }
+            prepareStandby();
+        } catch (Exception e) {
+            loggingService.error("Visit journal maintenance failed", e);
+        }
+    }
+
+    /**
+     * Visit counts of a device with journaled visits. Only mutated while holding the map bin lock.
+     */
+    private static final class JournaledVisits {
+        private int visitCount;
+        private int compactedCount;
+        private long lastTouchedAt;
+
+        private JournaledVisits(int baseCount) {
+            this.visitCount = baseCount;
+            this.compactedCount = baseCount;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.outseer.webfingerprint.journal;
+
+import com.outseer.webfingerprint.service.LoggingService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folds sealed visit journal segments into devices.visit_count and last_seen.
+ * <p>
+ * The visits of a segment are added up per device and applied in batched UPDATEs in one transaction,
+ * which also records the segment as compacted in visit_journal_checkpoint. A segment that was applied
+ * but not yet deleted when the application stopped is therefore skipped on replay instead of being
+ * counted twice. New segments are numbered after the checkpoint, so they are never taken for compacted
+ * ones after a clean shutdown deleted every segment file. Replay of segments left by the previous run
+ * happens at startup, before requests are served; the active segment is rolled and compacted on shutdown.
+ */
+@Component
+public class VisitJournalCompactor {
+
+    static final String JOURNAL_NAME = "visits";
+
+    static final String CREATE_CHECKPOINT_SQL = "CREATE TABLE IF NOT EXISTS visit_journal_checkpoint ("
+            + "journal VARCHAR(64) PRIMARY KEY, compacted_segment BIGINT NOT NULL)";
+
+    static final String SELECT_CHECKPOINT_SQL =
+            "SELECT compacted_segment FROM visit_journal_checkpoint WHERE journal = ?";
+
+    static final String INSERT_CHECKPOINT_SQL =
+            "INSERT INTO visit_journal_checkpoint (journal, compacted_segment) VALUES (?, -1)";
+
+    static final String UPDATE_CHECKPOINT_SQL =
+            "UPDATE visit_journal_checkpoint SET compacted_segment = ? WHERE journal = ?";
+
+    static final String COMPACT_SQL = "UPDATE devices SET visit_count = visit_count + ?, "
+            + "last_seen = CASE WHEN last_seen < ? THEN ? ELSE last_seen END WHERE device_id = ?";
+
+    private final VisitJournal visitJournal;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LoggingService loggingService;
+    private final long compactionIntervalMs;
+    private final int batchSize;
+    private final boolean virtualThreads;
+
+    private long compactedSegment = -1;
+    private ScheduledExecutorService scheduler;
+
+    public VisitJournalCompactor(VisitJournal visitJournal,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 LoggingService loggingService,
+                                 @Value("${device.tracking.journal.compaction-interval-ms:1000}") long compactionIntervalMs,
+                                 @Value("${device.tracking.journal.batch-size:500}") int batchSize,
+                                 @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.visitJournal = visitJournal;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.loggingService = loggingService;
+        this.compactionIntervalMs = compactionIntervalMs;
+        this.batchSize = batchSize;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Replays the segments left by the previous run and starts compacting in the background.
+     */
+    @PostConstruct
+    void start() throws IOException {
+        if (!visitJournal.isEnabled()) {
+            return;
+        }
+        jdbcTemplate.execute(CREATE_CHECKPOINT_SQL);
+        List<Long> checkpoint = jdbcTemplate.queryForList(SELECT_CHECKPOINT_SQL, Long.class, JOURNAL_NAME);
+        if (checkpoint.isEmpty()) {
+            jdbcTemplate.update(INSERT_CHECKPOINT_SQL, JOURNAL_NAME);
+        } else {
+            compactedSegment = checkpoint.get(0);
+        }
+        visitJournal.resumeAfter(compactedSegment);
+        int replayed = compact();
+        if (replayed > 0) {
+            loggingService.info("Replayed {} visit journal segments", replayed);
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(virtualThreads
+                ? Thread.ofVirtual().name("visit-journal-compactor").factory()
+                : Thread.ofPlatform().name("visit-journal-compactor").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::compactDue, compactionIntervalMs, compactionIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Compacts every journaled visit on shutdown so the database is up to date.
+     */
+    @PreDestroy
+    void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(compactionIntervalMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        visitJournal.roll();
+        compact();
+    }
+
+    void compactDue() {
+        try {
+            compact();
+        } catch (Exception e) {
+            loggingService.error("Failed to compact the visit journal", e);
+        }
+    }
+
+    /**
+     * Applies every sealed segment to the devices table, oldest first.
+     * @return Number of segments compacted
+     */
+    synchronized int compact() {
+        int segments = 0;
+        for (Path segment : visitJournal.sealedSegments()) {
+            try {
+                compact(segment);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to compact visit journal segment " + segment, e);
+            }
+            segments++;
+        }
+        return segments;
+    }
+
+    private void compact(Path segment) throws IOException {
+        long sequence = VisitJournalSegment.sequenceOf(segment);
+        Map<String, PendingVisits> visits = new LinkedHashMap<>();
+        VisitJournalSegment.read(segment, visit -> visits.computeIfAbsent(visit.deviceId(), id -> new PendingVisits())
+                .add(visit.visitedAt()));
+
+        Map<String, Integer> visitCounts = new HashMap<>();
+        if (sequence > compactedSegment) {
+            List<Object[]> batch = new ArrayList<>(visits.size());
+            visits.forEach((deviceId, pending) -> {
+                Timestamp lastSeen = Timestamp.valueOf(LocalDateTime.ofInstant(
+                        Instant.ofEpochMilli(pending.lastVisitedAt), ZoneId.systemDefault()));
+                batch.add(new Object[]{pending.count, lastSeen, lastSeen, deviceId});
+                visitCounts.put(deviceId, pending.count);
+            });
+
+            long dbStartTime = System.currentTimeMillis();
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(COMPACT_SQL, batch, batchSize, (ps, args) -> {
+                    for (int i = 0; i < args.length; i++) {
+                        ps.setObject(i + 1, args[i]);
+                    }
+                });
+                jdbcTemplate.update(UPDATE_CHECKPOINT_SQL, sequence, JOURNAL_NAME);
+            });
+            compactedSegment = sequence;
+            loggingService.databaseOperation("BATCH_UPDATE", "Device", System.currentTimeMillis() - dbStartTime);
+        }
+        // A segment at or before the checkpoint was applied before the previous run stopped; only the delete is missing
+        visitJournal.compacted(segment, visitCounts);
+    }
+
+    /**
+     * Visits to one device within a segment.
+     */
+    private static final class PendingVisits {
+        private int count;
+        private long lastVisitedAt;
+
+        private void add(long visitedAt) {
+            count++;
+            lastVisitedAt = Math.max(lastVisitedAt, visitedAt);
+        }
+    }
+}
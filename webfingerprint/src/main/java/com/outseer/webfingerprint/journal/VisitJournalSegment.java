@@ -0,0 +1,425 @@
+package com.outseer.webfingerprint.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * One memory-mapped, append-only file of the visit journal.
+ * <p>
+ * The file is created at its full size and filled front to back with records of the form
+ * {@code length:int | visitedAt:long | keyLength:short | key | ipLength:byte | ip | crc32:int}, where length
+ * covers visitedAt to ip and the CRC is taken over the same bytes. The zero-filled rest of the file ends the
+ * record stream; a record cut short or corrupted by a crash fails its CRC and ends it as well.
+ * <p>
+ * Appenders do not lock: each reserves its bytes by moving the reserved offset with a CAS, encodes its records
+ * straight into the mapping and then publishes them in reservation order, so the written offset always ends a
+ * complete prefix of the file. Forcing writes that prefix through and is a group commit: one appender forces
+ * the records of everyone who published before it, and the others find them durable and return. Sealing stops
+ * further reservations; closing waits for the appends already reserved, writes the segment through and
+ * closes its arena, which unmaps the file at once instead of when a buffer is garbage collected.
+ * <p>
+ * Numbers are stored big-endian.
+ */
+final class VisitJournalSegment implements Closeable {
+
+    static final String PREFIX = "visits-";
+    static final String SUFFIX = ".log";
+
+    /** Length and CRC fields around each record's payload. */
+    static final int FRAMING_BYTES = Integer.BYTES * 2;
+
+    /** Reserved offset of a sealed segment, which no record fits behind. */
+    private static final long SEALED = Long.MAX_VALUE;
+
+    /** Spins before an appender waiting to publish yields its carrier. */
+    private static final int PUBLISH_SPINS = 100;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /** CRC-32 of each byte value, for the polynomial of {@link java.util.zip.CRC32}. */
+    private static final int[] CRC_TABLE = crcTable();
+
+    /**
+     * A journaled visit.
+     * @param deviceId Device fingerprint hash
+     * @param visitedAt Time of the visit in epoch milliseconds
+     * @param ip Client IP address, empty if unknown
+     */
+    record Visit(String deviceId, long visitedAt, String ip) {
+    }
+
+    private final long sequence;
+    private final Path path;
+    private final FileChannel channel;
+    private final Arena arena;
+    private final MemorySegment memory;
+    /** End of the bytes handed out to appenders, or {@link #SEALED}. */
+    private final AtomicLong reserved = new AtomicLong();
+    /** End of the records published so far; every byte before it is a complete record. */
+    private final AtomicLong written = new AtomicLong();
+    /** Serialises forcing and closing. */
+    private final ReentrantLock lock = new ReentrantLock();
+    /** End of the records written through to the storage device. */
+    private volatile long durable;
+    /** Reserved offset at the time the segment was sealed. */
+    private volatile long end;
+    private volatile long activatedAt;
+    private volatile boolean closed;
+
+    private VisitJournalSegment(long sequence, Path path, FileChannel channel, Arena arena, MemorySegment memory) {
+        this.sequence = sequence;
+        this.path = path;
+        this.channel = channel;
+        this.arena = arena;
+        this.memory = memory;
+        this.activatedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Creates and maps a new segment file.
+     * @param directory Journal directory
+     * @param sequence Segment number, increasing in append order
+     * @param size File size in bytes
+     */
+    static VisitJournalSegment create(Path directory, long sequence, int size) throws IOException {
+        Path path = pathOf(directory, sequence);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        Arena arena = Arena.ofShared();
+        try {
+            MemorySegment memory = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+            return new VisitJournalSegment(sequence, path, channel, arena, memory);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            channel.close();
+            throw e;
+        }
+    }
+
+    static Path pathOf(Path directory, long sequence) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, sequence, SUFFIX));
+    }
+
+    /**
+     * Parses the sequence number from a segment file name.
+     * @return Sequence number, or -1 if the file is not a segment
+     */
+    static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Number of bytes a record takes in the file.
+     * @param keyLength UTF-8 length of the device fingerprint hash, see {@link #utf8Length}
+     * @param ipLength Length of the ASCII client IP address
+     */
+    static int recordSize(int keyLength, int ipLength) {
+        return FRAMING_BYTES + Long.BYTES + Short.BYTES + keyLength + Byte.BYTES + ipLength;
+    }
+
+    /**
+     * Number of bytes the string takes in UTF-8, counting an unpaired surrogate as the one byte of the '?' it is
+     * replaced with, as {@link String#getBytes} does.
+     */
+    static int utf8Length(String text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (isSurrogatePair(text, i)) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Time the segment became the active one, or was created if it never did.
+     */
+    long activatedAt() {
+        return activatedAt;
+    }
+
+    /**
+     * Marks the segment as the one visits are appended to from now on. Segments are created ahead of time, so
+     * their age is counted from here.
+     */
+    void activate() {
+        activatedAt = System.currentTimeMillis();
+    }
+
+    boolean isEmpty() {
+        long offset = reserved.get();
+        return (offset == SEALED ? end : offset) == 0;
+    }
+
+    /**
+     * Appends up to count identical records, as many as fit, without blocking other appenders.
+     * @param visitedAt Time of the visit in epoch milliseconds
+     * @param deviceId Device fingerprint hash, at most 32767 bytes in UTF-8
+     * @param keyLength UTF-8 length of the device fingerprint hash, see {@link #utf8Length}
+     * @param ip Client IP address, at most 127 characters; non-ASCII characters are stored as '?'
+     * @param count Number of records wanted
+     * @return Number of records appended, 0 once the segment is full or sealed
+     */
+    int append(long visitedAt, String deviceId, int keyLength, String ip, int count) {
+        int size = recordSize(keyLength, ip.length());
+        long start;
+        int records;
+        do {
+            start = reserved.get();
+            if (start == SEALED) {
+                return 0;
+            }
+            records = (int) Math.min(count, (memory.byteSize() - start) / size);
+            if (records == 0) {
+                return 0;
+            }
+        } while (!reserved.compareAndSet(start, start + (long) records * size));
+
+        try {
+            int length = size - FRAMING_BYTES;
+            long offset = start;
+            memory.set(INT, offset, length);
+            offset += Integer.BYTES;
+            memory.set(LONG, offset, visitedAt);
+            offset += Long.BYTES;
+            memory.set(SHORT, offset, (short) keyLength);
+            offset += Short.BYTES;
+            offset = putUtf8(offset, deviceId);
+            memory.set(ValueLayout.JAVA_BYTE, offset, (byte) ip.length());
+            offset += Byte.BYTES;
+            offset = putAscii(offset, ip);
+            memory.set(INT, offset, crc32(memory, start + Integer.BYTES, length));
+            for (int i = 1; i < records; i++) {
+                MemorySegment.copy(memory, start, memory, start + (long) i * size, size);
+            }
+        } finally {
+            publish(start, start + (long) records * size);
+        }
+        return records;
+    }
+
+    /**
+     * Moves the written offset past a reservation once every earlier reservation is published. Appends are a
+     * few dozen bytes of copying, so the wait is short.
+     */
+    private void publish(long start, long end) {
+        awaitWritten(start);
+        written.set(end);
+    }
+
+    private void awaitWritten(long offset) {
+        for (int spins = 0; written.get() != offset; spins++) {
+            if (spins < PUBLISH_SPINS) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    private long putUtf8(long offset, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                offset = putByte(offset, c);
+            } else if (c < 0x800) {
+                offset = putByte(offset, 0xC0 | c >> 6);
+                offset = putByte(offset, 0x80 | c & 0x3F);
+            } else if (isSurrogatePair(text, i)) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                offset = putByte(offset, 0xF0 | codePoint >> 18);
+                offset = putByte(offset, 0x80 | codePoint >> 12 & 0x3F);
+                offset = putByte(offset, 0x80 | codePoint >> 6 & 0x3F);
+                offset = putByte(offset, 0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                offset = putByte(offset, '?');
+            } else {
+                offset = putByte(offset, 0xE0 | c >> 12);
+                offset = putByte(offset, 0x80 | c >> 6 & 0x3F);
+                offset = putByte(offset, 0x80 | c & 0x3F);
+            }
+        }
+        return offset;
+    }
+
+    private long putAscii(long offset, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            offset = putByte(offset, c < 0x80 ? c : '?');
+        }
+        return offset;
+    }
+
+    private long putByte(long offset, int value) {
+        memory.set(ValueLayout.JAVA_BYTE, offset, (byte) value);
+        return offset + 1;
+    }
+
+    private static boolean isSurrogatePair(String text, int index) {
+        return Character.isHighSurrogate(text.charAt(index)) && index + 1 < text.length()
+                && Character.isLowSurrogate(text.charAt(index + 1));
+    }
+
+    /**
+     * Writes the published records through to the storage device, unless a concurrent force already has.
+     * A no-op once the segment is closed, which writes everything through.
+     */
+    void force() {
+        if (durable >= written.get()) {
+            return;
+        }
+        lock.lock();
+        try {
+            long target = written.get();
+            if (!closed && durable < target) {
+                memory.asSlice(durable, target - durable).force();
+                durable = target;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops reservations; later appends return 0. Appends already reserved still complete.
+     */
+    void seal() {
+        long offset;
+        do {
+            offset = reserved.get();
+            if (offset == SEALED) {
+                return;
+            }
+            end = offset;
+        } while (!reserved.compareAndSet(offset, SEALED));
+    }
+
+    /**
+     * Seals the segment, waits for the appends already reserved, writes it through, closes its file and unmaps it
+     * by closing its arena.
+     */
+    @Override
+    public void close() throws IOException {
+        seal();
+        awaitWritten(end);
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            memory.force();
+            durable = end;
+            closed = true;
+            try {
+                channel.close();
+            } finally {
+                arena.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads every intact record of a segment file in append order.
+     * @param path Segment file
+     * @param consumer Receives each visit
+     * @return Number of records read
+     */
+    static int read(Path path, Consumer<Visit> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             Arena arena = Arena.ofConfined()) {
+            MemorySegment memory = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            int count = 0;
+            long offset = 0;
+            while (memory.byteSize() - offset >= FRAMING_BYTES) {
+                int length = memory.get(INT, offset);
+                int minimum = Long.BYTES + Short.BYTES + Byte.BYTES;
+                long start = offset + Integer.BYTES;
+                if (length < minimum || length > memory.byteSize() - start - Integer.BYTES) {
+                    break;
+                }
+                if (memory.get(INT, start + length) != crc32(memory, start, length)) {
+                    break;
+                }
+                long visitedAt = memory.get(LONG, start);
+                long field = start + Long.BYTES;
+                byte[] key = new byte[Short.toUnsignedInt(memory.get(SHORT, field))];
+                field += Short.BYTES;
+                MemorySegment.copy(memory, ValueLayout.JAVA_BYTE, field, key, 0, key.length);
+                field += key.length;
+                byte[] ip = new byte[Byte.toUnsignedInt(memory.get(ValueLayout.JAVA_BYTE, field))];
+                field += Byte.BYTES;
+                MemorySegment.copy(memory, ValueLayout.JAVA_BYTE, field, ip, 0, ip.length);
+                offset = start + length + Integer.BYTES;
+                consumer.accept(new Visit(new String(key, StandardCharsets.UTF_8), visitedAt,
+                        new String(ip, StandardCharsets.US_ASCII)));
+                count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * CRC-32 of a range of the mapping, equal to {@link java.util.zip.CRC32}'s. Computed here because the JDK's
+     * checksums do not accept buffers of shared arenas, and records are too short for that to matter.
+     */
+    static int crc32(MemorySegment memory, long offset, long length) {
+        int crc = ~0;
+        for (long i = offset, end = offset + length; i < end; i++) {
+            crc = CRC_TABLE[(crc ^ memory.get(ValueLayout.JAVA_BYTE, i)) & 0xFF] ^ (crc >>> 8);
+        }
+        return ~crc;
+    }
+
+    private static int[] crcTable() {
+        int[] table = new int[256];
+        for (int n = 0; n < table.length; n++) {
+            int c = n;
+            for (int k = 0; k < 8; k++) {
+                c = (c & 1) != 0 ? 0xEDB88320 ^ (c >>> 1) : c >>> 1;
+            }
+            table[n] = c;
+        }
+        return table;
+    }
+}
@@ -0,0 +1,66 @@
+package com.outseer.webfingerprint.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.ILoggerFactory;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Exports queue depth, remaining capacity and dropped events of every
+ * {@link InstrumentedAsyncAppender} configured in logback-spring.xml, tagged with the appender name.
+ */
+@Component
+public class AsyncLoggingMetrics implements MeterBinder {
+
+    private final Supplier<ILoggerFactory> loggerFactory;
+
+    public AsyncLoggingMetrics() {
+        this(LoggerFactory::getILoggerFactory);
+    }
+
+    AsyncLoggingMetrics(Supplier<ILoggerFactory> loggerFactory) {
+        this.loggerFactory = loggerFactory;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!(loggerFactory.get() instanceof LoggerContext context)) {
+            return;
+        }
+        Map<String, InstrumentedAsyncAppender> appenders = new LinkedHashMap<>();
+        for (Logger logger : context.getLoggerList()) {
+            for (Iterator<Appender<ILoggingEvent>> it = logger.iteratorForAppenders(); it.hasNext(); ) {
+                if (it.next() instanceof InstrumentedAsyncAppender appender) {
+                    appenders.putIfAbsent(appender.getName(), appender);
+                }
+            }
+        }
+
+        appenders.forEach((name, appender) -> {
+            Gauge.builder("logging.async.queue.depth", appender, InstrumentedAsyncAppender::getNumberOfElementsInQueue)
+                    .description("Log events waiting to be written")
+                    .tag("appender", name)
+                    .register(registry);
+            Gauge.builder("logging.async.queue.remaining", appender, InstrumentedAsyncAppender::getRemainingCapacity)
+                    .description("Free slots in the log event queue")
+                    .tag("appender", name)
+                    .register(registry);
+            FunctionCounter.builder("logging.async.dropped", appender, InstrumentedAsyncAppender::getDroppedEvents)
+                    .description("Log events dropped because the queue was full or above the discarding threshold")
+                    .tag("appender", name)
+                    .register(registry);
+        });
+    }
+}
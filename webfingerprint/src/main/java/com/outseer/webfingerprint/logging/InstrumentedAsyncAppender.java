@@ -0,0 +1,39 @@
+package com.outseer.webfingerprint.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logback {@link AsyncAppender} that counts the events it drops.
+ * Events are handed to a bounded queue drained by a single worker thread. Once the remaining
+ * capacity falls below the discarding threshold, TRACE, DEBUG and INFO events are dropped; with
+ * neverBlock, any event that finds the queue full is dropped instead of blocking the caller.
+ * With a discarding threshold of 0 and neverBlock off nothing is ever dropped.
+ */
+public class InstrumentedAsyncAppender extends AsyncAppender {
+
+    private final LongAdder droppedEvents = new LongAdder();
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        if (getRemainingCapacity() < getDiscardingThreshold() && isDiscardable(event)) {
+            droppedEvents.increment();
+            return;
+        }
+        // Checked here because a failed offer in the base class is silent
+        if (isNeverBlock() && getRemainingCapacity() == 0) {
+            droppedEvents.increment();
+            return;
+        }
+        super.append(event);
+    }
+
+    /**
+     * Number of events dropped since the appender was created.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+}
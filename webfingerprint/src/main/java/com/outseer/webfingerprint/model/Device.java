@@ -1,15 +1,18 @@
 package com.outseer.webfingerprint.model;
 
+import com.outseer.webfingerprint.fingerprint.DeviceKey;
 import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
 
 import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Entity
-@Table(name = "devices")
-public class Device {
+@Table(name = "devices", indexes = @Index(name = "idx_devices_last_seen", columnList = "last_seen, device_id"))
+public class Device implements Persistable<String> {
+    // Client hashes are limited to the length of a server key
     @Id
-    @Column(name = "device_id")
+    @Column(name = "device_id", length = DeviceKey.HEX_LENGTH)
     private String deviceId;
 
     @Column(name = "first_seen", nullable = false)
@@ -36,6 +39,10 @@ public class Device {
     @Column(name = "visit_count")
     private Integer visitCount = 1;
 
+    // Lets Spring Data persist new devices directly instead of merging, so inserts can be batched
+    @Transient
+    private boolean isNew = true;
+
     // Default constructor
     public Device() {
     }
@@ -53,7 +60,37 @@ public class Device {
         this.lastSeen = LocalDateTime.now();
     }
 
+    // Copy constructor, used to update cached devices without mutating the shared instance
+    public Device(Device other) {
+        this.deviceId = other.deviceId;
+        this.firstSeen = other.firstSeen;
+        this.lastSeen = other.lastSeen;
+        this.userAgent = other.userAgent;
+        this.screenResolution = other.screenResolution;
+        this.timezone = other.timezone;
+        this.language = other.language;
+        this.platform = other.platform;
+        this.visitCount = other.visitCount;
+        this.isNew = other.isNew;
+    }
+
     // Getters and Setters
+    @Override
+    public String getId() {
+        return deviceId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
     public String getDeviceId() {
         return deviceId;
     }
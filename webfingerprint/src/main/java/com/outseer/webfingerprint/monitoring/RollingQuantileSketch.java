@@ -0,0 +1,115 @@
+package com.outseer.webfingerprint.monitoring;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram over a sliding time window with logarithmic buckets, so any quantile is
+ * estimated within {@link #RELATIVE_ACCURACY} of the true value whatever the latency range.
+ * The window is split into slices; a slice is cleared when it is reused, so samples older than
+ * the window drop out and the estimate follows the current load.
+ * <p>
+ * Recording is lock-free. A sample recorded while another thread clears the same slice for a new
+ * period may be lost, which only matters for the quantile estimate and is accepted.
+ */
+final class RollingQuantileSketch {
+
+    static final double RELATIVE_ACCURACY = 0.02;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    // Latencies are clamped to [1 µs, 100 s]
+    private static final long MIN_NANOS = 1_000L;
+    private static final long MAX_NANOS = 100_000_000_000L;
+    private static final int BUCKETS = bucket(MAX_NANOS) + 1;
+
+    private final long sliceNanos;
+    private final int sliceCount;
+    private final AtomicLongArray[] counts;
+    private final AtomicLongArray periods;
+
+    RollingQuantileSketch(long windowNanos, int sliceCount) {
+        this.sliceCount = sliceCount;
+        this.sliceNanos = Math.max(1, windowNanos / sliceCount);
+        this.counts = new AtomicLongArray[sliceCount];
+        for (int i = 0; i < sliceCount; i++) {
+            counts[i] = new AtomicLongArray(BUCKETS);
+        }
+        this.periods = new AtomicLongArray(sliceCount);
+        for (int i = 0; i < sliceCount; i++) {
+            periods.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * Adds one latency sample.
+     * @param durationNanos Measured latency
+     * @param nowNanos Current {@link System#nanoTime()}
+     */
+    void record(long durationNanos, long nowNanos) {
+        long period = Math.floorDiv(nowNanos, sliceNanos);
+        int slice = (int) Math.floorMod(period, (long) sliceCount);
+        long current = periods.get(slice);
+        if (current != period && periods.compareAndSet(slice, current, period)) {
+            AtomicLongArray sliceCounts = counts[slice];
+            for (int i = 0; i < BUCKETS; i++) {
+                sliceCounts.set(i, 0);
+            }
+        }
+        counts[slice].incrementAndGet(bucket(durationNanos));
+    }
+
+    /**
+     * Estimates quantiles of the samples recorded within the window.
+     * @param quantiles Quantiles between 0 and 1, in ascending order
+     * @param nowNanos Current {@link System#nanoTime()}
+     * @return Number of samples followed by the estimated latency in nanoseconds of each quantile,
+     *         0 if there are no samples
+     */
+    long[] summarize(double[] quantiles, long nowNanos) {
+        long[] merged = merge(nowNanos);
+        long total = 0;
+        for (long count : merged) {
+            total += count;
+        }
+        long[] summary = new long[quantiles.length + 1];
+        summary[0] = total;
+        if (total == 0) {
+            return summary;
+        }
+        long seen = 0;
+        int bucket = -1;
+        for (int q = 0; q < quantiles.length; q++) {
+            long rank = Math.max(1, (long) Math.ceil(quantiles[q] * total));
+            while (seen < rank && bucket < BUCKETS - 1) {
+                seen += merged[++bucket];
+            }
+            summary[q + 1] = value(bucket);
+        }
+        return summary;
+    }
+
+    private long[] merge(long nowNanos) {
+        long period = Math.floorDiv(nowNanos, sliceNanos);
+        long[] merged = new long[BUCKETS];
+        for (int slice = 0; slice < sliceCount; slice++) {
+            long slicePeriod = periods.get(slice);
+            if (slicePeriod == Long.MIN_VALUE || period - slicePeriod >= sliceCount) {
+                continue;
+            }
+            AtomicLongArray sliceCounts = counts[slice];
+            for (int i = 0; i < BUCKETS; i++) {
+                merged[i] += sliceCounts.get(i);
+            }
+        }
+        return merged;
+    }
+
+    private static int bucket(long nanos) {
+        long clamped = Math.min(Math.max(nanos, MIN_NANOS), MAX_NANOS);
+        return (int) Math.ceil(Math.log((double) clamped / MIN_NANOS) / LOG_GAMMA);
+    }
+
+    private static long value(int bucket) {
+        // Midpoint of (gamma^(i-1), gamma^i], which is within the relative accuracy of every value in it
+        return (long) (MIN_NANOS * 2 * Math.pow(GAMMA, bucket) / (GAMMA + 1));
+    }
+}
@@ -0,0 +1,129 @@
+package com.outseer.webfingerprint.monitoring;
+
+/**
+ * Per-request breakdown of where the time went, returned to clients in the Server-Timing header.
+ * A context is opened by {@code ServerTimingFilter} for each API request and bound to the handling
+ * thread; services add the duration of each phase with {@link #start()} and {@link #record(Phase, long)}.
+ * <p>
+ * Without an open context, e.g. when the header is disabled or on background threads, both calls
+ * only look up the thread-local and neither read the clock nor allocate.
+ */
+public final class ServerTiming {
+
+    public static final String HEADER = "Server-Timing";
+
+    /**
+     * Timed phases, reported under their metric name. A phase may be entered several times per request;
+     * its durations are added up. Cache lookups include the database reads they trigger.
+     */
+    public enum Phase {
+        CACHE("cache"),
+        DB_READ("db-read"),
+        DB_WRITE("db-write"),
+        RESPONSE("response");
+
+        private final String metricName;
+
+        Phase(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String metricName() {
+            return metricName;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final ThreadLocal<ServerTiming> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos;
+    private final long[] durations = new long[PHASES.length];
+    private int recordedPhases;
+
+    private ServerTiming(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Binds a new context to the current thread.
+     * @param startNanos {@link System#nanoTime()} at which the request arrived, the start of "total"
+     * @return The new context
+     */
+    public static ServerTiming open(long startNanos) {
+        ServerTiming timing = new ServerTiming(startNanos);
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    /**
+     * Unbinds the context from the current thread.
+     */
+    public static void close() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Context of the request handled by the current thread.
+     * @return The context, or null if none is open
+     */
+    public static ServerTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Starts timing a phase.
+     * @return Start time to pass to {@link #record(Phase, long)}, 0 if no context is open
+     */
+    public static long start() {
+        return CURRENT.get() == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Adds the time since {@code startNanos} to a phase of the current request, if a context is open.
+     * @param phase Phase that ended
+     * @param startNanos Value returned by {@link #start()}
+     */
+    public static void record(Phase phase, long startNanos) {
+        ServerTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.add(phase, System.nanoTime() - startNanos);
+        }
+    }
+
+    void add(Phase phase, long nanos) {
+        durations[phase.ordinal()] += nanos;
+        recordedPhases |= 1 << phase.ordinal();
+    }
+
+    /**
+     * Total time spent in a phase so far.
+     */
+    public long durationNanos(Phase phase) {
+        return durations[phase.ordinal()];
+    }
+
+    /**
+     * Header value listing the phases entered so far and the time since the request arrived,
+     * in milliseconds, e.g. {@code cache;dur=0.120, db-write;dur=1.305, response;dur=0.031, total;dur=2.874}.
+     * @param nowNanos Current {@link System#nanoTime()}, the end of "total"
+     */
+    public String headerValue(long nowNanos) {
+        StringBuilder value = new StringBuilder(96);
+        for (Phase phase : PHASES) {
+            if ((recordedPhases & 1 << phase.ordinal()) != 0) {
+                appendMetric(value, phase.metricName(), durations[phase.ordinal()]).append(", ");
+            }
+        }
+        return appendMetric(value, "total", nowNanos - startNanos).toString();
+    }
+
+    private static StringBuilder appendMetric(StringBuilder value, String name, long nanos) {
+        long micros = Math.max(0, nanos) / 1_000;
+        long fraction = micros % 1_000;
+        value.append(name).append(";dur=").append(micros / 1_000).append('.');
+        if (fraction < 100) {
+            value.append(fraction < 10 ? "00" : "0");
+        }
+        return value.append(fraction);
+    }
+}
@@ -0,0 +1,26 @@
+package com.outseer.webfingerprint.monitoring;
+
+import java.time.Instant;
+
+/**
+ * A call flagged by {@link SlowOperationDetector}, with the latency distribution it was judged against.
+ * @param operation Operation name, e.g. "GET /api/device/{id}" or a @LogExecutionTime name
+ * @param timestamp When the call completed
+ * @param durationMs Duration of the call
+ * @param thresholdMs Threshold it exceeded
+ * @param p50Ms Median latency of the operation in the current window
+ * @param p99Ms 99th percentile latency of the operation in the current window
+ * @param samples Calls of the operation in the current window
+ * @param adaptive false if the fixed fallback threshold was used because there were too few samples
+ * @param correlationId Correlation ID of the request, if any
+ */
+public record SlowCall(String operation,
+                       Instant timestamp,
+                       double durationMs,
+                       double thresholdMs,
+                       double p50Ms,
+                       double p99Ms,
+                       long samples,
+                       boolean adaptive,
+                       String correlationId) {
+}
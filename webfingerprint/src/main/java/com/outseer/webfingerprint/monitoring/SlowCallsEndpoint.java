@@ -0,0 +1,29 @@
+package com.outseer.webfingerprint.monitoring;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint at /actuator/slowcalls listing the recent slow calls and the latency
+ * distribution and threshold of every operation the {@link SlowOperationDetector} tracks.
+ */
+@Component
+@Endpoint(id = "slowcalls")
+public class SlowCallsEndpoint {
+
+    private final SlowOperationDetector slowOperationDetector;
+
+    public SlowCallsEndpoint(SlowOperationDetector slowOperationDetector) {
+        this.slowOperationDetector = slowOperationDetector;
+    }
+
+    @ReadOperation
+    public Map<String, Object> slowCalls() {
+        return Map.of(
+                "recent", slowOperationDetector.recentSlowCalls(),
+                "operations", slowOperationDetector.operationLatencies());
+    }
+}
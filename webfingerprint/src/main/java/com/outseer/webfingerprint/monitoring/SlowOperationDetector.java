@@ -0,0 +1,178 @@
+package com.outseer.webfingerprint.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Flags calls that are slow compared with the recent latency of the same operation.
+ * Each operation keeps a {@link RollingQuantileSketch} over the last window; a call is slow when it
+ * takes longer than the configured multiple of the operation's current p99, and never below the
+ * minimum threshold. Until an operation has enough samples in the window the caller's fixed
+ * threshold applies instead.
+ * <p>
+ * Flagged calls are kept in a bounded ring buffer of recent slow calls, exposed by
+ * {@link SlowCallsEndpoint}. The number of tracked operations is capped; calls of further
+ * operations are only judged against their fixed threshold.
+ */
+@Component
+public class SlowOperationDetector {
+
+    private static final int WINDOW_SLICES = 6;
+    private static final long REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final double[] QUANTILES = {0.5, 0.99};
+    private static final String CORRELATION_ID_MDC_KEY = "correlationId";
+
+    private final double multiplier;
+    private final long minThresholdNanos;
+    private final long minSamples;
+    private final long windowNanos;
+    private final int maxOperations;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, OperationLatency> operations = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<SlowCall> recentSlowCalls;
+    private final AtomicLong slowCallCount = new AtomicLong();
+
+    public SlowOperationDetector(@Value("${telemetry.slow-operations.p99-multiplier:3.0}") double multiplier,
+                                 @Value("${telemetry.slow-operations.min-threshold-ms:10}") long minThresholdMs,
+                                 @Value("${telemetry.slow-operations.min-samples:100}") long minSamples,
+                                 @Value("${telemetry.slow-operations.window-seconds:60}") long windowSeconds,
+                                 @Value("${telemetry.slow-operations.max-operations:500}") int maxOperations,
+                                 @Value("${telemetry.slow-operations.recent-capacity:100}") int recentCapacity,
+                                 MeterRegistry meterRegistry) {
+        if (multiplier <= 0 || windowSeconds < 1 || recentCapacity < 1) {
+            throw new IllegalArgumentException(
+                    "telemetry.slow-operations p99-multiplier, window-seconds and recent-capacity must be positive");
+        }
+        this.multiplier = multiplier;
+        this.minThresholdNanos = TimeUnit.MILLISECONDS.toNanos(minThresholdMs);
+        this.minSamples = minSamples;
+        this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+        this.maxOperations = maxOperations;
+        this.meterRegistry = meterRegistry;
+        this.recentSlowCalls = new AtomicReferenceArray<>(recentCapacity);
+    }
+
+    /**
+     * Records a call and decides whether it was slow.
+     * @param operation Operation name; keep the number of distinct names small
+     * @param durationNanos Duration of the call
+     * @param fallbackThresholdMs Threshold used while the operation has too few samples
+     * @return The slow call, also added to the recent slow calls, or null if the call was not slow
+     */
+    public SlowCall record(String operation, long durationNanos, long fallbackThresholdMs) {
+        long now = System.nanoTime();
+        OperationLatency latency = operations.get(operation);
+        if (latency == null && operations.size() < maxOperations) {
+            latency = operations.computeIfAbsent(operation, OperationLatency::new);
+        }
+        if (latency == null) {
+            long fallbackNanos = TimeUnit.MILLISECONDS.toNanos(fallbackThresholdMs);
+            return durationNanos > fallbackNanos ? flag(operation, durationNanos, fallbackNanos, 0, 0, 0, false) : null;
+        }
+
+        latency.refresh(now);
+        boolean adaptive = latency.samples >= minSamples;
+        long thresholdNanos = adaptive ? latency.thresholdNanos : TimeUnit.MILLISECONDS.toNanos(fallbackThresholdMs);
+        latency.sketch.record(durationNanos, now);
+        if (durationNanos <= thresholdNanos) {
+            return null;
+        }
+        latency.slowCalls.increment();
+        return flag(operation, durationNanos, thresholdNanos, latency.p50Nanos, latency.p99Nanos, latency.samples, adaptive);
+    }
+
+    /**
+     * Most recent slow calls, newest first.
+     */
+    public List<SlowCall> recentSlowCalls() {
+        int capacity = recentSlowCalls.length();
+        long end = slowCallCount.get();
+        List<SlowCall> calls = new ArrayList<>();
+        for (long i = end - 1; i >= 0 && i >= end - capacity; i--) {
+            SlowCall call = recentSlowCalls.get((int) (i % capacity));
+            if (call != null) {
+                calls.add(call);
+            }
+        }
+        return calls;
+    }
+
+    /**
+     * Current latency distribution and slow-call threshold of every tracked operation, by name.
+     */
+    public Map<String, Map<String, Object>> operationLatencies() {
+        long now = System.nanoTime();
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        operations.forEach((name, latency) -> {
+            latency.refresh(now);
+            result.put(name, Map.of(
+                    "samples", latency.samples,
+                    "p50Ms", toMillis(latency.p50Nanos),
+                    "p99Ms", toMillis(latency.p99Nanos),
+                    "thresholdMs", toMillis(latency.thresholdNanos),
+                    "adaptive", latency.samples >= minSamples,
+                    "slowCalls", (long) latency.slowCalls.count()));
+        });
+        return result;
+    }
+
+    private SlowCall flag(String operation, long durationNanos, long thresholdNanos,
+                          long p50Nanos, long p99Nanos, long samples, boolean adaptive) {
+        SlowCall call = new SlowCall(operation, Instant.now(), toMillis(durationNanos), toMillis(thresholdNanos),
+                toMillis(p50Nanos), toMillis(p99Nanos), samples, adaptive, MDC.get(CORRELATION_ID_MDC_KEY));
+        long index = slowCallCount.getAndIncrement();
+        recentSlowCalls.set((int) (index % recentSlowCalls.length()), call);
+        return call;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Sketch of one operation plus its quantiles, recomputed at most once a second once the
+     * operation has enough samples, and on every call before that.
+     */
+    private final class OperationLatency {
+        private final RollingQuantileSketch sketch = new RollingQuantileSketch(windowNanos, WINDOW_SLICES);
+        private final Counter slowCalls;
+        private volatile long refreshedAt = Long.MIN_VALUE;
+        private volatile long samples;
+        private volatile long p50Nanos;
+        private volatile long p99Nanos;
+        private volatile long thresholdNanos;
+
+        private OperationLatency(String operation) {
+            this.slowCalls = Counter.builder("telemetry.slow.calls")
+                    .description("Calls slower than the operation's adaptive or fallback threshold")
+                    .tag("operation", operation)
+                    .register(meterRegistry);
+        }
+
+        private void refresh(long now) {
+            long last = refreshedAt;
+            if (last != Long.MIN_VALUE && now - last < REFRESH_NANOS && samples >= minSamples) {
+                return;
+            }
+            refreshedAt = now;
+            long[] summary = sketch.summarize(QUANTILES, now);
+            p50Nanos = summary[1];
+            p99Nanos = summary[2];
+            samples = summary[0];
+            thresholdNanos = Math.max(minThresholdNanos, (long) (p99Nanos * multiplier));
+        }
+    }
+}
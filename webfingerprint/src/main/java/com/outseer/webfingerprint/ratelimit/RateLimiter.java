@@ -0,0 +1,182 @@
+package com.outseer.webfingerprint.ratelimit;
+
+import com.outseer.webfingerprint.exception.RateLimitExceededException;
+import com.outseer.webfingerprint.service.LoggingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limits of the device API, per client IP address and per device hash.
+ * <p>
+ * The IP limit is checked by {@link com.outseer.webfingerprint.filter.RateLimitFilter} before the request reaches
+ * Spring Security, the device limit by the controller once the hash is known and before the service touches the
+ * database. Every decision is counted in the ratelimit.decisions metric, tagged with the limit and the outcome,
+ * and the number of buckets held is exported as ratelimit.keys. Buckets that refilled are evicted every
+ * eviction-interval-ms.
+ * <p>
+ * Batch and stream requests replay many fingerprints, often historical visits of the same device, so they are not
+ * held to the per-device limit. Instead each batch, and each chunk of a stream, reserves its fingerprints from the
+ * client's ingest quota through {@link #acquireIngest(String, int)}, which waits for the quota to refill rather
+ * than dropping fingerprints: a stream is read only as fast as the quota allows.
+ */
+@Component
+public class RateLimiter {
+
+    public enum Limit { IP, DEVICE, INGEST }
+
+    private final LoggingService loggingService;
+    private final boolean enabled;
+    private final long ingestMaxWaitNanos;
+    private final long evictionIntervalMs;
+    private final boolean virtualThreads;
+    private final Map<Limit, TokenBucketLimiter> limiters = new EnumMap<>(Limit.class);
+    private final Map<Limit, Map<TokenBucketLimiter.Decision, Counter>> decisions = new EnumMap<>(Limit.class);
+    private ScheduledExecutorService scheduler;
+
+    public RateLimiter(LoggingService loggingService,
+                       MeterRegistry meterRegistry,
+                       @Value("${device.rate-limit.enabled:true}") boolean enabled,
+                       @Value("${device.rate-limit.ip.requests-per-second:50}") double ipRequestsPerSecond,
+                       @Value("${device.rate-limit.ip.burst:100}") int ipBurst,
+                       @Value("${device.rate-limit.device.requests-per-second:5}") double deviceRequestsPerSecond,
+                       @Value("${device.rate-limit.device.burst:20}") int deviceBurst,
+                       @Value("${device.rate-limit.ingest.fingerprints-per-second:2000}") double ingestPerSecond,
+                       @Value("${device.rate-limit.ingest.burst:5000}") int ingestBurst,
+                       @Value("${device.rate-limit.ingest.max-wait-ms:30000}") long ingestMaxWaitMs,
+                       @Value("${device.rate-limit.max-keys:100000}") int maxKeys,
+                       @Value("${device.rate-limit.eviction-interval-ms:10000}") long evictionIntervalMs,
+                       @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.loggingService = loggingService;
+        this.enabled = enabled;
+        this.ingestMaxWaitNanos = TimeUnit.MILLISECONDS.toNanos(ingestMaxWaitMs);
+        this.evictionIntervalMs = evictionIntervalMs;
+        this.virtualThreads = virtualThreads;
+        limiters.put(Limit.IP, new TokenBucketLimiter(ipRequestsPerSecond, ipBurst, maxKeys, System::nanoTime));
+        limiters.put(Limit.DEVICE,
+                new TokenBucketLimiter(deviceRequestsPerSecond, deviceBurst, maxKeys, System::nanoTime));
+        limiters.put(Limit.INGEST, new TokenBucketLimiter(ingestPerSecond, ingestBurst, maxKeys, System::nanoTime));
+
+        for (Limit limit : Limit.values()) {
+            String tag = limit.name().toLowerCase(Locale.ROOT);
+            Map<TokenBucketLimiter.Decision, Counter> counters = new EnumMap<>(TokenBucketLimiter.Decision.class);
+            for (TokenBucketLimiter.Decision decision : TokenBucketLimiter.Decision.values()) {
+                counters.put(decision, Counter.builder("ratelimit.decisions")
+                        .description("Rate limit decisions on device API requests")
+                        .tag("limit", tag)
+                        .tag("outcome", decision.name().toLowerCase(Locale.ROOT))
+                        .register(meterRegistry));
+            }
+            decisions.put(limit, counters);
+            Gauge.builder("ratelimit.keys", limiters.get(limit), TokenBucketLimiter::size)
+                    .description("Token buckets currently held")
+                    .tag("limit", tag)
+                    .register(meterRegistry);
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(virtualThreads
+                ? Thread.ofVirtual().name("rate-limit-eviction").factory()
+                : Thread.ofPlatform().name("rate-limit-eviction").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::evictIdle, evictionIntervalMs, evictionIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Takes a token for a request.
+     * @param limit Which limit the key belongs to
+     * @param key Client IP address or device hash
+     * @return false if the request must be rejected
+     */
+    public boolean tryAcquire(Limit limit, String key) {
+        if (!enabled || key == null) {
+            return true;
+        }
+        TokenBucketLimiter.Decision decision = limiters.get(limit).tryAcquire(key);
+        decisions.get(limit).get(decision).increment();
+        return decision != TokenBucketLimiter.Decision.REJECTED;
+    }
+
+    /**
+     * Takes a token for a request to a device.
+     * @param deviceId Device fingerprint hash
+     * @throws RateLimitExceededException if the device is over its limit
+     */
+    public void acquireDevice(String deviceId) {
+        if (!tryAcquire(Limit.DEVICE, deviceId)) {
+            throw new RateLimitExceededException("Too many requests for this device",
+                    retryAfterSeconds(Limit.DEVICE, deviceId));
+        }
+    }
+
+    /**
+     * Reserves fingerprints from a client's ingest quota, waiting until the quota covers them.
+     * @param clientIp Client IP address, or null if unknown
+     * @param fingerprints Number of fingerprints about to be tracked
+     * @throws RateLimitExceededException if the wait would exceed ingest.max-wait-ms; nothing is reserved then
+     */
+    public void acquireIngest(String clientIp, int fingerprints) {
+        if (!enabled || clientIp == null || fingerprints == 0) {
+            return;
+        }
+        long waitNanos = limiters.get(Limit.INGEST).reserve(clientIp, fingerprints, ingestMaxWaitNanos);
+        decisions.get(Limit.INGEST).get(waitNanos < 0
+                ? TokenBucketLimiter.Decision.REJECTED : TokenBucketLimiter.Decision.ALLOWED).increment();
+        if (waitNanos < 0) {
+            throw new RateLimitExceededException("Too many fingerprints from this client",
+                    retryAfterSeconds(Limit.INGEST, clientIp));
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RateLimitExceededException("Interrupted while waiting for the ingest quota", 1);
+            }
+        }
+    }
+
+    /**
+     * Seconds until a rejected key may send again, for the Retry-After header.
+     */
+    public long retryAfterSeconds(Limit limit, String key) {
+        return limiters.get(limit).retryAfterSeconds(key);
+    }
+
+    void evictIdle() {
+        try {
+            for (TokenBucketLimiter limiter : limiters.values()) {
+                limiter.evictIdle();
+            }
+        } catch (Exception e) {
+            loggingService.error("Failed to evict idle rate limit buckets", e);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.outseer.webfingerprint.ratelimit;
+
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets per key, refilled at a fixed rate up to a burst size.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding the time at which it will be full again (the generic cell
+ * rate algorithm, equivalent to a token bucket): taking a token moves that time one refill interval forward and
+ * is refused when it would end up more than burst intervals ahead of now. Buckets are updated with
+ * compare-and-set, so no request ever waits for a lock.
+ * <p>
+ * A full bucket behaves exactly like a missing one, so buckets that have refilled are evicted by {@link #evictIdle()}.
+ * At most maxKeys buckets are held. A new key arriving while the map is full is still tracked: it first evicts the
+ * refilled buckets and, if none have refilled, the sixteenth of the buckets closest to full, which lose the least
+ * by starting over. Rotating keys therefore cannot get past the limit, and the cost of the sweep is shared by the
+ * keys it makes room for.
+ */
+public final class TokenBucketLimiter {
+
+    /**
+     * Outcome of a request for a token.
+     */
+    public enum Decision { ALLOWED, REJECTED }
+
+    private final long refillIntervalNanos;
+    private final long burstNanos;
+    private final int maxKeys;
+    private final LongSupplier clock;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * @param tokensPerSecond Refill rate
+     * @param burst Bucket size, the number of requests allowed at once after a quiet period
+     * @param maxKeys Maximum number of buckets held
+     * @param clock Nanosecond clock, {@link System#nanoTime()} outside tests
+     */
+    public TokenBucketLimiter(double tokensPerSecond, int burst, int maxKeys, LongSupplier clock) {
+        if (tokensPerSecond <= 0 || burst < 1 || maxKeys < 1) {
+            throw new IllegalArgumentException("Rate, burst and key limit must be positive");
+        }
+        this.refillIntervalNanos = Math.max(1, (long) (1_000_000_000L / tokensPerSecond));
+        this.burstNanos = refillIntervalNanos * burst;
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+    }
+
+    /**
+     * Takes a token from the key's bucket.
+     * @param key Client IP address or device hash
+     * @return Whether the request may proceed
+     */
+    public Decision tryAcquire(String key) {
+        long now = clock.getAsLong();
+        return take(bucket(key, now), now, 1, 0) == 0 ? Decision.ALLOWED : Decision.REJECTED;
+    }
+
+    /**
+     * Reserves tokens from the key's bucket, ahead of time if it does not hold enough yet: the caller waits the
+     * returned time and then proceeds. Nothing is reserved when the wait would exceed maxWaitNanos.
+     * @param key Client IP address or device hash
+     * @param tokens Number of tokens, may exceed the burst
+     * @param maxWaitNanos Longest acceptable wait
+     * @return Nanoseconds to wait before proceeding, 0 to proceed at once, or a negative number if rejected
+     */
+    public long reserve(String key, int tokens, long maxWaitNanos) {
+        long now = clock.getAsLong();
+        return take(bucket(key, now), now, tokens, maxWaitNanos);
+    }
+
+    private long take(AtomicLong bucket, long now, int tokens, long maxWaitNanos) {
+        // A full bucket is one whose full time has passed; taking tokens moves that time forward
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + tokens * refillIntervalNanos;
+            long wait = Math.max(0, next - now - burstNanos);
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return wait;
+            }
+        }
+    }
+
+    /**
+     * Seconds until the key's bucket has a token again, at least 1.
+     */
+    public long retryAfterSeconds(String key) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            return 1;
+        }
+        long wait = bucket.get() + refillIntervalNanos - burstNanos - clock.getAsLong();
+        return Math.max(1, (wait + 999_999_999L) / 1_000_000_000L);
+    }
+
+    /**
+     * Removes the buckets that have refilled completely.
+     * A request racing with the removal of its bucket may get one token more than the burst.
+     * @return Number of buckets removed
+     */
+    public int evictIdle() {
+        return evictIdle(clock.getAsLong());
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * The key's bucket, created full if missing.
+     */
+    private AtomicLong bucket(String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            makeRoom(now);
+        }
+        AtomicLong created = new AtomicLong(now);
+        bucket = buckets.putIfAbsent(key, created);
+        return bucket != null ? bucket : created;
+    }
+
+    private void makeRoom(long now) {
+        // Requests finding the map full wait for one sweep rather than each scanning it
+        evictionLock.lock();
+        try {
+            if (buckets.size() < maxKeys || evictIdle(now) > 0) {
+                return;
+            }
+            int count = Math.max(1, maxKeys / 16);
+            // Max-heap on the full time, keeping the count buckets that are closest to full
+            PriorityQueue<Map.Entry<String, Long>> fullest =
+                    new PriorityQueue<>(count + 1, Map.Entry.<String, Long>comparingByValue().reversed());
+            buckets.forEach((key, bucket) -> {
+                fullest.add(Map.entry(key, bucket.get()));
+                if (fullest.size() > count) {
+                    fullest.poll();
+                }
+            });
+            for (Map.Entry<String, Long> entry : fullest) {
+                buckets.remove(entry.getKey());
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private int evictIdle(long now) {
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        return Math.max(0, before - buckets.size());
+    }
+}
@@ -1,7 +1,21 @@
 package com.outseer.webfingerprint.repository;
 
 import com.outseer.webfingerprint.model.Device;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface DeviceRepository extends JpaRepository<Device, String> {
+import java.util.Collection;
+import java.util.List;
+
+public interface DeviceRepository extends JpaRepository<Device, String>, DeviceRepositoryCustom {
+
+    /**
+     * Loads the given devices with one IN query, locking the rows in id order for the current transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from Device d where d.deviceId in :ids order by d.deviceId")
+    List<Device> findAllForUpdate(@Param("ids") Collection<String> ids);
 }
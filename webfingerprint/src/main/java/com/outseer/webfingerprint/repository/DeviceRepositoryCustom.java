@@ -0,0 +1,35 @@
+package com.outseer.webfingerprint.repository;
+
+import com.outseer.webfingerprint.model.Device;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Custom device repository operations that are not expressible as derived queries.
+ */
+public interface DeviceRepositoryCustom {
+
+    /**
+     * Atomically inserts the device or increments its visit count and last seen time.
+     * @param device Device holding the id and attributes used when the device is new
+     * @param seenAt Time of the visit
+     * @return Device with the row state after the upsert
+     */
+    Device upsertVisit(Device device, LocalDateTime seenAt);
+
+    /**
+     * Atomically increments the visit count and last seen time of an existing device.
+     * @param deviceId Device fingerprint hash
+     * @param seenAt Time of the visit
+     * @return Device with the row state after the update, or empty if the device does not exist
+     */
+    Optional<Device> incrementVisit(String deviceId, LocalDateTime seenAt);
+
+    /**
+     * Streams every stored device id without loading the devices.
+     * @param action Callback invoked once per device id
+     */
+    void forEachDeviceId(Consumer<String> action);
+}
@@ -0,0 +1,138 @@
+package com.outseer.webfingerprint.repository;
+
+import com.outseer.webfingerprint.model.Device;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * JDBC implementation of {@link DeviceRepositoryCustom}.
+ * Uses a single MERGE or UPDATE statement returning the new row on H2 and falls back to
+ * UPDATE/INSERT/SELECT on other databases.
+ */
+public class DeviceRepositoryImpl implements DeviceRepositoryCustom {
+
+    static final String DEVICE_COLUMNS = "device_id, first_seen, last_seen, user_agent, screen_resolution, "
+            + "timezone, language, platform, visit_count";
+
+    static final String H2_UPSERT_SQL = "SELECT " + DEVICE_COLUMNS + " FROM FINAL TABLE ("
+            + "MERGE INTO devices d USING (SELECT CAST(? AS VARCHAR(32)) AS device_id) s "
+            + "ON d.device_id = s.device_id "
+            + "WHEN MATCHED THEN UPDATE SET visit_count = d.visit_count + 1, last_seen = ? "
+            + "WHEN NOT MATCHED THEN INSERT (" + DEVICE_COLUMNS + ") "
+            + "VALUES (s.device_id, ?, ?, ?, ?, ?, ?, ?, 1))";
+
+    static final String H2_INCREMENT_SQL = "SELECT " + DEVICE_COLUMNS + " FROM FINAL TABLE ("
+            + "UPDATE devices SET visit_count = visit_count + 1, last_seen = ? WHERE device_id = ?)";
+
+    static final String INCREMENT_SQL =
+            "UPDATE devices SET visit_count = visit_count + 1, last_seen = ? WHERE device_id = ?";
+
+    static final String INSERT_SQL = "INSERT INTO devices (" + DEVICE_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, 1)";
+
+    static final String SELECT_SQL = "SELECT " + DEVICE_COLUMNS + " FROM devices WHERE device_id = ?";
+
+    static final String SELECT_IDS_SQL = "SELECT device_id FROM devices";
+
+    static final RowMapper<Device> DEVICE_ROW_MAPPER = (rs, rowNum) -> {
+        Device device = new Device();
+        device.setDeviceId(rs.getString("device_id"));
+        device.setFirstSeen(rs.getTimestamp("first_seen").toLocalDateTime());
+        device.setLastSeen(rs.getTimestamp("last_seen").toLocalDateTime());
+        device.setUserAgent(rs.getString("user_agent"));
+        device.setScreenResolution(rs.getString("screen_resolution"));
+        device.setTimezone(rs.getString("timezone"));
+        device.setLanguage(rs.getString("language"));
+        device.setPlatform(rs.getString("platform"));
+        device.setVisitCount(rs.getInt("visit_count"));
+        return device;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean mergeSupported;
+
+    public DeviceRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Device upsertVisit(Device device, LocalDateTime seenAt) {
+        Timestamp seen = Timestamp.valueOf(seenAt);
+        if (isMergeSupported()) {
+            try {
+                return merge(device, seen);
+            } catch (DuplicateKeyException e) {
+                // A concurrent MERGE inserted the row first; the retry takes the update branch
+                return merge(device, seen);
+            }
+        }
+        return updateOrInsert(device, seen);
+    }
+
+    @Override
+    public Optional<Device> incrementVisit(String deviceId, LocalDateTime seenAt) {
+        Timestamp seen = Timestamp.valueOf(seenAt);
+        if (isMergeSupported()) {
+            return jdbcTemplate.query(H2_INCREMENT_SQL, DEVICE_ROW_MAPPER, seen, deviceId).stream().findFirst();
+        }
+        if (jdbcTemplate.update(INCREMENT_SQL, seen, deviceId) == 0) {
+            return Optional.empty();
+        }
+        return jdbcTemplate.query(SELECT_SQL, DEVICE_ROW_MAPPER, deviceId).stream().findFirst();
+    }
+
+    @Override
+    public void forEachDeviceId(Consumer<String> action) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_IDS_SQL);
+            statement.setFetchSize(1000);
+            return statement;
+        }, (RowCallbackHandler) rs -> action.accept(rs.getString(1)));
+    }
+
+    private Device merge(Device device, Timestamp seen) {
+        return jdbcTemplate.queryForObject(H2_UPSERT_SQL, DEVICE_ROW_MAPPER,
+                device.getDeviceId(), seen, seen, seen, device.getUserAgent(), device.getScreenResolution(),
+                device.getTimezone(), device.getLanguage(), device.getPlatform());
+    }
+
+    /**
+     * Portable fallback: the increment is a single atomic UPDATE, the INSERT only runs for new devices.
+     */
+    private Device updateOrInsert(Device device, Timestamp seen) {
+        if (jdbcTemplate.update(INCREMENT_SQL, seen, device.getDeviceId()) == 0) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, device.getDeviceId(), seen, seen, device.getUserAgent(),
+                        device.getScreenResolution(), device.getTimezone(), device.getLanguage(), device.getPlatform());
+            } catch (DuplicateKeyException e) {
+                jdbcTemplate.update(INCREMENT_SQL, seen, device.getDeviceId());
+            }
+        }
+        return jdbcTemplate.queryForObject(SELECT_SQL, DEVICE_ROW_MAPPER, device.getDeviceId());
+    }
+
+    private boolean isMergeSupported() {
+        Boolean supported = mergeSupported;
+        if (supported == null) {
+            try {
+                String product = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                        DatabaseMetaData::getDatabaseProductName);
+                supported = "H2".equalsIgnoreCase(product);
+            } catch (MetaDataAccessException e) {
+                supported = false;
+            }
+            mergeSupported = supported;
+        }
+        return supported;
+    }
+}
@@ -0,0 +1,39 @@
+package com.outseer.webfingerprint.retention;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the retention purge when the application is started with --runCleanup=true, as the cleanup CronJob does.
+ * Regular starts leave the devices table alone.
+ */
+@Component
+public class RetentionCleanupRunner implements ApplicationRunner {
+
+    static final String RUN_CLEANUP = "runCleanup";
+
+    private final RetentionPurger retentionPurger;
+
+    public RetentionCleanupRunner(RetentionPurger retentionPurger) {
+        this.retentionPurger = retentionPurger;
+    }
+
+    /**
+     * Tells whether the command line asks for a cleanup run rather than serving requests.
+     * @param args Command line arguments
+     * @return true for --runCleanup or --runCleanup=true
+     */
+    public static boolean isCleanupRun(String... args) {
+        String value = new SimpleCommandLinePropertySource(args).getProperty(RUN_CLEANUP);
+        return value != null && (value.isEmpty() || Boolean.parseBoolean(value));
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (isCleanupRun(args.getSourceArgs())) {
+            retentionPurger.purge();
+        }
+    }
+}
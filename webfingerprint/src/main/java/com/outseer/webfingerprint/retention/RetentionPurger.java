@@ -0,0 +1,308 @@
+package com.outseer.webfingerprint.retention;
+
+import com.outseer.webfingerprint.history.VisitHistory;
+import com.outseer.webfingerprint.service.LoggingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes or archives devices not seen within the retention horizon.
+ * <p>
+ * Expired devices are walked in (last_seen, device_id) order with keyset pagination over the
+ * idx_devices_last_seen index, a small batch at a time. Each batch is deleted (after being copied to
+ * devices_archive in archive mode) in its own short transaction, together with the checkpoint of how
+ * far the purge got, so no lock is held for long and a run that is stopped or killed resumes where
+ * it left off with the same cutoff. Deletes re-check last_seen, so a device visited while the purge
+ * runs is kept. The visit history of purged devices is deleted with them, also in archive mode.
+ * Throughput is capped at max-rows-per-second to keep the load on the database flat.
+ */
+@Component
+public class RetentionPurger {
+
+    public enum Mode { DELETE, ARCHIVE }
+
+    /**
+     * Outcome of a run.
+     * @param purged Devices deleted or archived by this run
+     * @param batches Batches processed by this run
+     * @param completed false if the run stopped early and the next one resumes from the checkpoint
+     * @param cutoff Devices last seen before this time are purged
+     */
+    public record Result(long purged, long batches, boolean completed, LocalDateTime cutoff) {
+    }
+
+    static final String JOB_NAME = "devices";
+
+    static final String CREATE_CHECKPOINT_SQL = "CREATE TABLE IF NOT EXISTS retention_checkpoint ("
+            + "job_name VARCHAR(64) PRIMARY KEY, cutoff TIMESTAMP NOT NULL, last_seen TIMESTAMP, "
+            + "last_device_id VARCHAR(32), purged BIGINT NOT NULL, started_at TIMESTAMP NOT NULL, "
+            + "completed_at TIMESTAMP)";
+
+    static final String CREATE_ARCHIVE_SQL = "CREATE TABLE IF NOT EXISTS devices_archive ("
+            + "device_id VARCHAR(32) NOT NULL, first_seen TIMESTAMP NOT NULL, last_seen TIMESTAMP NOT NULL, "
+            + "user_agent VARCHAR(1000), screen_resolution VARCHAR(255), timezone VARCHAR(255), "
+            + "language VARCHAR(255), platform VARCHAR(255), visit_count INTEGER, archived_at TIMESTAMP NOT NULL, "
+            + "PRIMARY KEY (device_id, last_seen))";
+
+    static final String SELECT_OPEN_CHECKPOINT_SQL = "SELECT cutoff, last_seen, last_device_id, purged "
+            + "FROM retention_checkpoint WHERE job_name = ? AND completed_at IS NULL";
+
+    static final String DELETE_CHECKPOINT_SQL = "DELETE FROM retention_checkpoint WHERE job_name = ?";
+
+    static final String INSERT_CHECKPOINT_SQL = "INSERT INTO retention_checkpoint "
+            + "(job_name, cutoff, purged, started_at) VALUES (?, ?, 0, ?)";
+
+    static final String UPDATE_CHECKPOINT_SQL = "UPDATE retention_checkpoint "
+            + "SET last_seen = ?, last_device_id = ?, purged = purged + ? WHERE job_name = ?";
+
+    static final String COMPLETE_CHECKPOINT_SQL = "UPDATE retention_checkpoint SET completed_at = ? WHERE job_name = ?";
+
+    static final String COUNT_EXPIRED_SQL = "SELECT COUNT(*) FROM devices WHERE last_seen < ?";
+
+    static final String FIRST_PAGE_SQL = "SELECT device_id, last_seen FROM devices WHERE last_seen < ? "
+            + "ORDER BY last_seen, device_id FETCH FIRST %d ROWS ONLY";
+
+    static final String NEXT_PAGE_SQL = "SELECT device_id, last_seen FROM devices WHERE last_seen < ? "
+            + "AND (last_seen > ? OR (last_seen = ? AND device_id > ?)) "
+            + "ORDER BY last_seen, device_id FETCH FIRST %d ROWS ONLY";
+
+    static final String ARCHIVE_SQL = "INSERT INTO devices_archive (device_id, first_seen, last_seen, user_agent, "
+            + "screen_resolution, timezone, language, platform, visit_count, archived_at) "
+            + "SELECT device_id, first_seen, last_seen, user_agent, screen_resolution, timezone, language, platform, "
+            + "visit_count, ? FROM devices WHERE device_id = ? AND last_seen < ?";
+
+    static final String DELETE_SQL = "DELETE FROM devices WHERE device_id = ? AND last_seen < ?";
+
+    private record Key(String deviceId, Timestamp lastSeen) {
+    }
+
+    private record Checkpoint(Timestamp cutoff, Timestamp lastSeen, String lastDeviceId, long purged) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LoggingService loggingService;
+    private final VisitHistory visitHistory;
+    private final Duration horizon;
+    private final Mode mode;
+    private final int batchSize;
+    private final double maxRowsPerSecond;
+    private final Duration maxDuration;
+    private final Counter purgedRows;
+    private final Counter batches;
+    private final Timer batchTimer;
+    private final AtomicLong remaining = new AtomicLong();
+    private volatile boolean stopRequested;
+
+    public RetentionPurger(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           LoggingService loggingService,
+                           VisitHistory visitHistory,
+                           MeterRegistry meterRegistry,
+                           @Value("${device.retention.horizon-days:90}") long horizonDays,
+                           @Value("${device.retention.mode:delete}") String mode,
+                           @Value("${device.retention.batch-size:500}") int batchSize,
+                           @Value("${device.retention.max-rows-per-second:2000}") double maxRowsPerSecond,
+                           @Value("${device.retention.max-duration-minutes:50}") long maxDurationMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.loggingService = loggingService;
+        this.visitHistory = visitHistory;
+        this.horizon = Duration.ofDays(horizonDays);
+        this.mode = Mode.valueOf(mode.toUpperCase(Locale.ROOT));
+        this.batchSize = batchSize;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.maxDuration = Duration.ofMinutes(maxDurationMinutes);
+
+        String action = this.mode == Mode.ARCHIVE ? "archived" : "deleted";
+        this.purgedRows = Counter.builder("retention.purge.rows")
+                .description("Expired devices removed from the devices table")
+                .tag("action", action)
+                .register(meterRegistry);
+        this.batches = Counter.builder("retention.purge.batches")
+                .description("Retention purge batches committed")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("retention.purge.batch.duration")
+                .description("Time to select, purge and checkpoint one batch")
+                .register(meterRegistry);
+        Gauge.builder("retention.purge.remaining", remaining, AtomicLong::get)
+                .description("Expired devices left to purge in the current run")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Purges expired devices until none are left or max-duration-minutes has passed.
+     * @return Outcome of the run
+     */
+    public Result purge() {
+        return purge(Long.MAX_VALUE);
+    }
+
+    /**
+     * Purges expired devices, stopping after the given number of batches.
+     * @param maxBatches Batches to process at most
+     * @return Outcome of the run
+     */
+    Result purge(long maxBatches) {
+        long startTime = System.nanoTime();
+        long deadline = startTime + maxDuration.toNanos();
+        createTables();
+        Checkpoint checkpoint = openCheckpoint();
+        remaining.set(jdbcTemplate.queryForObject(COUNT_EXPIRED_SQL, Long.class, checkpoint.cutoff()));
+        loggingService.info("Retention purge ({}) of devices last seen before {}: {} expired, resuming after {}",
+                mode, checkpoint.cutoff(), remaining.get(),
+                checkpoint.lastDeviceId() == null ? "start" : checkpoint.lastSeen() + "/" + checkpoint.lastDeviceId());
+
+        Timestamp cutoff = checkpoint.cutoff();
+        Timestamp lastSeen = checkpoint.lastSeen();
+        String lastDeviceId = checkpoint.lastDeviceId();
+        long purged = 0;
+        long batchCount = 0;
+        boolean completed = false;
+        while (!stopRequested && batchCount < maxBatches && System.nanoTime() < deadline) {
+            long batchStart = System.nanoTime();
+            List<Key> page = nextPage(cutoff, lastSeen, lastDeviceId);
+            if (page.isEmpty()) {
+                jdbcTemplate.update(COMPLETE_CHECKPOINT_SQL, Timestamp.valueOf(LocalDateTime.now()), JOB_NAME);
+                completed = true;
+                break;
+            }
+            Key last = page.get(page.size() - 1);
+            int batchPurged = purgeBatch(page, cutoff, last);
+            lastSeen = last.lastSeen();
+            lastDeviceId = last.deviceId();
+            purged += batchPurged;
+            batchCount++;
+
+            batchTimer.record(System.nanoTime() - batchStart, TimeUnit.NANOSECONDS);
+            batches.increment();
+            purgedRows.increment(batchPurged);
+            remaining.updateAndGet(value -> Math.max(0, value - batchPurged));
+            loggingService.debug("Retention purge batch {}: {} devices up to {}", batchCount, batchPurged, lastSeen);
+            throttle(purged, startTime);
+        }
+
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        loggingService.businessEvent(completed ? "RETENTION_PURGE_COMPLETED" : "RETENTION_PURGE_PAUSED",
+                String.format("%d devices %s in %d batches, cutoff %s%s", purged,
+                        mode == Mode.ARCHIVE ? "archived" : "deleted", batchCount, cutoff,
+                        completed ? "" : ", next run resumes after " + lastSeen + "/" + lastDeviceId));
+        loggingService.performanceMetric("RETENTION_PURGE", durationMs,
+                String.format("Purged: %d, Batches: %d", purged, batchCount));
+        return new Result(purged, batchCount, completed, cutoff.toLocalDateTime());
+    }
+
+    /**
+     * Makes a running purge stop after its current batch, e.g. on shutdown. The checkpoint is kept.
+     */
+    @PreDestroy
+    public void stop() {
+        stopRequested = true;
+    }
+
+    private void createTables() {
+        jdbcTemplate.execute(CREATE_CHECKPOINT_SQL);
+        if (mode == Mode.ARCHIVE) {
+            jdbcTemplate.execute(CREATE_ARCHIVE_SQL);
+        }
+    }
+
+    /**
+     * Returns the checkpoint of an interrupted run, or starts a new one with a cutoff of now minus the horizon.
+     */
+    private Checkpoint openCheckpoint() {
+        List<Checkpoint> open = jdbcTemplate.query(SELECT_OPEN_CHECKPOINT_SQL, (rs, rowNum) -> new Checkpoint(
+                rs.getTimestamp("cutoff"), rs.getTimestamp("last_seen"), rs.getString("last_device_id"),
+                rs.getLong("purged")), JOB_NAME);
+        if (!open.isEmpty()) {
+            return open.get(0);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp cutoff = Timestamp.valueOf(now.minus(horizon).truncatedTo(ChronoUnit.SECONDS));
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(DELETE_CHECKPOINT_SQL, JOB_NAME);
+            jdbcTemplate.update(INSERT_CHECKPOINT_SQL, JOB_NAME, cutoff, Timestamp.valueOf(now));
+        });
+        return new Checkpoint(cutoff, null, null, 0);
+    }
+
+    private List<Key> nextPage(Timestamp cutoff, Timestamp lastSeen, String lastDeviceId) {
+        if (lastDeviceId == null) {
+            return jdbcTemplate.query(String.format(FIRST_PAGE_SQL, batchSize), (rs, rowNum) ->
+                    new Key(rs.getString(1), rs.getTimestamp(2)), cutoff);
+        }
+        return jdbcTemplate.query(String.format(NEXT_PAGE_SQL, batchSize), (rs, rowNum) ->
+                new Key(rs.getString(1), rs.getTimestamp(2)), cutoff, lastSeen, lastSeen, lastDeviceId);
+    }
+
+    /**
+     * Archives and deletes one page and moves the checkpoint past it, all in one transaction.
+     * @return Devices deleted, fewer than the page if some were visited since it was read
+     */
+    private int purgeBatch(List<Key> page, Timestamp cutoff, Key last) {
+        List<Object[]> args = new ArrayList<>(page.size());
+        for (Key key : page) {
+            args.add(new Object[] {key.deviceId(), cutoff});
+        }
+        Integer deleted = transactionTemplate.execute(status -> {
+            if (mode == Mode.ARCHIVE) {
+                Timestamp archivedAt = Timestamp.valueOf(LocalDateTime.now());
+                List<Object[]> archiveArgs = new ArrayList<>(page.size());
+                for (Key key : page) {
+                    archiveArgs.add(new Object[] {archivedAt, key.deviceId(), cutoff});
+                }
+                jdbcTemplate.batchUpdate(ARCHIVE_SQL, archiveArgs);
+            }
+            int[] rows = jdbcTemplate.batchUpdate(DELETE_SQL, args);
+            List<String> purged = new ArrayList<>(page.size());
+            for (int i = 0; i < rows.length; i++) {
+                // Drivers may report success without a row count
+                if (rows[i] != 0) {
+                    purged.add(page.get(i).deviceId());
+                }
+            }
+            visitHistory.delete(purged);
+            int count = purged.size();
+            jdbcTemplate.update(UPDATE_CHECKPOINT_SQL, last.lastSeen(), last.deviceId(), count, JOB_NAME);
+            return count;
+        });
+        return deleted == null ? 0 : deleted;
+    }
+
+    /**
+     * Sleeps as long as needed to stay at or below max-rows-per-second over the run.
+     */
+    private void throttle(long purged, long startTime) {
+        if (maxRowsPerSecond <= 0) {
+            return;
+        }
+        long earliest = startTime + (long) (purged * 1e9 / maxRowsPerSecond);
+        long wait = earliest - System.nanoTime();
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopRequested = true;
+            }
+        }
+    }
+}
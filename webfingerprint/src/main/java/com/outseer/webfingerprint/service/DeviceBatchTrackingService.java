@@ -0,0 +1,223 @@
+package com.outseer.webfingerprint.service;
+
+import com.outseer.webfingerprint.analytics.DeviceAnalytics;
+import com.outseer.webfingerprint.cache.DeviceCache;
+import com.outseer.webfingerprint.dto.DeviceFingerprintRequest;
+import com.outseer.webfingerprint.dto.DeviceTrackingResponse;
+import com.outseer.webfingerprint.fingerprint.DeviceKeys;
+import com.outseer.webfingerprint.history.VisitHistory;
+import com.outseer.webfingerprint.journal.VisitJournal;
+import com.outseer.webfingerprint.model.Device;
+import com.outseer.webfingerprint.monitoring.ServerTiming;
+import com.outseer.webfingerprint.monitoring.ServerTiming.Phase;
+import com.outseer.webfingerprint.repository.DeviceRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks many device fingerprints in one pass.
+ * Each fingerprint is tracked under its device id from {@link DeviceKeys}. Ids are
+ * deduplicated, existing devices are loaded with one IN query (skipping ids the Bloom filter
+ * in {@link DeviceCache} has never seen) and all inserts and updates are written in a single
+ * transaction using JDBC batching.
+ * The batch's database reads and writes are added to the request's {@link ServerTiming}.
+ */
+@Service
+public class DeviceBatchTrackingService {
+
+    private final DeviceRepository deviceRepository;
+    private final DeviceTrackingService deviceTrackingService;
+    private final VisitCounterBuffer visitCounterBuffer;
+    private final VisitJournal visitJournal;
+    private final VisitHistory visitHistory;
+    private final DeviceAnalytics deviceAnalytics;
+    private final DeviceCache deviceCache;
+    private final DeviceLockStripes deviceLocks;
+    private final DeviceKeys deviceKeys;
+    private final LoggingService loggingService;
+    private final TransactionTemplate transactionTemplate;
+
+    public DeviceBatchTrackingService(DeviceRepository deviceRepository,
+                                      DeviceTrackingService deviceTrackingService,
+                                      VisitCounterBuffer visitCounterBuffer,
+                                      VisitJournal visitJournal,
+                                      VisitHistory visitHistory,
+                                      DeviceAnalytics deviceAnalytics,
+                                      DeviceCache deviceCache,
+                                      DeviceLockStripes deviceLocks,
+                                      DeviceKeys deviceKeys,
+                                      LoggingService loggingService,
+                                      PlatformTransactionManager transactionManager) {
+        this.deviceRepository = deviceRepository;
+        this.deviceTrackingService = deviceTrackingService;
+        this.visitCounterBuffer = visitCounterBuffer;
+        this.visitJournal = visitJournal;
+        this.visitHistory = visitHistory;
+        this.deviceAnalytics = deviceAnalytics;
+        this.deviceCache = deviceCache;
+        this.deviceLocks = deviceLocks;
+        this.deviceKeys = deviceKeys;
+        this.loggingService = loggingService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Creates or updates every device in the batch and returns tracking info.
+     * @param requests Device fingerprints, possibly of the same device several times
+     * @return One DeviceTrackingResponse per request, in request order
+     */
+    public List<DeviceTrackingResponse> trackDevices(List<DeviceFingerprintRequest> requests) {
+        long startTime = System.currentTimeMillis();
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+
+        // First request per device supplies the device attributes, later ones only add visits
+        List<String> deviceIds = new ArrayList<>(requests.size());
+        Map<String, BatchEntry> entries = new LinkedHashMap<>();
+        for (DeviceFingerprintRequest request : requests) {
+            String deviceId = deviceKeys.deviceIdOf(request);
+            deviceIds.add(deviceId);
+            entries.computeIfAbsent(deviceId, id -> new BatchEntry(request)).visits++;
+        }
+
+        // Ids the Bloom filter has never seen are new and need not be looked up
+        List<String> candidates = new ArrayList<>(entries.size());
+        for (String deviceId : entries.keySet()) {
+            if (!deviceCache.isDefinitelyUnknown(deviceId)) {
+                candidates.add(deviceId);
+            }
+            deviceCache.registerDeviceId(deviceId);
+        }
+
+        Map<String, Device> devices = writeBatchWithRetry(entries, candidates);
+
+        // Journaled or buffered visits are recorded only once the batch has committed, so a retry cannot count
+        // them twice. Each device is cached under its lock stripe, one device at a time, so no stripe is held
+        // across the batch. A single visit may have written and cached the device since the batch committed,
+        // so a stored count never replaces a higher cached one.
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<String, BatchEntry> batchEntry : entries.entrySet()) {
+            String deviceId = batchEntry.getKey();
+            BatchEntry entry = batchEntry.getValue();
+            Device device = deviceLocks.withLock(deviceId, () -> {
+                Device stored = devices.get(deviceId);
+                if (entry.deferred) {
+                    // Same durability path as single visits: the journal if enabled, else the write-behind buffer
+                    int visitCount = visitJournal.isEnabled()
+                            ? visitJournal.recordVisits(deviceId, stored.getVisitCount(), entry.visits, now, null)
+                            : visitCounterBuffer.recordVisits(deviceId, stored.getVisitCount(), entry.visits, now);
+                    entry.startCount = visitCount - entry.visits;
+                    stored = copyOf(stored, visitCount, now);
+                }
+                deviceCache.putIfNotOlder(stored);
+                return stored;
+            });
+            devices.put(deviceId, device);
+            visitHistory.recordVisits(deviceId, device.getLastSeen(), entry.visits);
+            deviceAnalytics.recordVisits(deviceId, device.getLastSeen(), entry.visits);
+        }
+
+        List<DeviceTrackingResponse> responses = new ArrayList<>(requests.size());
+        Map<String, Integer> seen = new HashMap<>();
+        for (String deviceId : deviceIds) {
+            BatchEntry entry = entries.get(deviceId);
+            int occurrence = seen.merge(deviceId, 1, Integer::sum);
+            responses.add(deviceTrackingService.createDeviceTrackingResponse(
+                    devices.get(deviceId), entry.startCount + occurrence, "success"));
+        }
+
+        long newDevices = entries.values().stream().filter(entry -> entry.startCount == 0).count();
+        loggingService.deviceBatchTracked(requests.size(), entries.size(), newDevices);
+        loggingService.deviceBatchPerformanceMetric("TRACK_DEVICE_BATCH", System.currentTimeMillis() - startTime,
+                requests.size(), entries.size());
+        return responses;
+    }
+
+    private Map<String, Device> writeBatchWithRetry(Map<String, BatchEntry> entries, Collection<String> candidates) {
+        try {
+            return writeBatch(entries, candidates);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent request inserted one of the new devices first; it is now an update
+            loggingService.debug("Retrying device batch after concurrent insert: {}", e.getMessage());
+            return writeBatch(entries, entries.keySet());
+        }
+    }
+
+    private Map<String, Device> writeBatch(Map<String, BatchEntry> entries, Collection<String> candidates) {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            Map<String, Device> devices = new HashMap<>();
+
+            if (!candidates.isEmpty()) {
+                long dbStartTime = System.currentTimeMillis();
+                long phaseStart = ServerTiming.start();
+                for (Device device : deviceRepository.findAllForUpdate(candidates)) {
+                    devices.put(device.getDeviceId(), device);
+                }
+                ServerTiming.record(Phase.DB_READ, phaseStart);
+                loggingService.databaseOperation("FIND_ALL", "Device", System.currentTimeMillis() - dbStartTime);
+            }
+
+            List<Device> toSave = new ArrayList<>();
+            for (Map.Entry<String, BatchEntry> batchEntry : entries.entrySet()) {
+                BatchEntry entry = batchEntry.getValue();
+                Device device = devices.get(batchEntry.getKey());
+                if (device == null) {
+                    DeviceFingerprintRequest request = entry.request;
+                    device = new Device(batchEntry.getKey(), request.getUserAgent(), request.getScreenResolution(),
+                            request.getTimezone(), request.getLanguage(), request.getPlatform());
+                    device.setVisitCount(entry.visits);
+                    entry.deferred = false;
+                    entry.startCount = 0;
+                    devices.put(device.getDeviceId(), device);
+                    toSave.add(device);
+                } else if (visitJournal.isEnabled() || visitCounterBuffer.isEnabled()) {
+                    entry.deferred = true;
+                } else {
+                    entry.deferred = false;
+                    entry.startCount = device.getVisitCount();
+                    device.setVisitCount(device.getVisitCount() + entry.visits);
+                    device.setLastSeen(now);
+                    toSave.add(device);
+                }
+            }
+
+            long dbStartTime = System.currentTimeMillis();
+            long phaseStart = ServerTiming.start();
+            deviceRepository.saveAll(toSave);
+            deviceRepository.flush();
+            ServerTiming.record(Phase.DB_WRITE, phaseStart);
+            loggingService.databaseOperation("BATCH_SAVE", "Device", System.currentTimeMillis() - dbStartTime);
+            return devices;
+        });
+    }
+
+    private static Device copyOf(Device device, int visitCount, LocalDateTime lastSeen) {
+        Device copy = new Device(device);
+        copy.setLastSeen(lastSeen);
+        copy.setVisitCount(visitCount);
+        return copy;
+    }
+
+    private static final class BatchEntry {
+        private final DeviceFingerprintRequest request;
+        private int visits;
+        private int startCount;
+        private boolean deferred;
+
+        private BatchEntry(DeviceFingerprintRequest request) {
+            this.request = request;
+        }
+    }
+}
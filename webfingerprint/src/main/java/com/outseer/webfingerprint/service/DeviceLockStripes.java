@@ -0,0 +1,71 @@
+package com.outseer.webfingerprint.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Fixed set of locks keyed by device hash.
+ * Updates to the same device are serialised, while different devices map to different
+ * stripes and proceed in parallel, apart from the occasional shared stripe.
+ */
+@Component
+public class DeviceLockStripes {
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+    private final Counter contended;
+
+    public DeviceLockStripes(@Value("${device.tracking.lock-stripes:1024}") int stripes, MeterRegistry meterRegistry) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("device.tracking.lock-stripes must be positive");
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.contended = Counter.builder("device.lock.contended")
+                .description("Device updates that had to wait for another update on the same lock stripe")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the action while holding the lock for the device.
+     * @param deviceId Device fingerprint hash
+     * @param action Update to run
+     * @return Result of the action
+     */
+    public <T> T withLock(String deviceId, Supplier<T> action) {
+        ReentrantLock lock = locks[stripe(deviceId)];
+        if (!lock.tryLock()) {
+            contended.increment();
+            lock.lock();
+        }
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of lock stripes, always a power of two.
+     */
+    public int stripes() {
+        return locks.length;
+    }
+
+    int stripe(String deviceId) {
+        int hash = deviceId.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,209 @@
+package com.outseer.webfingerprint.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.outseer.webfingerprint.dto.DeviceFingerprintRequest;
+import com.outseer.webfingerprint.dto.DeviceIngestSummary;
+import com.outseer.webfingerprint.dto.DeviceTrackingResponse;
+import com.outseer.webfingerprint.exception.RateLimitExceededException;
+import com.outseer.webfingerprint.fingerprint.DeviceKeys;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Ingests newline-delimited JSON fingerprints for bulk replay and backfills.
+ * The request body is parsed incrementally and tracked in bounded chunks, and results are
+ * streamed back as NDJSON, so heap use does not depend on the size of the input.
+ */
+@Service
+public class DeviceStreamIngestService {
+
+    private final DeviceBatchTrackingService deviceBatchTrackingService;
+    private final DeviceKeys deviceKeys;
+    private final LoggingService loggingService;
+    private final Validator validator;
+    private final ObjectReader fingerprintReader;
+    private final ObjectWriter lineWriter;
+    private final int chunkSize;
+
+    public DeviceStreamIngestService(DeviceBatchTrackingService deviceBatchTrackingService,
+                                     DeviceKeys deviceKeys,
+                                     LoggingService loggingService,
+                                     Validator validator,
+                                     ObjectMapper objectMapper,
+                                     @Value("${device.tracking.stream.chunk-size:500}") int chunkSize) {
+        this.deviceBatchTrackingService = deviceBatchTrackingService;
+        this.deviceKeys = deviceKeys;
+        this.loggingService = loggingService;
+        this.validator = validator;
+        this.fingerprintReader = objectMapper.readerFor(DeviceFingerprintRequest.class);
+        this.lineWriter = objectMapper.writer()
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reads fingerprints from the input, tracks them chunk by chunk and writes results to the output.
+     * @param input NDJSON request body, one DeviceFingerprintRequest per line
+     * @param output NDJSON response body
+     * @param summaryOnly Whether to write only the summary line instead of one result per input line
+     * @return Summary of the ingestion, also written as the last output line
+     */
+    public DeviceIngestSummary ingest(InputStream input, OutputStream output, boolean summaryOnly) throws IOException {
+        return ingest(input, output, summaryOnly, fingerprints -> { });
+    }
+
+    /**
+     * Reads fingerprints from the input, tracks them chunk by chunk and writes results to the output, passing
+     * each chunk through a throttle first. A throttle that blocks slows down reading the input, so the client is
+     * held back rather than its fingerprints dropped; one that gives up with {@link RateLimitExceededException}
+     * ends the ingestion with the status partial and the line to resume from.
+     * @param input NDJSON request body, one DeviceFingerprintRequest per line
+     * @param output NDJSON response body
+     * @param summaryOnly Whether to write only the summary line instead of one result per input line
+     * @param throttle Called with the number of fingerprints in each chunk before the chunk is tracked
+     * @return Summary of the ingestion, also written as the last output line
+     */
+    public DeviceIngestSummary ingest(InputStream input, OutputStream output, boolean summaryOnly,
+                                      IntConsumer throttle) throws IOException {
+        long startTime = System.currentTimeMillis();
+        IngestProgress progress = new IngestProgress();
+        String status = "success";
+        String message = null;
+
+        try (SequenceWriter writer = lineWriter.writeValues(output);
+             MappingIterator<DeviceFingerprintRequest> records = fingerprintReader.readValues(input)) {
+            List<DeviceFingerprintRequest> chunk = new ArrayList<>(chunkSize);
+            ChunkWriter chunkWriter = new ChunkWriter(writer, summaryOnly, progress, throttle);
+            RateLimitExceededException throttled = null;
+            try {
+                while (records.hasNextValue()) {
+                    DeviceFingerprintRequest request = records.nextValue();
+                    progress.lines++;
+                    String violation = validate(request);
+                    if (violation != null) {
+                        progress.rejected++;
+                        if (!summaryOnly) {
+                            chunkWriter.write(chunk);
+                            writer.write(rejected(progress.lines, violation));
+                        }
+                        continue;
+                    }
+                    chunk.add(request);
+                    if (chunk.size() == chunkSize) {
+                        chunkWriter.write(chunk);
+                    }
+                }
+            } catch (RateLimitExceededException e) {
+                throttled = e;
+            } catch (JsonProcessingException e) {
+                // Malformed JSON cannot be resynchronised reliably, so ingestion stops at this line
+                status = "partial";
+                long line = e.getLocation() != null ? e.getLocation().getLineNr() : progress.lines + 1;
+                message = "Malformed JSON at line " + line + ": " + e.getOriginalMessage();
+                loggingService.warn("Stopping NDJSON ingestion: {}", message);
+            }
+            if (throttled == null) {
+                try {
+                    chunkWriter.write(chunk);
+                } catch (RateLimitExceededException e) {
+                    throttled = e;
+                }
+            }
+            if (throttled != null) {
+                // The quota did not refill within the longest wait; every line before the chunk was handled
+                status = "partial";
+                message = throttled.getMessage() + "; resend from line " + chunkWriter.firstUntracked;
+                loggingService.warn("Stopping NDJSON ingestion: {}", message);
+            }
+
+            long durationMs = System.currentTimeMillis() - startTime;
+            DeviceIngestSummary summary = new DeviceIngestSummary(progress.lines, progress.tracked, progress.rejected,
+                    durationMs, durationMs > 0 ? progress.lines * 1000.0 / durationMs : progress.lines, status, message);
+            writer.write(summary);
+            writer.flush();
+            output.write('\n');
+            output.flush();
+
+            loggingService.deviceStreamIngested(progress.lines, progress.tracked, progress.rejected);
+            loggingService.deviceStreamPerformanceMetric("INGEST_DEVICE_STREAM", durationMs, progress.lines,
+                    summary.getLinesPerSecond());
+            return summary;
+        }
+    }
+
+    /**
+     * Tracks chunks of valid fingerprints and writes their results.
+     */
+    private final class ChunkWriter {
+        private final SequenceWriter writer;
+        private final boolean summaryOnly;
+        private final IngestProgress progress;
+        private final IntConsumer throttle;
+        // Input line of the first fingerprint not tracked yet
+        private long firstUntracked = 1;
+
+        private ChunkWriter(SequenceWriter writer, boolean summaryOnly, IngestProgress progress,
+                            IntConsumer throttle) {
+            this.writer = writer;
+            this.summaryOnly = summaryOnly;
+            this.progress = progress;
+            this.throttle = throttle;
+        }
+
+        private void write(List<DeviceFingerprintRequest> chunk) throws IOException {
+            if (chunk.isEmpty()) {
+                firstUntracked = progress.lines + 1;
+                return;
+            }
+            throttle.accept(chunk.size());
+            List<DeviceTrackingResponse> responses = deviceBatchTrackingService.trackDevices(chunk);
+            progress.tracked += responses.size();
+            if (!summaryOnly) {
+                for (DeviceTrackingResponse response : responses) {
+                    writer.write(response);
+                }
+                writer.flush();
+            }
+            chunk.clear();
+            firstUntracked = progress.lines + 1;
+        }
+    }
+
+    private String validate(DeviceFingerprintRequest request) {
+        Set<ConstraintViolation<DeviceFingerprintRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return violations.iterator().next().getMessage();
+        }
+        return deviceKeys.validate(request);
+    }
+
+    private static DeviceTrackingResponse rejected(long line, String violation) {
+        DeviceTrackingResponse response = new DeviceTrackingResponse();
+        response.setStatus("rejected");
+        response.setMessage("Line " + line + ": " + violation);
+        return response;
+    }
+
+    private static final class IngestProgress {
+        private long lines;
+        private long tracked;
+        private long rejected;
+    }
+}
@@ -1,17 +1,27 @@
 package com.outseer.webfingerprint.service;
 
+import com.outseer.webfingerprint.analytics.DeviceAnalytics;
 
+import com.outseer.webfingerprint.cache.DeviceCache;
 import com.outseer.webfingerprint.dto.DeviceFingerprintRequest;
 import com.outseer.webfingerprint.dto.DeviceTrackingResponse;
+import com.outseer.webfingerprint.dto.DeviceVisitHistoryResponse;
 import com.outseer.webfingerprint.exception.DeviceNotFoundException;
+import com.outseer.webfingerprint.history.VisitHistory;
+import com.outseer.webfingerprint.jfr.DeviceSaveEvent;
+import com.outseer.webfingerprint.journal.VisitJournal;
 import com.outseer.webfingerprint.model.Device;
+import com.outseer.webfingerprint.monitoring.ServerTiming;
+import com.outseer.webfingerprint.monitoring.ServerTiming.Phase;
 import com.outseer.webfingerprint.repository.DeviceRepository;
 import org.springframework.stereotype.Service;
-import org.springframework.cache.annotation.CachePut;
-import org.springframework.cache.annotation.Cacheable;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -19,50 +29,75 @@ public class DeviceTrackingService {
 
     private final DeviceRepository deviceRepository;
     private final LoggingService loggingService;
+    private final VisitCounterBuffer visitCounterBuffer;
+    private final VisitJournal visitJournal;
+    private final VisitHistory visitHistory;
+    private final DeviceAnalytics deviceAnalytics;
+    private final DeviceCache deviceCache;
+    private final DeviceLockStripes deviceLocks;
 
-    public DeviceTrackingService(DeviceRepository deviceRepository, LoggingService loggingService) {
+    public DeviceTrackingService(DeviceRepository deviceRepository, LoggingService loggingService,
+                                 VisitCounterBuffer visitCounterBuffer, VisitJournal visitJournal,
+                                 VisitHistory visitHistory, DeviceAnalytics deviceAnalytics, DeviceCache deviceCache,
+                                 DeviceLockStripes deviceLocks) {
         this.deviceRepository = deviceRepository;
         this.loggingService = loggingService;
+        this.visitCounterBuffer = visitCounterBuffer;
+        this.visitJournal = visitJournal;
+        this.visitHistory = visitHistory;
+        this.deviceAnalytics = deviceAnalytics;
+        this.deviceCache = deviceCache;
+        this.deviceLocks = deviceLocks;
     }
 
     /**
      * Creates a new device entry or updates an existing one from the fingerprint request and returns tracking info.
-     * This method will also update the cache after saving the device.
      * @param request Device fingerprint data from client
+     * @param deviceId Id the device is tracked under, see DeviceKeys
      * @return DeviceTrackingResponse with visit count and a relevant message
      */
-    @CachePut(value = "devices", key = "#request.hash")
-    public DeviceTrackingResponse createOrUpdateDeviceInfo(DeviceFingerprintRequest request) {
+    public DeviceTrackingResponse createOrUpdateDeviceInfo(DeviceFingerprintRequest request, String deviceId) {
+        return createOrUpdateDeviceInfo(request, deviceId, null);
+    }
+
+    /**
+     * Creates a new device entry or updates an existing one from the fingerprint request and returns tracking info.
+     * The device is inserted or its visit count incremented in one atomic statement, unless the visit journal
+     * or write-behind counting is enabled, in which case visits to known devices are journaled or buffered.
+     * This method will also update the cache after saving the device. The update and the cache write
+     * run under the device's lock stripe, so the cached visit count never goes backwards.
+     * Cache, database and response build times are added to the request's {@link ServerTiming}.
+     * @param request Device fingerprint data from client; its hash is not used
+     * @param deviceId Id the device is tracked under, see DeviceKeys
+     * @param clientIp Client IP address recorded in the visit journal, or null if unknown
+     * @return DeviceTrackingResponse with visit count and a relevant message
+     */
+    public DeviceTrackingResponse createOrUpdateDeviceInfo(DeviceFingerprintRequest request, String deviceId,
+                                                           String clientIp) {
         long startTime = System.currentTimeMillis();
-        loggingService.debug("Processing device tracking request for hash: {}", request.getHash());
+        loggingService.debug("Processing device tracking request for device: {}", deviceId);
         
-        Optional<Device> existingDevice = deviceRepository.findById(request.getHash());
-
-        Device deviceToSave;
-        if (existingDevice.isPresent()) {
-            deviceToSave = existingDevice.get();
-            deviceToSave.setVisitCount(deviceToSave.getVisitCount() + 1);
-            deviceToSave.setLastSeen(LocalDateTime.now());
-            loggingService.deviceTracked(request.getHash(), request.getUserAgent(), deviceToSave.getVisitCount());
+        Device device = deviceLocks.withLock(deviceId, () -> {
+            Optional<Device> existingDevice = defersVisits() ? cachedDevice(deviceId) : Optional.empty();
+            Device visited = existingDevice.isPresent()
+                    ? deferVisit(existingDevice.get(), clientIp) : upsertVisit(request, deviceId);
+            cacheDevice(visited);
+            return visited;
+        });
+        visitHistory.recordVisit(device.getDeviceId(), device.getLastSeen());
+        deviceAnalytics.recordVisit(device.getDeviceId(), device.getLastSeen());
+
+        if (device.getVisitCount() == 1) {
+            loggingService.newDeviceRegistered(deviceId, request.getUserAgent());
         } else {
-            deviceToSave = new Device(request.getHash(), request.getUserAgent(), request.getScreenResolution(), request.getTimezone()
-                    , request.getLanguage(), request.getPlatform());
-            deviceToSave.setVisitCount(1);
-            deviceToSave.setFirstSeen(LocalDateTime.now());
-            deviceToSave.setLastSeen(LocalDateTime.now());
-            loggingService.newDeviceRegistered(request.getHash(), request.getUserAgent());
+            loggingService.deviceTracked(deviceId, request.getUserAgent(), device.getVisitCount());
         }
         
-        long dbStartTime = System.currentTimeMillis();
-        deviceRepository.save(deviceToSave);
-        long dbDuration = System.currentTimeMillis() - dbStartTime;
-        loggingService.databaseOperation("SAVE", "Device", dbDuration);
-        
         long totalDuration = System.currentTimeMillis() - startTime;
-        loggingService.performanceMetric("CREATE_OR_UPDATE_DEVICE", totalDuration, 
-            String.format("Device: %s, VisitCount: %d", request.getHash(), deviceToSave.getVisitCount()));
+        loggingService.devicePerformanceMetric("CREATE_OR_UPDATE_DEVICE", totalDuration,
+            deviceId, device.getVisitCount());
         
-        return createDeviceTrackingResponse(deviceToSave, "success");
+        return createDeviceTrackingResponse(device, "success");
     }
 
     /**
@@ -71,27 +106,56 @@ public class DeviceTrackingService {
      * @return DeviceTrackingResponse with updated stats
      */
     public DeviceTrackingResponse getDeviceStats(String id) {
+        return getDeviceStats(id, null);
+    }
+
+    /**
+     * Retrieves device statistics by device ID and updates visit count.
+     * Cache, database and response build times are added to the request's {@link ServerTiming}.
+     * @param id Device fingerprint hash
+     * @param clientIp Client IP address recorded in the visit journal, or null if unknown
+     * @return DeviceTrackingResponse with updated stats
+     */
+    public DeviceTrackingResponse getDeviceStats(String id, String clientIp) {
         long startTime = System.currentTimeMillis();
         loggingService.debug("Retrieving device stats for hash: {}", id);
         
-        Optional<Device> deviceOptional = findDeviceById(id);
+        Optional<Device> deviceOptional = cachedDevice(id);
         if (deviceOptional.isPresent()) {
-            Device existingDevice = deviceOptional.get();
-            existingDevice.setVisitCount(existingDevice.getVisitCount() + 1);
-            existingDevice.setLastSeen(LocalDateTime.now());
-            
-            long dbStartTime = System.currentTimeMillis();
-            deviceRepository.save(existingDevice);
-            long dbDuration = System.currentTimeMillis() - dbStartTime;
-            loggingService.databaseOperation("UPDATE", "Device", dbDuration);
+            Device device = deviceLocks.withLock(id, () -> {
+                Device visited;
+                if (defersVisits()) {
+                    // Re-read under the lock so the journal or buffer starts from the latest cached count
+                    visited = deferVisit(cachedDevice(id).orElse(deviceOptional.get()), clientIp);
+                } else {
+                    long dbStartTime = System.currentTimeMillis();
+                    long phaseStart = ServerTiming.start();
+                    DeviceSaveEvent event = new DeviceSaveEvent("INCREMENT", id);
+                    Optional<Device> updatedDevice = deviceRepository.incrementVisit(id, LocalDateTime.now());
+                    event.complete(updatedDevice.map(Device::getVisitCount).orElse(0));
+                    ServerTiming.record(Phase.DB_WRITE, phaseStart);
+                    long dbDuration = System.currentTimeMillis() - dbStartTime;
+                    loggingService.databaseOperation("UPDATE", "Device", dbDuration);
+                    if (updatedDevice.isEmpty()) {
+                        // Removed from the database since it was cached
+                        deviceCache.evict(id);
+                        loggingService.warn("Device not found for hash: {}", id);
+                        throw new DeviceNotFoundException("Device Not Found");
+                    }
+                    visited = updatedDevice.get();
+                }
+                cacheDevice(visited);
+                return visited;
+            });
+            visitHistory.recordVisit(id, device.getLastSeen());
+            deviceAnalytics.recordVisit(id, device.getLastSeen());
             
-            loggingService.deviceTracked(id, existingDevice.getUserAgent(), existingDevice.getVisitCount());
+            loggingService.deviceTracked(id, device.getUserAgent(), device.getVisitCount());
             
             long totalDuration = System.currentTimeMillis() - startTime;
-            loggingService.performanceMetric("GET_DEVICE_STATS", totalDuration, 
-                String.format("Device: %s, VisitCount: %d", id, existingDevice.getVisitCount()));
+            loggingService.devicePerformanceMetric("GET_DEVICE_STATS", totalDuration, id, device.getVisitCount());
             
-            return createDeviceTrackingResponse(existingDevice, "success");
+            return createDeviceTrackingResponse(device, "success");
         } else {
             loggingService.warn("Device not found for hash: {}", id);
             throw new DeviceNotFoundException("Device Not Found");
@@ -99,27 +163,125 @@ public class DeviceTrackingService {
     }
 
     /**
-     * Fetches a device by its ID from the repository, with caching.
+     * Retrieves the visits of a device within a time range, without counting a visit.
+     * Only the stored history blocks overlapping the range are read.
      * @param id Device fingerprint hash
-     * @return Optional containing the Device if found, otherwise empty.
+     * @param from Start of the range, or null for the device's first visit
+     * @param to End of the range, or null for now
+     * @param limit Maximum number of visits to return, the oldest ones first
+     * @return DeviceVisitHistoryResponse with the visit times
      */
-    @Cacheable(value = "devices", key = "#id")
-    protected Optional<Device> findDeviceById(String id) {
+    public DeviceVisitHistoryResponse getVisitHistory(String id, LocalDateTime from, LocalDateTime to, int limit) {
         long startTime = System.currentTimeMillis();
-        Optional<Device> device = deviceRepository.findById(id);
-        long duration = System.currentTimeMillis() - startTime;
-        
-        if (device.isPresent()) {
-            loggingService.cacheOperation("GET", id, true);
-            loggingService.databaseOperation("FIND", "Device", duration);
-        } else {
-            loggingService.cacheOperation("GET", id, false);
-            loggingService.databaseOperation("FIND", "Device", duration);
+        Device device = cachedDevice(id).orElseThrow(() -> {
+            loggingService.warn("Device not found for hash: {}", id);
+            return new DeviceNotFoundException("Device Not Found");
+        });
+        LocalDateTime rangeFrom = from != null ? from : device.getFirstSeen();
+        LocalDateTime rangeTo = to != null ? to : LocalDateTime.now();
+
+        long dbStartTime = System.currentTimeMillis();
+        long phaseStart = ServerTiming.start();
+        VisitHistory.VisitRange range = visitHistory.visits(id, rangeFrom, rangeTo, limit);
+        ServerTiming.record(Phase.DB_READ, phaseStart);
+        loggingService.databaseOperation("SELECT", "DeviceVisitBlock", System.currentTimeMillis() - dbStartTime);
+
+        List<LocalDateTime> visits = new ArrayList<>(range.visits().length);
+        for (long visitedAt : range.visits()) {
+            visits.add(LocalDateTime.ofInstant(Instant.ofEpochSecond(visitedAt), ZoneId.systemDefault()));
         }
-        
+        loggingService.devicePerformanceMetric("GET_VISIT_HISTORY", System.currentTimeMillis() - startTime,
+                id, visits.size());
+        return new DeviceVisitHistoryResponse(id, rangeFrom, rangeTo, visits, range.truncated(), range.downsampled(),
+                "success");
+    }
+
+    /**
+     * Inserts the device or increments its visit count in a single atomic statement.
+     * @param request Device fingerprint data from client
+     * @param deviceId Id the device is tracked under
+     * @return Device with the stored row state after the visit
+     */
+    private Device upsertVisit(DeviceFingerprintRequest request, String deviceId) {
+        Device candidate = new Device(deviceId, request.getUserAgent(), request.getScreenResolution(),
+                request.getTimezone(), request.getLanguage(), request.getPlatform());
+        deviceCache.registerDeviceId(deviceId);
+
+        long dbStartTime = System.currentTimeMillis();
+        long phaseStart = ServerTiming.start();
+        DeviceSaveEvent event = new DeviceSaveEvent("UPSERT", deviceId);
+        Device device = deviceRepository.upsertVisit(candidate, LocalDateTime.now());
+        event.complete(device.getVisitCount());
+        ServerTiming.record(Phase.DB_WRITE, phaseStart);
+        long dbDuration = System.currentTimeMillis() - dbStartTime;
+        loggingService.databaseOperation("UPSERT", "Device", dbDuration);
         return device;
     }
 
+    /**
+     * Looks the device up in the cache, timed as the request's cache phase.
+     */
+    private Optional<Device> cachedDevice(String deviceId) {
+        long phaseStart = ServerTiming.start();
+        Optional<Device> device = deviceCache.get(deviceId);
+        ServerTiming.record(Phase.CACHE, phaseStart);
+        return device;
+    }
+
+    /**
+     * Stores the device in the cache, timed as the request's cache phase.
+     */
+    private void cacheDevice(Device device) {
+        long phaseStart = ServerTiming.start();
+        deviceCache.put(device);
+        ServerTiming.record(Phase.CACHE, phaseStart);
+    }
+
+    /**
+     * Whether visits to known devices skip the database update on the request path.
+     */
+    private boolean defersVisits() {
+        return visitJournal.isEnabled() || visitCounterBuffer.isEnabled();
+    }
+
+    /**
+     * Records a visit in the visit journal if it is enabled, otherwise in the write-behind buffer.
+     */
+    private Device deferVisit(Device device, String clientIp) {
+        return visitJournal.isEnabled() ? journalVisit(device, clientIp) : bufferVisit(device);
+    }
+
+    /**
+     * Appends a visit to the visit journal instead of saving the device.
+     * @param device Device as cached, which is left unchanged
+     * @param clientIp Client IP address, or null if unknown
+     * @return Copy of the device with the visit count including uncompacted visits
+     */
+    private Device journalVisit(Device device, String clientIp) {
+        LocalDateTime now = LocalDateTime.now();
+        DeviceSaveEvent event = new DeviceSaveEvent("JOURNALED", device.getDeviceId());
+        Device visited = new Device(device);
+        visited.setVisitCount(visitJournal.recordVisit(device.getDeviceId(), device.getVisitCount(), now, clientIp));
+        visited.setLastSeen(now);
+        event.complete(visited.getVisitCount());
+        return visited;
+    }
+
+    /**
+     * Adds a visit to the write-behind buffer instead of saving the device.
+     * @param device Device as cached, which is left unchanged
+     * @return Copy of the device with the visit count including unflushed visits
+     */
+    private Device bufferVisit(Device device) {
+        LocalDateTime now = LocalDateTime.now();
+        DeviceSaveEvent event = new DeviceSaveEvent("BUFFERED", device.getDeviceId());
+        Device visited = new Device(device);
+        visited.setVisitCount(visitCounterBuffer.recordVisit(device.getDeviceId(), device.getVisitCount(), now));
+        visited.setLastSeen(now);
+        event.complete(visited.getVisitCount());
+        return visited;
+    }
+
     /**
      * Builds a DeviceTrackingResponse from a Device entity.
      * @param device Device entity
@@ -127,20 +289,34 @@ public class DeviceTrackingService {
      * @return DeviceTrackingResponse with device info and stats
      */
     public DeviceTrackingResponse createDeviceTrackingResponse(Device device, String status) {
+        return createDeviceTrackingResponse(device, device.getVisitCount(), status);
+    }
+
+    /**
+     * Builds a DeviceTrackingResponse from a Device entity as of a given visit.
+     * @param device Device entity
+     * @param visitCount Visit count to report, e.g. for an earlier visit within a batch
+     * @param status Status string for response
+     * @return DeviceTrackingResponse with device info and stats
+     */
+    public DeviceTrackingResponse createDeviceTrackingResponse(Device device, int visitCount, String status) {
+        long phaseStart = ServerTiming.start();
         String message;
-        if (device.getVisitCount() == 1) {
+        if (visitCount == 1) {
             message = "Welcome! This is your first visit.";
         } else {
-            message = "Welcome back! This is your " + device.getVisitCount() + " visit.";
+            message = "Welcome back! This is your " + visitCount + " visit.";
         }
-        return new DeviceTrackingResponse(
+        DeviceTrackingResponse response = new DeviceTrackingResponse(
                 device.getDeviceId(),
                 Duration.between(device.getFirstSeen(), LocalDateTime.now()).toMinutes(),
                 message,
-                device.getVisitCount(),
+                visitCount,
                 status,
                 device.getFirstSeen(),
                 device.getLastSeen()
         );
+        ServerTiming.record(Phase.RESPONSE, phaseStart);
+        return response;
     }
 }
@@ -8,11 +8,20 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static net.logstash.logback.argument.StructuredArguments.entries;
+import static net.logstash.logback.argument.StructuredArguments.kv;
+import static net.logstash.logback.argument.StructuredArguments.v;
 
 /**
  * Comprehensive logging service for the WebFingerprint application.
  * Provides structured logging with different levels and specialized logging capabilities.
+ * <p>
+ * Events are logged with logstash {@code StructuredArguments}: each field is rendered as
+ * {@code key=value} in the message and as its own field by the JSON encoder. Every event method
+ * checks the level of its logger first, so a disabled event costs no formatting and no allocation;
+ * callers pass the raw fields instead of preformatted strings.
  */
 @Service
 public class LoggingService {
@@ -22,6 +31,7 @@ public class LoggingService {
     private static final Logger performanceLogger = LoggerFactory.getLogger("com.outseer.webfingerprint.performance");
     private static final Logger businessLogger = LoggerFactory.getLogger("com.outseer.webfingerprint.business");
     
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
     private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
     
     /**
@@ -45,6 +55,20 @@ public class LoggingService {
         logger.debug(message);
     }
     
+    /**
+     * Logs a debug message with one parameter
+     */
+    public void debug(String message, Object arg) {
+        logger.debug(message, arg);
+    }
+    
+    /**
+     * Logs a debug message with two parameters
+     */
+    public void debug(String message, Object arg1, Object arg2) {
+        logger.debug(message, arg1, arg2);
+    }
+    
     /**
      * Logs a debug message with parameters
      */
@@ -52,6 +76,13 @@ public class LoggingService {
         logger.debug(message, args);
     }
     
+    /**
+     * Whether debug messages are logged, for callers that need work to build their arguments
+     */
+    public boolean isDebugEnabled() {
+        return logger.isDebugEnabled();
+    }
+    
     /**
      * Logs a warning message
      */
@@ -91,18 +122,17 @@ public class LoggingService {
      * Logs a security event
      */
     public void securityEvent(String event, String details) {
-        securityLogger.info("SECURITY_EVENT: {} - {}", event, details);
+        if (securityLogger.isInfoEnabled()) {
+            securityLogger.info("SECURITY_EVENT: {} - {}", v("event", event), details);
+        }
     }
     
     /**
      * Logs a security event with additional context
      */
     public void securityEvent(String event, String details, Map<String, String> context) {
-        try {
-            context.forEach(MDC::put);
-            securityLogger.info("SECURITY_EVENT: {} - {} - Context: {}", event, details, context);
-        } finally {
-            context.keySet().forEach(MDC::remove);
+        if (securityLogger.isInfoEnabled()) {
+            securityLogger.info("SECURITY_EVENT: {} - {} - Context: {}", v("event", event), details, entries(context));
         }
     }
     
@@ -110,6 +140,9 @@ public class LoggingService {
      * Logs a failed authentication attempt
      */
     public void failedAuthentication(String username, String ipAddress, String reason) {
+        if (!securityLogger.isInfoEnabled()) {
+            return;
+        }
         securityEvent("AUTH_FAILED", 
             String.format("Failed authentication for user: %s from IP: %s", username, ipAddress), 
             Map.of("username", username, "ipAddress", ipAddress, "reason", reason));
@@ -119,6 +152,9 @@ public class LoggingService {
      * Logs a successful authentication
      */
     public void successfulAuthentication(String username, String ipAddress) {
+        if (!securityLogger.isInfoEnabled()) {
+            return;
+        }
         securityEvent("AUTH_SUCCESS", 
             String.format("Successful authentication for user: %s from IP: %s", username, ipAddress),
             Map.of("username", username, "ipAddress", ipAddress));
@@ -128,15 +164,59 @@ public class LoggingService {
      * Logs a performance metric
      */
     public void performanceMetric(String operation, long durationMs, String details) {
-        performanceLogger.info("PERFORMANCE: {} took {}ms - {}", operation, durationMs, details);
+        if (performanceLogger.isInfoEnabled()) {
+            performanceLogger.info("PERFORMANCE: {} took {}ms - {}",
+                v("operation", operation), v("durationMs", durationMs), details);
+        }
+    }
+    
+    /**
+     * Logs the duration of an operation on a single device
+     */
+    public void devicePerformanceMetric(String operation, long durationMs, String deviceHash, int visitCount) {
+        if (performanceLogger.isInfoEnabled()) {
+            performanceLogger.info("PERFORMANCE: {} took {}ms - {} {}", v("operation", operation),
+                v("durationMs", durationMs), kv("deviceHash", deviceHash), kv("visitCount", visitCount));
+        }
+    }
+    
+    /**
+     * Logs the duration of a batch tracking request
+     */
+    public void deviceBatchPerformanceMetric(String operation, long durationMs, int fingerprints, int devices) {
+        if (performanceLogger.isInfoEnabled()) {
+            performanceLogger.info("PERFORMANCE: {} took {}ms - {} {}", v("operation", operation),
+                v("durationMs", durationMs), kv("fingerprints", fingerprints), kv("devices", devices));
+        }
+    }
+    
+    /**
+     * Logs the duration and throughput of a streamed ingest
+     */
+    public void deviceStreamPerformanceMetric(String operation, long durationMs, long lines, double linesPerSecond) {
+        if (performanceLogger.isInfoEnabled()) {
+            performanceLogger.info("PERFORMANCE: {} took {}ms - {} {}", v("operation", operation),
+                v("durationMs", durationMs), kv("lines", lines), kv("linesPerSecond", linesPerSecond));
+        }
+    }
+    
+    /**
+     * Logs the duration of a method call
+     */
+    public void methodPerformanceMetric(String operation, long durationMs, String className, String methodName) {
+        if (performanceLogger.isInfoEnabled()) {
+            performanceLogger.info("PERFORMANCE: {} took {}ms - {} {}", v("operation", operation),
+                v("durationMs", durationMs), kv("class", className), kv("method", methodName));
+        }
     }
     
     /**
      * Logs a slow operation warning
      */
     public void slowOperation(String operation, long durationMs, long thresholdMs) {
-        if (durationMs > thresholdMs) {
-            performanceLogger.warn("SLOW_OPERATION: {} took {}ms (threshold: {}ms)", operation, durationMs, thresholdMs);
+        if (durationMs > thresholdMs && performanceLogger.isWarnEnabled()) {
+            performanceLogger.warn("SLOW_OPERATION: {} took {}ms (threshold: {}ms)",
+                v("operation", operation), v("durationMs", durationMs), v("thresholdMs", thresholdMs));
         }
     }
     
@@ -144,18 +224,17 @@ public class LoggingService {
      * Logs a business event
      */
     public void businessEvent(String event, String details) {
-        businessLogger.info("BUSINESS_EVENT: {} - {}", event, details);
+        if (businessLogger.isInfoEnabled()) {
+            businessLogger.info("BUSINESS_EVENT: {} - {}", v("event", event), details);
+        }
     }
     
     /**
      * Logs a business event with additional context
      */
     public void businessEvent(String event, String details, Map<String, Object> context) {
-        try {
-            context.forEach((key, value) -> MDC.put(key, String.valueOf(value)));
-            businessLogger.info("BUSINESS_EVENT: {} - {} - Context: {}", event, details, context);
-        } finally {
-            context.keySet().forEach(MDC::remove);
+        if (businessLogger.isInfoEnabled()) {
+            businessLogger.info("BUSINESS_EVENT: {} - {} - Context: {}", v("event", event), details, entries(context));
         }
     }
     
@@ -163,33 +242,49 @@ public class LoggingService {
      * Logs device tracking events
      */
     public void deviceTracked(String deviceHash, String userAgent, int visitCount) {
-        businessEvent("DEVICE_TRACKED", 
-            String.format("Device %s tracked, visit count: %d", deviceHash, visitCount),
-            Map.of("deviceHash", deviceHash, "userAgent", userAgent, "visitCount", visitCount));
+        if (businessLogger.isInfoEnabled()) {
+            businessLogger.info("BUSINESS_EVENT: {} - {} {} {}", v("event", "DEVICE_TRACKED"),
+                kv("deviceHash", deviceHash), kv("visitCount", visitCount), kv("userAgent", userAgent));
+        }
     }
     
     /**
      * Logs new device registration
      */
     public void newDeviceRegistered(String deviceHash, String userAgent) {
-        businessEvent("NEW_DEVICE", 
-            String.format("New device registered: %s", deviceHash),
-            Map.of("deviceHash", deviceHash, "userAgent", userAgent));
+        if (businessLogger.isInfoEnabled()) {
+            businessLogger.info("BUSINESS_EVENT: {} - {} {}", v("event", "NEW_DEVICE"),
+                kv("deviceHash", deviceHash), kv("userAgent", userAgent));
+        }
+    }
+    
+    /**
+     * Logs a tracked batch of fingerprints
+     */
+    public void deviceBatchTracked(int fingerprints, int devices, long newDevices) {
+        if (businessLogger.isInfoEnabled()) {
+            businessLogger.info("BUSINESS_EVENT: {} - {} {} {}", v("event", "DEVICE_BATCH_TRACKED"),
+                kv("fingerprints", fingerprints), kv("devices", devices), kv("newDevices", newDevices));
+        }
+    }
+    
+    /**
+     * Logs a completed stream of fingerprints
+     */
+    public void deviceStreamIngested(long lines, long tracked, long rejected) {
+        if (businessLogger.isInfoEnabled()) {
+            businessLogger.info("BUSINESS_EVENT: {} - {} {} {}", v("event", "DEVICE_STREAM_INGESTED"),
+                kv("lines", lines), kv("tracked", tracked), kv("rejected", rejected));
+        }
     }
     
     /**
      * Logs API request with correlation ID
      */
     public void apiRequest(String method, String path, String correlationId) {
-        try {
-            MDC.put("correlationId", correlationId);
-            MDC.put("requestMethod", method);
-            MDC.put("requestPath", path);
-            logger.info("API_REQUEST: {} {} - CorrelationId: {}", method, path, correlationId);
-        } finally {
-            MDC.remove("correlationId");
-            MDC.remove("requestMethod");
-            MDC.remove("requestPath");
+        if (logger.isInfoEnabled()) {
+            logger.info("API_REQUEST: {} {} - CorrelationId: {}",
+                v("requestMethod", method), v("requestPath", path), v("correlationId", correlationId));
         }
     }
     
@@ -197,26 +292,16 @@ public class LoggingService {
      * Logs API response with correlation ID
      */
     public void apiResponse(String method, String path, int statusCode, long durationMs, String correlationId) {
-        try {
-            MDC.put("correlationId", correlationId);
-            MDC.put("requestMethod", method);
-            MDC.put("requestPath", path);
-            MDC.put("responseStatus", String.valueOf(statusCode));
-            MDC.put("responseTime", String.valueOf(durationMs));
-            
-            if (statusCode >= 400) {
-                logger.warn("API_RESPONSE: {} {} - Status: {} - Duration: {}ms - CorrelationId: {}", 
-                    method, path, statusCode, durationMs, correlationId);
-            } else {
-                logger.info("API_RESPONSE: {} {} - Status: {} - Duration: {}ms - CorrelationId: {}", 
-                    method, path, statusCode, durationMs, correlationId);
+        if (statusCode >= 400) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("API_RESPONSE: {} {} - Status: {} - Duration: {}ms - CorrelationId: {}",
+                    v("requestMethod", method), v("requestPath", path), v("responseStatus", statusCode),
+                    v("responseTime", durationMs), v("correlationId", correlationId));
             }
-        } finally {
-            MDC.remove("correlationId");
-            MDC.remove("requestMethod");
-            MDC.remove("requestPath");
-            MDC.remove("responseStatus");
-            MDC.remove("responseTime");
+        } else if (logger.isInfoEnabled()) {
+            logger.info("API_RESPONSE: {} {} - Status: {} - Duration: {}ms - CorrelationId: {}",
+                v("requestMethod", method), v("requestPath", path), v("responseStatus", statusCode),
+                v("responseTime", durationMs), v("correlationId", correlationId));
         }
     }
     
@@ -224,14 +309,19 @@ public class LoggingService {
      * Logs database operations
      */
     public void databaseOperation(String operation, String entity, long durationMs) {
-        performanceMetric("DB_" + operation, durationMs, "Entity: " + entity);
+        if (performanceLogger.isInfoEnabled()) {
+            performanceLogger.info("PERFORMANCE: DB_{} took {}ms - {}",
+                v("operation", operation), v("durationMs", durationMs), kv("entity", entity));
+        }
     }
     
     /**
      * Logs cache operations
      */
     public void cacheOperation(String operation, String key, boolean hit) {
-        logger.debug("CACHE_{}: {} - Key: {} - Hit: {}", operation.toUpperCase(), key, hit);
+        if (logger.isDebugEnabled()) {
+            logger.debug("CACHE_{}: {} {}", v("operation", operation.toUpperCase()), kv("key", key), kv("hit", hit));
+        }
     }
     
     /**
@@ -267,10 +357,23 @@ public class LoggingService {
     }
     
     /**
-     * Generates a correlation ID for request tracing
+     * Generates a correlation ID for request tracing: 12 hex digits of the current time in
+     * milliseconds and 12 random hex digits, so IDs sort by creation time. Unlike a random UUID
+     * this does not go through SecureRandom.
      */
     public String generateCorrelationId() {
-        return UUID.randomUUID().toString();
+        char[] id = new char[25];
+        appendHex(id, 0, System.currentTimeMillis());
+        id[12] = '-';
+        appendHex(id, 13, ThreadLocalRandom.current().nextLong());
+        return new String(id);
+    }
+
+    private static void appendHex(char[] target, int offset, long value) {
+        for (int i = 11; i >= 0; i--) {
+            target[offset + i] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
     }
     
     /**
@@ -0,0 +1,215 @@
+package com.outseer.webfingerprint.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for device visit counters.
+ * Visits are added up in memory per device and flushed to the devices table
+ * in periodic batched UPDATEs instead of a read-modify-write per request.
+ * The flush runs on a virtual thread when spring.threads.virtual.enabled is set.
+ */
+@Component
+public class VisitCounterBuffer {
+
+    static final String FLUSH_SQL = "UPDATE devices SET visit_count = visit_count + ?, "
+            + "last_seen = CASE WHEN last_seen < ? THEN ? ELSE last_seen END WHERE device_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LoggingService loggingService;
+    private final boolean enabled;
+    private final long flushIntervalMs;
+    private final long maxLagMs;
+    private final boolean virtualThreads;
+
+    private final Map<String, PendingVisits> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public VisitCounterBuffer(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              LoggingService loggingService,
+                              @Value("${device.tracking.write-behind.enabled:false}") boolean enabled,
+                              @Value("${device.tracking.write-behind.flush-interval-ms:1000}") long flushIntervalMs,
+                              @Value("${device.tracking.write-behind.max-lag-ms:5000}") long maxLagMs,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.loggingService = loggingService;
+        this.enabled = enabled;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxLagMs = maxLagMs;
+        this.virtualThreads = virtualThreads;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(virtualThreads
+                ? Thread.ofVirtual().name("visit-counter-flush").factory()
+                : Thread.ofPlatform().name("visit-counter-flush").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::flushDue, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        loggingService.info("Write-behind visit counting enabled (flush interval: {}ms, max lag: {}ms)",
+                flushIntervalMs, maxLagMs);
+    }
+
+    /**
+     * Flushes every pending delta on shutdown so no visits are lost.
+     */
+    @PreDestroy
+    void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(flushIntervalMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(true);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records a visit for an existing device.
+     * @param deviceId Device fingerprint hash
+     * @param persistedVisitCount Visit count as currently stored in the database
+     * @param seenAt Time of the visit
+     * @return Visit count including all buffered visits for this device
+     */
+    public int recordVisit(String deviceId, int persistedVisitCount, LocalDateTime seenAt) {
+        return recordVisits(deviceId, persistedVisitCount, 1, seenAt);
+    }
+
+    /**
+     * Records several visits for an existing device at once.
+     * @param deviceId Device fingerprint hash
+     * @param persistedVisitCount Visit count as currently stored in the database
+     * @param visits Number of visits to add
+     * @param seenAt Time of the latest visit
+     * @return Visit count including all buffered visits for this device
+     */
+    public int recordVisits(String deviceId, int persistedVisitCount, int visits, LocalDateTime seenAt) {
+        long now = System.currentTimeMillis();
+        PendingVisits entry = pending.compute(deviceId, (id, existing) -> {
+            PendingVisits pendingVisits = existing != null ? existing : new PendingVisits(persistedVisitCount);
+            pendingVisits.add(visits, seenAt, now);
+            return pendingVisits;
+        });
+        return entry.visitCount;
+    }
+
+    /**
+     * Number of devices currently held in the buffer.
+     */
+    public int pendingDevices() {
+        return pending.size();
+    }
+
+    void flushDue() {
+        try {
+            flush(false);
+        } catch (Exception e) {
+            loggingService.error("Failed to flush buffered visit counts", e);
+        }
+    }
+
+    /**
+     * Writes buffered deltas to the database in one batched transaction.
+     * @param all Whether to flush every pending delta or only the ones older than the maximum lag
+     * @return Number of devices updated
+     */
+    int flush(boolean all) {
+        long now = System.currentTimeMillis();
+        List<String> deviceIds = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>();
+        for (String deviceId : pending.keySet()) {
+            pending.computeIfPresent(deviceId, (id, entry) -> {
+                int delta = entry.visitCount - entry.flushedCount;
+                if (delta > 0 && (all || now - entry.firstPendingAt >= maxLagMs)) {
+                    Timestamp lastSeen = Timestamp.valueOf(entry.lastSeen);
+                    deviceIds.add(id);
+                    batch.add(new Object[]{delta, lastSeen, lastSeen, id});
+                    entry.flushing = delta;
+                } else if (delta == 0 && now - entry.lastTouchedAt >= maxLagMs + flushIntervalMs) {
+                    return null;
+                }
+                return entry;
+            });
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        long dbStartTime = System.currentTimeMillis();
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(FLUSH_SQL, batch));
+        } catch (RuntimeException e) {
+            deviceIds.forEach(id -> pending.computeIfPresent(id, (key, entry) -> {
+                entry.flushing = 0;
+                return entry;
+            }));
+            throw e;
+        }
+        loggingService.databaseOperation("BATCH_UPDATE", "Device", System.currentTimeMillis() - dbStartTime);
+
+        deviceIds.forEach(id -> pending.computeIfPresent(id, (key, entry) -> {
+            entry.flushedCount += entry.flushing;
+            entry.flushing = 0;
+            if (entry.visitCount == entry.flushedCount) {
+                entry.firstPendingAt = 0L;
+            }
+            return entry;
+        }));
+        return batch.size();
+    }
+
+    /**
+     * Per-device visit accumulator. Only mutated while holding the map bin lock.
+     */
+    private static final class PendingVisits {
+        private int visitCount;
+        private int flushedCount;
+        private int flushing;
+        private LocalDateTime lastSeen;
+        private long firstPendingAt;
+        private long lastTouchedAt;
+
+        private PendingVisits(int baseCount) {
+            this.visitCount = baseCount;
+            this.flushedCount = baseCount;
+        }
+
+        private void add(int visits, LocalDateTime seenAt, long now) {
+            if (visitCount == flushedCount + flushing) {
+                firstPendingAt = now;
+            }
+            visitCount += visits;
+            if (lastSeen == null || seenAt.isAfter(lastSeen)) {
+                lastSeen = seenAt;
+            }
+            lastTouchedAt = now;
+        }
+    }
+}
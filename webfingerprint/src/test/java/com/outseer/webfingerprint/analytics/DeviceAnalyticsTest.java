@@ -0,0 +1,109 @@
+package com.outseer.webfingerprint.analytics;
+
+import com.outseer.webfingerprint.service.LoggingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:analytics")
+class DeviceAnalyticsTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LoggingService loggingService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS analytics_unique_devices");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS analytics_top_devices");
+    }
+
+    @Test
+    void uniqueDevices_ShouldCountDistinctDevicesPerBucket() {
+        DeviceAnalytics analytics = analytics();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime previousHour = now.minusHours(1);
+        for (int i = 0; i < 100; i++) {
+            analytics.recordVisit("hash" + i, now);
+            analytics.recordVisit("hash" + i, now);
+        }
+        for (int i = 50; i < 150; i++) {
+            analytics.recordVisit("hash" + i, previousHour);
+        }
+
+        DeviceAnalytics.UniqueDevices hourly = analytics.uniqueDevices(DeviceAnalytics.Granularity.HOUR, 3);
+
+        // Estimates of a HyperLogLog at precision 14 are within about 1% at these counts
+        assertEquals(0, hourly.buckets().get(0).uniqueDevices());
+        assertEquals(100, hourly.buckets().get(1).uniqueDevices(), 2);
+        assertEquals(100, hourly.buckets().get(2).uniqueDevices(), 2);
+        assertEquals(now.truncatedTo(ChronoUnit.HOURS), hourly.buckets().get(2).bucketStart());
+        assertEquals(150, hourly.uniqueDevices(), 3);
+        if (previousHour.toLocalDate().equals(now.toLocalDate())) {
+            assertEquals(150, analytics.uniqueDevices(DeviceAnalytics.Granularity.DAY, 1).uniqueDevices(), 3);
+        }
+    }
+
+    @Test
+    void recordVisit_ShouldIgnoreVisitsBeforeTheRetainedBuckets() {
+        DeviceAnalytics analytics = analytics();
+
+        analytics.recordVisit("hashA", LocalDateTime.now().minusDays(10));
+
+        assertEquals(0, analytics.uniqueDevices(DeviceAnalytics.Granularity.HOUR, 24).uniqueDevices());
+        assertEquals(1, analytics.uniqueDevices(DeviceAnalytics.Granularity.DAY, 31).uniqueDevices());
+        assertEquals(1, analytics.topDevices(10).size());
+    }
+
+    @Test
+    void topDevices_ShouldListMostVisitedDevices() {
+        DeviceAnalytics analytics = analytics();
+        LocalDateTime now = LocalDateTime.now();
+        analytics.recordVisits("hashA", now, 5);
+        analytics.recordVisit("hashB", now);
+        analytics.recordVisits("hashC", now, 3);
+
+        assertEquals(List.of("hashA", "hashC"),
+                analytics.topDevices(2).stream().map(SpaceSavingTopK.Entry::deviceId).toList());
+    }
+
+    @Test
+    void start_ShouldRestoreTheLastSnapshot() {
+        DeviceAnalytics analytics = analytics();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 10; i++) {
+            analytics.recordVisits("hash" + i, now, i + 1);
+        }
+        assertEquals(2, analytics.snapshot());
+        assertEquals(0, analytics.snapshot());
+        analytics.recordVisit("hash10", now);
+        analytics.stop();
+
+        DeviceAnalytics restarted = analytics();
+
+        assertEquals(11, restarted.uniqueDevices(DeviceAnalytics.Granularity.HOUR, 1).uniqueDevices());
+        assertEquals(new SpaceSavingTopK.Entry("hash9", 10, 0), restarted.topDevices(1).get(0));
+        restarted.stop();
+    }
+
+    private DeviceAnalytics analytics() {
+        DeviceAnalytics analytics = new DeviceAnalytics(jdbcTemplate, transactionManager, loggingService, true, 14,
+                48, 31, 100, 4, 60_000, false);
+        analytics.start();
+        return analytics;
+    }
+}
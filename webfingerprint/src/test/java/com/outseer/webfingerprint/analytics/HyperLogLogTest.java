@@ -0,0 +1,74 @@
+package com.outseer.webfingerprint.analytics;
+
+import com.outseer.webfingerprint.fingerprint.DeviceKey;
+import com.outseer.webfingerprint.fingerprint.Murmur3Hasher;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimate_ShouldBeWithinErrorOfDistinctDevices() {
+        for (int devices : new int[] {10, 1_000, 100_000}) {
+            HyperLogLog sketch = new HyperLogLog(14);
+            for (int i = 0; i < devices; i++) {
+                sketch.offer(HyperLogLog.hash("device-" + i));
+                // Repeat visits do not change the estimate
+                sketch.offer(HyperLogLog.hash("device-" + i));
+            }
+
+            double tolerance = Math.max(1, 4 * sketch.relativeError() * devices);
+            assertEquals(devices, sketch.estimate(), tolerance, "devices: " + devices);
+        }
+    }
+
+    @Test
+    void merge_ShouldEstimateTheUnion() {
+        HyperLogLog first = new HyperLogLog(14);
+        HyperLogLog second = new HyperLogLog(14);
+        for (int i = 0; i < 20_000; i++) {
+            first.offer(HyperLogLog.hash("device-" + i));
+            second.offer(HyperLogLog.hash("device-" + (i + 10_000)));
+        }
+
+        first.merge(second);
+
+        assertEquals(30_000, first.estimate(), 4 * first.relativeError() * 30_000);
+    }
+
+    @Test
+    void of_ShouldRestoreRegisters() {
+        HyperLogLog sketch = new HyperLogLog(10);
+        for (int i = 0; i < 500; i++) {
+            sketch.offer(HyperLogLog.hash("device-" + i));
+        }
+
+        HyperLogLog restored = HyperLogLog.of(sketch.registers());
+
+        assertEquals(10, restored.precision());
+        assertEquals(sketch.estimate(), restored.estimate());
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(12).merge(sketch));
+    }
+
+    @Test
+    void takeDirty_ShouldReportOnlyRegisterChanges() {
+        HyperLogLog sketch = new HyperLogLog(14);
+        assertFalse(sketch.takeDirty());
+
+        sketch.offer(HyperLogLog.hash("device"));
+        assertTrue(sketch.takeDirty());
+
+        sketch.offer(HyperLogLog.hash("device"));
+        assertFalse(sketch.takeDirty());
+    }
+
+    @Test
+    void hash_ShouldTakeTheDeviceKeyOfTheId() {
+        DeviceKey serverKey = new Murmur3Hasher().putString("fingerprint").hash();
+        assertEquals(serverKey.low(), HyperLogLog.hash(serverKey.toString()));
+        for (String deviceId : new String[] {"", "a1b2c3d4", "caf\u00e9", "\ud83d\ude00x"}) {
+            assertEquals(new Murmur3Hasher().putString(deviceId).hash().low(), HyperLogLog.hash(deviceId), deviceId);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.outseer.webfingerprint.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingTopKTest {
+
+    @Test
+    void top_ShouldCountExactlyWhileUnderCapacity() {
+        SpaceSavingTopK topK = new SpaceSavingTopK(10, 1);
+        topK.offer("hashA", 1);
+        topK.offer("hashB", 3);
+        topK.offer("hashA", 1);
+        topK.offer("hashC", 1);
+
+        assertEquals(List.of(new SpaceSavingTopK.Entry("hashB", 3, 0), new SpaceSavingTopK.Entry("hashA", 2, 0)),
+                topK.top(2));
+    }
+
+    @Test
+    void top_ShouldReturnNothingForANegativeLimit() {
+        SpaceSavingTopK topK = new SpaceSavingTopK(10, 1);
+        topK.offer("hashA", 1);
+
+        assertEquals(List.of(), topK.top(-1));
+    }
+
+    @Test
+    void offer_ShouldReplaceTheLeastVisitedDevice() {
+        SpaceSavingTopK topK = new SpaceSavingTopK(2, 1);
+        topK.offer("hashA", 5);
+        topK.offer("hashB", 2);
+
+        topK.offer("hashC", 1);
+
+        assertEquals(List.of(new SpaceSavingTopK.Entry("hashA", 5, 0), new SpaceSavingTopK.Entry("hashC", 3, 2)),
+                topK.top(10));
+    }
+
+    @Test
+    void top_ShouldFindHeavyHittersInASkewedStream() {
+        // 20 heavy devices with about 1,000 visits each among about 10,000 devices visiting once
+        SpaceSavingTopK topK = new SpaceSavingTopK(100, 4);
+        Map<String, Long> visits = new HashMap<>();
+        Random random = new Random(7);
+        int light = 0;
+        for (int i = 0; i < 30_000; i++) {
+            String deviceId = random.nextInt(3) == 0 ? "light-" + light++ : "heavy-" + random.nextInt(20);
+            topK.offer(deviceId, 1);
+            visits.merge(deviceId, 1L, Long::sum);
+        }
+
+        List<SpaceSavingTopK.Entry> top = topK.top(20);
+
+        assertEquals(20, top.stream().filter(entry -> entry.deviceId().startsWith("heavy-")).count());
+        for (SpaceSavingTopK.Entry entry : top) {
+            long actual = visits.get(entry.deviceId());
+            assertTrue(entry.visits() >= actual && entry.visits() - entry.error() <= actual, entry.toString());
+        }
+    }
+
+    @Test
+    void offer_ShouldCountConcurrentVisitsAcrossStripes() throws InterruptedException {
+        // 32 counters per stripe, so none of the 32 devices is ever evicted whichever stripes they map to
+        SpaceSavingTopK topK = new SpaceSavingTopK(256, 8);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 9_600; i++) {
+                    topK.offer("hash" + (i % 32), 1);
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<SpaceSavingTopK.Entry> top = topK.top(256);
+
+        assertEquals(32, top.size());
+        for (SpaceSavingTopK.Entry entry : top) {
+            assertEquals(new SpaceSavingTopK.Entry(entry.deviceId(), 2_400, 0), entry);
+        }
+    }
+
+    @Test
+    void restore_ShouldIgnoreDevicesBeyondCapacity() {
+        // Snapshots are restored most visited first
+        SpaceSavingTopK topK = new SpaceSavingTopK(2, 1);
+        topK.restore("hashB", 7, 0);
+        topK.restore("hashA", 4, 1);
+        topK.restore("hashC", 2, 0);
+
+        assertEquals(List.of(new SpaceSavingTopK.Entry("hashB", 7, 0), new SpaceSavingTopK.Entry("hashA", 4, 1)),
+                topK.top(10));
+    }
+}
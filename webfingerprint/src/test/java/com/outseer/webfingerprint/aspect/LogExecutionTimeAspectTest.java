@@ -0,0 +1,86 @@
+package com.outseer.webfingerprint.aspect;
+
+import com.outseer.webfingerprint.annotation.LogExecutionTime;
+import com.outseer.webfingerprint.monitoring.SlowOperationDetector;
+import com.outseer.webfingerprint.service.LoggingService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogExecutionTimeAspectTest {
+
+    private MeterRegistry meterRegistry;
+    private Operations operations;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        LogExecutionTimeAspect aspect = new LogExecutionTimeAspect(new LoggingService(), meterRegistry,
+                new SlowOperationDetector(3.0, 10, 100, 60, 500, 100, meterRegistry),
+                new double[] {0.5}, false, new long[] {100});
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Operations());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        operations = factory.getProxy();
+    }
+
+    @Test
+    void logExecutionTime_ShouldRecordSuccessTimerPerOperation() {
+        assertEquals(2, operations.visit(1));
+        assertEquals(3, operations.visit(2));
+
+        Timer timer = meterRegistry.get(LogExecutionTimeAspect.TIMER_NAME)
+                .tags("operation", "VISIT", "outcome", "success", "exception", "none").timer();
+        assertEquals(2, timer.count());
+        assertTrue(timer.totalTime(TimeUnit.NANOSECONDS) > 0);
+        assertEquals(1, timer.takeSnapshot().percentileValues().length);
+        CountAtBucket[] buckets = timer.takeSnapshot().histogramCounts();
+        assertEquals(1, buckets.length);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), buckets[0].bucket(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    void logExecutionTime_ShouldTagFailuresWithExceptionType() {
+        assertThrows(IllegalStateException.class, () -> operations.fail());
+
+        Timer timer = meterRegistry.get(LogExecutionTimeAspect.TIMER_NAME)
+                .tags("operation", "Operations.fail", "outcome", "error", "exception", "IllegalStateException")
+                .timer();
+        assertEquals(1, timer.count());
+        assertEquals(0, meterRegistry.get(LogExecutionTimeAspect.TIMER_NAME)
+                .tags("operation", "Operations.fail", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void logExecutionTime_ShouldUseAnnotationPercentilesOverDefaults() {
+        operations.lookup();
+
+        Timer timer = meterRegistry.get(LogExecutionTimeAspect.TIMER_NAME).tag("operation", "LOOKUP").timer();
+        assertEquals(2, timer.takeSnapshot().percentileValues().length);
+    }
+
+    public static class Operations {
+
+        @LogExecutionTime("VISIT")
+        public int visit(int visitCount) {
+            return visitCount + 1;
+        }
+
+        @LogExecutionTime
+        public void fail() {
+            throw new IllegalStateException("failed");
+        }
+
+        @LogExecutionTime(value = "LOOKUP", percentiles = {0.95, 0.99})
+        public void lookup() {
+        }
+    }
+}
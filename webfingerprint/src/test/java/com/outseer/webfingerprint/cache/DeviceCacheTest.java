@@ -0,0 +1,196 @@
+package com.outseer.webfingerprint.cache;
+
+import com.outseer.webfingerprint.model.Device;
+import com.outseer.webfingerprint.repository.DeviceRepository;
+import com.outseer.webfingerprint.service.LoggingService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceCacheTest {
+
+    @Mock
+    private DeviceRepository deviceRepository;
+
+    @Mock
+    private LoggingService loggingService;
+
+    private MeterRegistry meterRegistry;
+    private DeviceCache deviceCache;
+    private Device device;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        deviceCache = new DeviceCache(deviceRepository, loggingService, meterRegistry,
+                "maximumSize=100", "maximumSize=100,expireAfterWrite=30s", true, 1000, 0.01, false);
+        device = new Device("testHash", "testAgent", "1920x1080", "UTC", "en", "testPlatform");
+    }
+
+    @Test
+    void get_ShouldLoadOnceAndServeFromCache() {
+        when(deviceRepository.findById("testHash")).thenReturn(Optional.of(device));
+
+        assertSame(device, deviceCache.get("testHash").orElseThrow());
+        assertSame(device, deviceCache.get("testHash").orElseThrow());
+
+        verify(deviceRepository, times(1)).findById("testHash");
+        verify(loggingService).cacheOperation("GET", "testHash", false);
+        verify(loggingService).cacheOperation("GET", "testHash", true);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "devices").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void put_ShouldWriteThroughWithoutLoading() {
+        Device updated = new Device(device);
+        updated.setVisitCount(7);
+
+        deviceCache.put(updated);
+
+        assertEquals(7, deviceCache.get("testHash").orElseThrow().getVisitCount());
+        verify(deviceRepository, never()).findById("testHash");
+    }
+
+    @Test
+    void putIfNotOlder_ShouldKeepAHigherCachedVisitCount() {
+        Device newer = new Device(device);
+        newer.setVisitCount(7);
+        Device older = new Device(device);
+        older.setVisitCount(5);
+        Device latest = new Device(device);
+        latest.setVisitCount(8);
+
+        deviceCache.put(newer);
+        deviceCache.putIfNotOlder(older);
+        assertEquals(7, deviceCache.get("testHash").orElseThrow().getVisitCount());
+
+        deviceCache.putIfNotOlder(latest);
+        assertEquals(8, deviceCache.get("testHash").orElseThrow().getVisitCount());
+    }
+
+    @Test
+    void get_ShouldRememberDevicesThatWereNotFound() {
+        when(deviceRepository.findById("unknownHash")).thenReturn(Optional.empty());
+
+        assertTrue(deviceCache.get("unknownHash").isEmpty());
+        assertTrue(deviceCache.get("unknownHash").isEmpty());
+
+        verify(deviceRepository, times(1)).findById("unknownHash");
+    }
+
+    @Test
+    void get_ShouldAnswerUnknownDevicesFromBloomFilter() {
+        doAnswer(invocation -> {
+            Consumer<String> action = invocation.getArgument(0);
+            action.accept("testHash");
+            return null;
+        }).when(deviceRepository).forEachDeviceId(any());
+        deviceCache.loadKnownDeviceIds();
+
+        assertTrue(deviceCache.isDefinitelyUnknown("unknownHash"));
+        assertFalse(deviceCache.isDefinitelyUnknown("testHash"));
+        assertTrue(deviceCache.get("unknownHash").isEmpty());
+        verify(deviceRepository, never()).findById("unknownHash");
+        assertEquals(2.0, meterRegistry.get("device.bloom.rejections").counter().count());
+    }
+
+    @Test
+    void get_ShouldLookUpUnknownDevicesWhenTheFilterIsDisabled() {
+        DeviceCache unfiltered = new DeviceCache(deviceRepository, loggingService, new SimpleMeterRegistry(),
+                "maximumSize=100", "maximumSize=100,expireAfterWrite=30s", false, 1000, 0.01, false);
+        when(deviceRepository.findById("unknownHash")).thenReturn(Optional.empty());
+        unfiltered.loadKnownDeviceIds();
+
+        assertFalse(unfiltered.isDefinitelyUnknown("unknownHash"));
+        assertTrue(unfiltered.get("unknownHash").isEmpty());
+        verify(deviceRepository, never()).forEachDeviceId(any());
+        verify(deviceRepository).findById("unknownHash");
+    }
+
+    @Test
+    void registerDeviceId_ShouldMakeNewDeviceVisibleToFilterAndNegativeCache() {
+        deviceCache.loadKnownDeviceIds();
+        when(deviceRepository.findById("newHash")).thenReturn(Optional.empty(), Optional.of(device));
+        deviceCache.registerDeviceId("newHash");
+        assertTrue(deviceCache.get("newHash").isEmpty());
+
+        deviceCache.registerDeviceId("newHash");
+
+        assertTrue(deviceCache.get("newHash").isPresent());
+    }
+
+    @Test
+    void get_ShouldShareOneLoadBetweenConcurrentCallers() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        when(deviceRepository.findById("testHash")).thenAnswer(invocation -> {
+            loadStarted.countDown();
+            assertTrue(releaseLoad.await(5, TimeUnit.SECONDS));
+            return Optional.of(device);
+        });
+
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Optional<Device>>> results = new ArrayList<>();
+            results.add(executor.submit(() -> deviceCache.get("testHash")));
+            assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < callers; i++) {
+                results.add(executor.submit(() -> deviceCache.get("testHash")));
+            }
+            while (meterRegistry.get("device.cache.coalesced.loads").counter().count() < callers - 1) {
+                Thread.sleep(5);
+            }
+            releaseLoad.countDown();
+
+            for (Future<Optional<Device>> result : results) {
+                assertSame(device, result.get(5, TimeUnit.SECONDS).orElseThrow());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(deviceRepository, times(1)).findById("testHash");
+    }
+
+    @Test
+    void get_ShouldRefreshStaleDevicesByTheirId() throws Exception {
+        DeviceCache refreshing = new DeviceCache(deviceRepository, loggingService, new SimpleMeterRegistry(),
+                "maximumSize=100,refreshAfterWrite=PT0.05S", "maximumSize=100", false, 1000, 0.01, false);
+        Device updated = new Device(device);
+        updated.setVisitCount(7);
+        when(deviceRepository.findById("testHash")).thenReturn(Optional.of(device), Optional.of(updated));
+
+        assertSame(device, refreshing.get("testHash").orElseThrow());
+        Thread.sleep(100);
+        // The stale read triggers a reload in the background, which only knows the cached device's key
+        refreshing.get("testHash");
+
+        verify(deviceRepository, timeout(5000).times(2)).findById("testHash");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (refreshing.get("testHash").orElseThrow() != updated && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertSame(updated, refreshing.get("testHash").orElseThrow());
+        refreshing.shutdown();
+    }
+}
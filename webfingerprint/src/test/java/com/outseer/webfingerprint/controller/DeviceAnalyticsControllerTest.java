@@ -0,0 +1,55 @@
+package com.outseer.webfingerprint.controller;
+
+import com.outseer.webfingerprint.analytics.DeviceAnalytics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class DeviceAnalyticsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DeviceAnalytics deviceAnalytics;
+
+    @Test
+    void getUniqueDevices_ShouldReturnBucketEstimates() throws Exception {
+        deviceAnalytics.recordVisit("analyticsHash", LocalDateTime.now());
+
+        mockMvc.perform(get("/api/analytics/unique-devices").param("granularity", "day").param("buckets", "7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.granularity").value("day"))
+                .andExpect(jsonPath("$.buckets.length()").value(7))
+                .andExpect(jsonPath("$.status").value("success"));
+
+        mockMvc.perform(get("/api/analytics/unique-devices").param("granularity", "week"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value("invalid_granularity"));
+    }
+
+    @Test
+    void getTopDevices_ShouldReturnMostVisitedDevices() throws Exception {
+        deviceAnalytics.recordVisits("topAnalyticsHash", LocalDateTime.now(), 1_000_000);
+
+        mockMvc.perform(get("/api/analytics/top-devices").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.devices[0].deviceId").value("topAnalyticsHash"))
+                .andExpect(jsonPath("$.devices[0].visits").value(1_000_000));
+
+        mockMvc.perform(get("/api/analytics/top-devices").param("limit", "-1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.devices.length()").value(0))
+                .andExpect(jsonPath("$.status").value("invalid_limit"));
+    }
+}
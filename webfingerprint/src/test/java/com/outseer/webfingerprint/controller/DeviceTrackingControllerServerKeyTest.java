@@ -0,0 +1,63 @@
+package com.outseer.webfingerprint.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.outseer.webfingerprint.dto.DeviceFingerprintRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"device.key.source=server", "spring.datasource.url=jdbc:h2:mem:serverkeys"})
+@AutoConfigureMockMvc
+class DeviceTrackingControllerServerKeyTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private JsonNode track(String hash) throws Exception {
+        DeviceFingerprintRequest request = new DeviceFingerprintRequest();
+        request.setHash(hash);
+        request.setUserAgent("serverKeyAgent");
+        request.setPlatform("testPlatform");
+        request.setScreenResolution("1920x1080");
+        request.setHardwareConcurrency(4);
+        String body = mockMvc.perform(post("/api/device")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    @Test
+    void trackDevice_ShouldTrackUnderServerComputedKey() throws Exception {
+        JsonNode first = track("clientHashA");
+        JsonNode second = track("clientHashB");
+
+        String deviceId = first.get("deviceId").asText();
+        assertTrue(deviceId.matches("[0-9a-f]{32}"), deviceId);
+        assertEquals(deviceId, second.get("deviceId").asText());
+        assertEquals(2, second.get("visitCount").asInt());
+        // The browser's hash is not needed in server mode
+        assertEquals(3, track(null).get("visitCount").asInt());
+
+        mockMvc.perform(get("/api/device/{id}", deviceId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deviceId").value(deviceId))
+                .andExpect(jsonPath("$.visitCount").value(4));
+        mockMvc.perform(get("/api/device/{id}", "clientHashA"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -12,16 +12,22 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import com.outseer.webfingerprint.exception.DeviceNotFoundException;
@@ -71,4 +77,88 @@ class DeviceTrackingControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.status").value("not_found"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void trackDevice_ShouldReturnServerTimingHeader() throws Exception {
+        mockMvc.perform(post("/api/device")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Server-Timing", matchesPattern(
+                        "cache;dur=\\d+\\.\\d{3}, db-write;dur=.*, response;dur=.*, total;dur=\\d+\\.\\d{3}")));
+
+        mockMvc.perform(get("/api/device/{id}", "nonExistentHash"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().string("Server-Timing", startsWith("cache;dur=")));
+    }
+
+    @Test
+    void getVisits_ShouldReturnVisitsWithinRange() throws Exception {
+        request.setHash("visitsHash");
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/api/device")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/api/device/{id}/visits", "visitsHash").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.visitCount").value(2))
+                .andExpect(jsonPath("$.truncated").value(true));
+
+        mockMvc.perform(get("/api/device/{id}/visits", "visitsHash")
+                        .param("to", LocalDateTime.now().minusDays(1).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.visitCount").value(0));
+    }
+
+    @Test
+    void trackDevice_ShouldReturnTooManyRequests_WhenDeviceIsOverItsLimit() throws Exception {
+        request.setHash("rateLimitedHash");
+        String body = objectMapper.writeValueAsString(request);
+        // The device burst is 20 requests, refilled at 5 per second while the loop runs
+        int accepted = 0;
+        MvcResult result;
+        do {
+            result = mockMvc.perform(post("/api/device").contentType(MediaType.APPLICATION_JSON).content(body))
+                    .andReturn();
+        } while (result.getResponse().getStatus() == 200 && ++accepted < 100);
+
+        assertTrue(accepted >= 20 && accepted < 100, "accepted: " + accepted);
+        assertEquals(429, result.getResponse().getStatus());
+        assertNotNull(result.getResponse().getHeader("Retry-After"));
+        assertTrue(result.getResponse().getContentAsString().contains("\"rate_limited\""));
+    }
+
+    @Test
+    void trackDevices_ShouldTrackReplayedVisitsBeyondTheDeviceLimit() throws Exception {
+        request.setHash("batchReplayedHash");
+        // More visits of one device than its burst of 20; replays draw from the ingest quota instead
+        String body = objectMapper.writeValueAsString(Collections.nCopies(25, request));
+
+        MvcResult result = mockMvc.perform(post("/api/device/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<DeviceTrackingResponse> responses = List.of(objectMapper.readValue(
+                result.getResponse().getContentAsString(), DeviceTrackingResponse[].class));
+        assertEquals(25, responses.size());
+        assertTrue(responses.stream().allMatch(r -> "success".equals(r.getStatus())));
+        assertEquals(25, responses.get(24).getVisitCount());
+    }
+
+    @Test
+    void trackDevice_ShouldReturnBadRequest_WhenClientKeyedFingerprintHasNoHash() throws Exception {
+        request.setHash(null);
+
+        mockMvc.perform(post("/api/device")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value("invalid"))
+                .andExpect(jsonPath("$.message").value("Hash cannot be null"));
+    }
+}
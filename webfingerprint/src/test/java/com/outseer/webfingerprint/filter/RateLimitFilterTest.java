@@ -0,0 +1,68 @@
+package com.outseer.webfingerprint.filter;
+
+import com.outseer.webfingerprint.ratelimit.RateLimiter;
+import com.outseer.webfingerprint.service.LoggingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void doFilter_ShouldRejectClientsOverTheirLimit() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(rateLimiter(true));
+        AtomicInteger passed = new AtomicInteger();
+
+        MockHttpServletResponse response = null;
+        for (int i = 0; i < 3; i++) {
+            response = new MockHttpServletResponse();
+            filter.doFilter(request("/api/device", "10.0.0.1"), response, (req, res) -> passed.incrementAndGet());
+        }
+        filter.doFilter(request("/api/device", "10.0.0.2"), new MockHttpServletResponse(),
+                (req, res) -> passed.incrementAndGet());
+
+        assertEquals(3, passed.get());
+        assertEquals(429, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertEquals(RateLimitFilter.REJECTED_BODY, response.getContentAsString());
+        assertEquals(1, meterRegistry.get("ratelimit.decisions").tag("limit", "ip").tag("outcome", "rejected")
+                .counter().count());
+        assertEquals(3, meterRegistry.get("ratelimit.decisions").tag("limit", "ip").tag("outcome", "allowed")
+                .counter().count());
+    }
+
+    @Test
+    void doFilter_ShouldIgnoreOtherPathsAndDisabledLimits() throws Exception {
+        AtomicInteger passed = new AtomicInteger();
+        RateLimitFilter enabled = new RateLimitFilter(rateLimiter(true));
+        RateLimitFilter disabled = new RateLimitFilter(rateLimiter(false));
+
+        for (int i = 0; i < 5; i++) {
+            enabled.doFilter(request("/actuator/health", "10.0.0.1"), new MockHttpServletResponse(),
+                    (req, res) -> passed.incrementAndGet());
+            disabled.doFilter(request("/api/device", "10.0.0.1"), new MockHttpServletResponse(),
+                    (req, res) -> passed.incrementAndGet());
+        }
+
+        assertEquals(10, passed.get());
+    }
+
+    private RateLimiter rateLimiter(boolean enabled) {
+        return new RateLimiter(Mockito.mock(LoggingService.class), meterRegistry, enabled, 1, 2, 1, 2, 1000, 1000,
+                1000, 100, 60_000, false);
+    }
+
+    private static MockHttpServletRequest request(String path, String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+}
@@ -0,0 +1,43 @@
+package com.outseer.webfingerprint.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs on a real port, since the forwarded client address is applied by Tomcat rather than a servlet filter.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:forwardedclient",
+        "server.forward-headers-strategy=native",
+        "device.rate-limit.ip.requests-per-second=0.01",
+        "device.rate-limit.ip.burst=1"})
+class RateLimitForwardedClientTest {
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private int get(String forwardedFor) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/device/unknown"))
+                .header("X-Forwarded-For", forwardedFor)
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Test
+    void doFilter_ShouldLimitClientsBehindAProxySeparately() throws Exception {
+        // The test client connects from loopback, which Tomcat trusts as an internal proxy
+        assertNotEquals(429, get("203.0.113.7"));
+        assertEquals(429, get("203.0.113.7"));
+        assertNotEquals(429, get("203.0.113.8"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.outseer.webfingerprint.filter;
+
+import com.outseer.webfingerprint.monitoring.SlowOperationDetector;
+import com.outseer.webfingerprint.service.LoggingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RequestTelemetryFilterTest {
+
+    @Mock
+    private LoggingService loggingService;
+
+    private RequestTelemetryFilter filter(double sampleRate) {
+        return new RequestTelemetryFilter(loggingService,
+                new SlowOperationDetector(3.0, 10, 100, 60, 500, 100, new SimpleMeterRegistry()),
+                "X-Correlation-ID", sampleRate, 1000);
+    }
+
+    @Test
+    void doFilter_ShouldHonorIncomingCorrelationIdAndReportRealStatus() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/device/unknown");
+        request.addHeader("X-Correlation-ID", "upstream-42");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter(1.0).doFilter(request, response, (req, res) -> {
+            assertEquals("upstream-42", MDC.get("correlationId"));
+            ((HttpServletResponse) res).setStatus(404);
+        });
+
+        assertEquals("upstream-42", response.getHeader("X-Correlation-ID"));
+        verify(loggingService).apiResponse(eq("GET"), eq("/api/device/unknown"), eq(404), anyLong(), eq("upstream-42"));
+        verify(loggingService, never()).generateCorrelationId();
+        assertNull(MDC.get("correlationId"));
+    }
+
+    @Test
+    void doFilter_ShouldGenerateCorrelationIdWhenHeaderIsMissingOrUnsafe() throws Exception {
+        when(loggingService.generateCorrelationId()).thenReturn("generated-id");
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/device");
+        request.addHeader("X-Correlation-ID", "bad id\nwith newline");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter(1.0).doFilter(request, response, (req, res) -> { });
+
+        assertEquals("generated-id", response.getHeader("X-Correlation-ID"));
+        verify(loggingService).apiResponse(eq("POST"), eq("/api/device"), eq(200), anyLong(), eq("generated-id"));
+    }
+
+    @Test
+    void doFilter_ShouldSkipSuccessfulRequestsWhenSampledOut() throws Exception {
+        when(loggingService.generateCorrelationId()).thenReturn("generated-id");
+
+        filter(0.0).doFilter(new MockHttpServletRequest("GET", "/api/device/hash"), new MockHttpServletResponse(),
+                (req, res) -> { });
+
+        verify(loggingService, never()).apiResponse(anyString(), anyString(), anyInt(), anyLong(), anyString());
+    }
+
+    @Test
+    void doFilter_ShouldAlwaysLogFailedRequests() {
+        when(loggingService.generateCorrelationId()).thenReturn("generated-id");
+
+        assertThrows(IllegalStateException.class, () -> filter(0.0).doFilter(
+                new MockHttpServletRequest("GET", "/api/device/hash"), new MockHttpServletResponse(),
+                (req, res) -> { throw new IllegalStateException("boom"); }));
+
+        verify(loggingService).apiResponse(eq("GET"), eq("/api/device/hash"), eq(500), anyLong(), eq("generated-id"));
+    }
+}
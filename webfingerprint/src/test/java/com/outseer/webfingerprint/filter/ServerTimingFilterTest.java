@@ -0,0 +1,39 @@
+package com.outseer.webfingerprint.filter;
+
+import com.outseer.webfingerprint.monitoring.ServerTiming;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerTimingFilterTest {
+
+    @Test
+    void doFilter_ShouldOpenContextForApiRequestsOnly() throws Exception {
+        ServerTimingFilter filter = new ServerTimingFilter(true);
+        AtomicReference<ServerTiming> apiTiming = new AtomicReference<>();
+        AtomicReference<ServerTiming> actuatorTiming = new AtomicReference<>();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/device/abc"), new MockHttpServletResponse(),
+                (req, res) -> apiTiming.set(ServerTiming.current()));
+        filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), new MockHttpServletResponse(),
+                (req, res) -> actuatorTiming.set(ServerTiming.current()));
+
+        assertNotNull(apiTiming.get());
+        assertNull(actuatorTiming.get());
+        assertNull(ServerTiming.current());
+    }
+
+    @Test
+    void doFilter_ShouldNotOpenContextWhenDisabled() throws Exception {
+        AtomicReference<ServerTiming> timing = new AtomicReference<>();
+
+        new ServerTimingFilter(false).doFilter(new MockHttpServletRequest("POST", "/api/device"),
+                new MockHttpServletResponse(), (req, res) -> timing.set(ServerTiming.current()));
+
+        assertNull(timing.get());
+    }
+}
@@ -0,0 +1,110 @@
+package com.outseer.webfingerprint.fingerprint;
+
+import com.outseer.webfingerprint.dto.DeviceFingerprintRequest;
+import com.outseer.webfingerprint.exception.InvalidFingerprintException;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceKeysTest {
+
+    private static DeviceFingerprintRequest fingerprint(String hash, Map<String, String> plugin, Object deviceMemory) {
+        DeviceFingerprintRequest request = new DeviceFingerprintRequest();
+        request.setHash(hash);
+        request.setUserAgent("Mozilla/5.0");
+        request.setLanguage("en-US");
+        request.setPlatform("Linux x86_64");
+        request.setCookiesEnabled(true);
+        request.setScreenResolution("1920x1080");
+        request.setTimezone("Europe/Berlin");
+        request.setPlugins(List.of(plugin));
+        request.setCanvas("data:image/png;base64,iVBORw0KGgo");
+        request.setWebGLFingerprint(Map.of("vendor", "Mesa", "renderer", "llvmpipe"));
+        request.setTouchSupport(false);
+        request.setDeviceMemory(deviceMemory);
+        request.setHardwareConcurrency(8);
+        return request;
+    }
+
+    private static Map<String, String> plugin(String... keysAndValues) {
+        Map<String, String> plugin = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            plugin.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return plugin;
+    }
+
+    @Test
+    void keyOf_ShouldIgnoreClientHashKeyOrderAndNumberForm() {
+        DeviceKey key = DeviceKeys.keyOf(fingerprint("a1", plugin("name", "PDF Viewer", "filename", "pdf"), 8));
+
+        assertEquals(key, DeviceKeys.keyOf(fingerprint("b2", plugin("filename", "pdf", "name", "PDF Viewer"), 8.0)));
+        assertEquals(key, DeviceKeys.keyOf(fingerprint("c3", plugin("name", "PDF Viewer", "filename", "pdf"), 8L)));
+    }
+
+    @Test
+    void keyOf_ShouldDependOnEveryAttribute() {
+        DeviceFingerprintRequest request = fingerprint("a1", plugin("name", "PDF Viewer"), 8);
+        DeviceKey key = DeviceKeys.keyOf(request);
+
+        request.setDeviceMemory(0.5);
+        DeviceKey fractionalMemory = DeviceKeys.keyOf(request);
+        request.setDeviceMemory(null);
+        DeviceKey missingMemory = DeviceKeys.keyOf(request);
+        request.setDeviceMemory("");
+        DeviceKey emptyMemory = DeviceKeys.keyOf(request);
+        request.setDeviceMemory(8);
+        request.setPlugins(List.of(plugin("name", "PDF Viewer2")));
+        DeviceKey otherPlugin = DeviceKeys.keyOf(request);
+
+        assertEquals(4, List.of(fractionalMemory, missingMemory, emptyMemory, otherPlugin).stream()
+                .filter(other -> !other.equals(key)).distinct().count());
+    }
+
+    @Test
+    void deviceIdOf_ShouldUseTheServerKeyOnlyInServerMode() {
+        DeviceFingerprintRequest request = fingerprint("a1", plugin("name", "PDF Viewer"), 8);
+        String key = DeviceKeys.keyOf(request).toString();
+
+        assertEquals("a1", new DeviceKeys("client").deviceIdOf(request));
+        assertEquals(key, new DeviceKeys("server").deviceIdOf(request));
+        assertEquals("a1", request.getHash());
+        assertEquals(DeviceKey.HEX_LENGTH, key.length());
+    }
+
+    @Test
+    void deviceIdOf_ShouldRequireTheHashOnlyInClientMode() {
+        DeviceFingerprintRequest request = fingerprint(null, plugin("name", "PDF Viewer"), 8);
+
+        assertEquals(DeviceKeys.keyOf(request).toString(), new DeviceKeys("server").deviceIdOf(request));
+        assertEquals(DeviceKeys.MISSING_HASH, new DeviceKeys("client").validate(request));
+        InvalidFingerprintException e = assertThrows(InvalidFingerprintException.class,
+                () -> new DeviceKeys("client").deviceIdOf(request));
+        assertEquals(DeviceKeys.MISSING_HASH, e.getMessage());
+    }
+
+    @Test
+    void validate_ShouldRejectClientHashesLongerThanAServerKey() {
+        DeviceKeys client = new DeviceKeys("client");
+        DeviceFingerprintRequest request = fingerprint("a".repeat(DeviceKey.HEX_LENGTH), plugin(), 8);
+        assertNull(client.validate(request));
+
+        request.setHash("a".repeat(DeviceKey.HEX_LENGTH + 1));
+        assertEquals(DeviceKeys.HASH_TOO_LONG, client.validate(request));
+        assertNull(new DeviceKeys("server").validate(request));
+    }
+
+    @Test
+    void ofId_ShouldParseServerKeysAndHashOtherIds() {
+        DeviceKey key = DeviceKeys.keyOf(fingerprint("a1", plugin("name", "PDF Viewer"), 8));
+
+        assertEquals(key, DeviceKey.ofId(key.toString()));
+        assertEquals(DeviceKey.ofId("a1"), DeviceKey.ofId("a1"));
+        assertNotEquals(DeviceKey.ofId("a1"), DeviceKey.ofId("a2"));
+        assertNotEquals(key, DeviceKey.ofId(key.toString().toUpperCase()));
+    }
+}
@@ -0,0 +1,67 @@
+package com.outseer.webfingerprint.fingerprint;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Murmur3HasherTest {
+
+    private static DeviceKey hashBytes(byte[] bytes) {
+        Murmur3Hasher hasher = new Murmur3Hasher();
+        for (byte b : bytes) {
+            hasher.putByte(b);
+        }
+        return hasher.hash();
+    }
+
+    @Test
+    void hash_ShouldMatchReferenceImplementation() {
+        assertEquals("00000000000000000000000000000000", hashBytes(new byte[0]).toString());
+        assertEquals("cbd8a7b341bd9b025b1e906a48ae1d19",
+                hashBytes("hello".getBytes(StandardCharsets.US_ASCII)).toString());
+        assertEquals("a706435420d6b012cd7456b224460575",
+                hashBytes("hello, world!!!".getBytes(StandardCharsets.US_ASCII)).toString());
+        assertEquals("e34bbc7bbc071b6c7a433ca9c49a9347",
+                hashBytes("The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.US_ASCII)).toString());
+    }
+
+    @Test
+    void putLong_ShouldHashLikeItsLittleEndianBytes() {
+        // At every offset within a block, aligned or not
+        for (int offset = 0; offset < 16; offset++) {
+            Murmur3Hasher words = new Murmur3Hasher();
+            byte[] bytes = new byte[offset + 8];
+            for (int i = 0; i < offset; i++) {
+                words.putByte(i);
+                bytes[i] = (byte) i;
+            }
+            long value = 0x0123456789abcdefL;
+            words.putLong(value);
+            for (int i = 0; i < 8; i++) {
+                bytes[offset + i] = (byte) (value >>> (8 * i));
+            }
+
+            assertEquals(hashBytes(bytes), words.hash(), "offset: " + offset);
+        }
+    }
+
+    @Test
+    void putString_ShouldSeparateConsecutiveStrings() {
+        DeviceKey first = new Murmur3Hasher().putString("ab").putString("c").hash();
+        DeviceKey second = new Murmur3Hasher().putString("a").putString("bc").hash();
+
+        assertNotEquals(first, second);
+        assertEquals(first, new Murmur3Hasher().putString(new StringBuilder("ab")).putString("c").hash());
+    }
+
+    @Test
+    void fromHex_ShouldParseTheTextForm() {
+        DeviceKey key = new Murmur3Hasher().putString("device").hash();
+
+        assertEquals(DeviceKey.HEX_LENGTH, key.toString().length());
+        assertEquals(key, DeviceKey.fromHex(key.toString()));
+        assertThrows(IllegalArgumentException.class, () -> DeviceKey.fromHex("abc"));
+    }
+}
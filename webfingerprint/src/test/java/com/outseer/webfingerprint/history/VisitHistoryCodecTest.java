@@ -0,0 +1,64 @@
+package com.outseer.webfingerprint.history;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VisitHistoryCodecTest {
+
+    private static final long START = 1_735_689_600L;
+
+    @Test
+    void decode_ShouldReturnAppendedVisits() {
+        long[] visits = {START, START + 1, START + 127, START + 128, START + 100_000, START + 20_000_000};
+        byte[] data = VisitHistoryCodec.append(new byte[0], START, visits, 0, 3);
+        data = VisitHistoryCodec.append(data, visits[2], visits, 3, visits.length);
+
+        assertEquals(List.of(visits[0], visits[1], visits[2], visits[3], visits[4], visits[5]), decode(data, START));
+    }
+
+    @Test
+    void append_ShouldClampVisitsOutOfOrder() {
+        long[] visits = {START + 10, START + 5, START + 20};
+        byte[] data = VisitHistoryCodec.append(new byte[0], START, visits, 0, visits.length);
+
+        assertEquals(List.of(START + 10, START + 10, START + 20), decode(data, START));
+    }
+
+    @Test
+    void append_ShouldTakeAFewBytesPerVisit() {
+        // A device visiting every few minutes to a few hours
+        Random random = new Random(42);
+        long[] visits = new long[1000];
+        long time = START;
+        for (int i = 0; i < visits.length; i++) {
+            time += 60 + random.nextInt(4 * 3600);
+            visits[i] = time;
+        }
+
+        byte[] data = VisitHistoryCodec.append(new byte[0], START, visits, 0, visits.length);
+
+        assertTrue(data.length <= 2 * visits.length, "bytes: " + data.length);
+        assertEquals(visits.length, decode(data, START).size());
+    }
+
+    @Test
+    void decode_ShouldStopWhenConsumerReturnsFalse() {
+        long[] visits = {START, START + 1, START + 2};
+        byte[] data = VisitHistoryCodec.append(new byte[0], START, visits, 0, visits.length);
+        List<Long> decoded = new ArrayList<>();
+
+        assertFalse(VisitHistoryCodec.decode(data, START, visitedAt -> decoded.add(visitedAt) && decoded.size() < 2));
+        assertEquals(List.of(START, START + 1), decoded);
+    }
+
+    private List<Long> decode(byte[] data, long start) {
+        List<Long> decoded = new ArrayList<>();
+        VisitHistoryCodec.decode(data, start, decoded::add);
+        return decoded;
+    }
+}
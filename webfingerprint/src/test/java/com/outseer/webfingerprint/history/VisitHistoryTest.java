@@ -0,0 +1,138 @@
+package com.outseer.webfingerprint.history;
+
+import com.outseer.webfingerprint.service.LoggingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:history")
+class VisitHistoryTest {
+
+    private static final int BLOCK_SIZE = 4;
+    private static final LocalDateTime START = LocalDateTime.now().minusDays(2).truncatedTo(ChronoUnit.DAYS);
+    private static final LocalDateTime OLD = START.minusDays(60);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LoggingService loggingService;
+
+    private VisitHistory history;
+
+    @BeforeEach
+    void setUp() {
+        history = new VisitHistory(jdbcTemplate, transactionManager, loggingService, true, BLOCK_SIZE, 30, 60,
+                60_000, 100, false);
+        history.start();
+        jdbcTemplate.update("DELETE FROM device_visit_blocks");
+    }
+
+    @AfterEach
+    void tearDown() {
+        history.stop();
+    }
+
+    @Test
+    void flush_ShouldAppendVisitsToBlocksOfBlockSize() {
+        for (int i = 0; i < 10; i++) {
+            history.recordVisit("hashA", START.plusMinutes(i));
+        }
+
+        assertEquals(1, history.flush());
+
+        assertEquals(List.of(4, 4, 2), jdbcTemplate.queryForList(
+                "SELECT visits FROM device_visit_blocks WHERE device_id = 'hashA' ORDER BY block_start", Integer.class));
+        assertEquals(10, history.visits("hashA", START, START.plusDays(1), 100).visits().length);
+    }
+
+    @Test
+    void flush_ShouldKeepTheVisitTimeWhenBlocksFillWithinOneSecond() {
+        history.recordVisits("hashA", START, 10);
+
+        history.flush();
+
+        assertEquals(List.of(epoch(START), epoch(START), epoch(START)), jdbcTemplate.queryForList(
+                "SELECT block_start FROM device_visit_blocks WHERE device_id = 'hashA' ORDER BY block_seq", Long.class));
+        long[] visits = history.visits("hashA", START, START, 100).visits();
+        assertEquals(10, visits.length);
+        assertTrue(Arrays.stream(visits).allMatch(visitedAt -> visitedAt == epoch(START)));
+    }
+
+    @Test
+    void visits_ShouldReturnOnlyTheRangeIncludingUnwrittenVisits() {
+        for (int i = 0; i < 6; i++) {
+            history.recordVisit("hashA", START.plusHours(i));
+        }
+        history.flush();
+        history.recordVisit("hashA", START.plusHours(6));
+
+        VisitHistory.VisitRange range = history.visits("hashA", START.plusHours(2), START.plusHours(6), 100);
+
+        assertArrayEquals(new long[] {epoch(START.plusHours(2)), epoch(START.plusHours(3)), epoch(START.plusHours(4)),
+                epoch(START.plusHours(5)), epoch(START.plusHours(6))}, range.visits());
+        assertFalse(range.truncated());
+    }
+
+    @Test
+    void visits_ShouldTruncateAtLimit() {
+        history.recordVisits("hashA", START, 6);
+        history.flush();
+
+        VisitHistory.VisitRange range = history.visits("hashA", START, START.plusDays(1), 3);
+
+        assertEquals(3, range.visits().length);
+        assertTrue(range.truncated());
+    }
+
+    @Test
+    void flush_ShouldDownsampleOldBlocksWhenABlockFills() {
+        // Two old blocks of visits a minute apart, then a recent block filling up
+        for (int i = 0; i < 2 * BLOCK_SIZE; i++) {
+            history.recordVisit("hashA", OLD.plusMinutes(i));
+        }
+        history.flush();
+        LocalDateTime recent = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.SECONDS);
+        history.recordVisits("hashA", recent, BLOCK_SIZE);
+        history.flush();
+
+        VisitHistory.VisitRange old = history.visits("hashA", OLD, OLD.plusDays(1), 100);
+        assertArrayEquals(new long[] {epoch(OLD), epoch(OLD.plusMinutes(BLOCK_SIZE))}, old.visits());
+        assertTrue(old.downsampled());
+        VisitHistory.VisitRange latest = history.visits("hashA", recent, recent, 100);
+        assertEquals(BLOCK_SIZE, latest.visits().length);
+        assertFalse(latest.downsampled());
+    }
+
+    @Test
+    void delete_ShouldForgetStoredAndUnwrittenVisits() {
+        history.recordVisit("hashA", START);
+        history.flush();
+        history.recordVisit("hashA", START.plusMinutes(1));
+        history.recordVisit("hashB", START);
+
+        history.delete(List.of("hashA"));
+
+        assertEquals(0, history.visits("hashA", START, START.plusDays(1), 100).visits().length);
+        assertEquals(1, history.visits("hashB", START, START.plusDays(1), 100).visits().length);
+    }
+
+    private static long epoch(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+}
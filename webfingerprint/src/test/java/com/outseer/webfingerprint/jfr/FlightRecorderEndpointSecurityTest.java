@@ -0,0 +1,44 @@
+package com.outseer.webfingerprint.jfr;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "management.endpoints.web.exposure.include=health,jfr",
+        "spring.security.user.name=operator",
+        "spring.security.user.password=secret"
+})
+@AutoConfigureMockMvc
+class FlightRecorderEndpointSecurityTest {
+
+    private static final String OPERATOR = "Basic "
+            + Base64.getEncoder().encodeToString("operator:secret".getBytes(StandardCharsets.UTF_8));
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void jfr_ShouldRequireAuthenticationOnceExposed() throws Exception {
+        mockMvc.perform(post("/actuator/jfr/start"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/jfr"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/jfr").header("Authorization", OPERATOR))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("NONE"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.outseer.webfingerprint.jfr;
+
+import com.outseer.webfingerprint.service.LoggingService;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecordingsTest {
+
+    @TempDir
+    Path dumpDirectory;
+
+    private FlightRecordings flightRecordings;
+
+    @BeforeEach
+    void setUp() {
+        flightRecordings = new FlightRecordings(new LoggingService(), "default", 5, 50, 2,
+                dumpDirectory.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        flightRecordings.close();
+    }
+
+    @Test
+    void dump_ShouldContainDeviceTrackingEvents() throws Exception {
+        assertEquals("NONE", flightRecordings.status().get("state"));
+        assertEquals("RUNNING", flightRecordings.start(null).get("state"));
+
+        new DeviceSaveEvent("UPSERT", "testHash").complete(3);
+        new DeviceCacheEvent("testHash").complete("MISS", true);
+        DeviceRequestEvent request = new DeviceRequestEvent("TRACK_DEVICE", "testHash");
+        request.succeeded(3);
+        request.commit();
+
+        Map<String, Object> status = flightRecordings.dump();
+        List<RecordedEvent> events = RecordingFile.readAllEvents(Path.of((String) status.get("lastDump")));
+
+        RecordedEvent save = find(events, "com.outseer.webfingerprint.DeviceSave");
+        assertEquals("UPSERT", save.getString("operation"));
+        assertEquals("testHash", save.getString("deviceHash"));
+        assertEquals(3, save.getInt("visitCount"));
+        assertEquals("MISS", find(events, "com.outseer.webfingerprint.DeviceCacheGet").getString("result"));
+        assertTrue(find(events, "com.outseer.webfingerprint.DeviceRequest").getBoolean("succeeded"));
+        assertEquals("STOPPED", flightRecordings.stop().get("state"));
+    }
+
+    @Test
+    void dump_ShouldKeepOnlyTheNewestDumps() throws Exception {
+        flightRecordings.start(null);
+        flightRecordings.dump();
+        Thread.sleep(2);
+        flightRecordings.dump();
+        Thread.sleep(2);
+        Path last = Path.of((String) flightRecordings.dump().get("lastDump"));
+
+        try (Stream<Path> files = Files.list(dumpDirectory)) {
+            List<Path> dumps = files.sorted().toList();
+            assertEquals(2, dumps.size());
+            assertEquals(last.getFileName(), dumps.get(1).getFileName());
+        }
+    }
+
+    @Test
+    void control_ShouldRejectUnknownActionsAndSettings() {
+        FlightRecorderEndpoint endpoint = new FlightRecorderEndpoint(flightRecordings);
+
+        assertThrows(InvalidEndpointRequestException.class, () -> endpoint.control("restart", null));
+        assertThrows(InvalidEndpointRequestException.class, () -> endpoint.control("dump", null));
+        assertThrows(InvalidEndpointRequestException.class, () -> endpoint.control("start", "no-such-settings"));
+        assertEquals("NONE", endpoint.status().get("state"));
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No " + name + " event recorded"));
+    }
+}
@@ -0,0 +1,146 @@
+package com.outseer.webfingerprint.journal;
+
+import com.outseer.webfingerprint.service.LoggingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:journal")
+class VisitJournalCompactorTest {
+
+    private static final LocalDateTime FIRST_SEEN = LocalDateTime.now().minusDays(1).truncatedTo(ChronoUnit.MILLIS);
+
+    @TempDir
+    Path directory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LoggingService loggingService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS visit_journal_checkpoint");
+        jdbcTemplate.update("DELETE FROM devices");
+        for (String deviceId : new String[] {"hashA", "hashB"}) {
+            jdbcTemplate.update("INSERT INTO devices (device_id, first_seen, last_seen, visit_count) VALUES (?, ?, ?, 1)",
+                    deviceId, Timestamp.valueOf(FIRST_SEEN), Timestamp.valueOf(FIRST_SEEN));
+        }
+    }
+
+    @Test
+    void compact_ShouldFoldVisitsIntoDevicesAndDeleteSegments() throws Exception {
+        VisitJournal journal = journal();
+        VisitJournalCompactor compactor = compactor(journal);
+        LocalDateTime lastVisit = FIRST_SEEN.plusHours(2);
+        journal.recordVisit("hashA", 1, FIRST_SEEN.plusHours(1), "10.0.0.1");
+        journal.recordVisit("hashA", 1, lastVisit, "10.0.0.1");
+        journal.recordVisit("hashB", 1, FIRST_SEEN.plusHours(1), "10.0.0.2");
+        journal.roll();
+
+        assertEquals(1, compactor.compact());
+
+        assertEquals(3, visitCount("hashA"));
+        assertEquals(2, visitCount("hashB"));
+        assertEquals(Timestamp.valueOf(lastVisit), jdbcTemplate.queryForObject(
+                "SELECT last_seen FROM devices WHERE device_id = 'hashA'", Timestamp.class));
+        assertTrue(journal.sealedSegments().isEmpty());
+        stop(journal, compactor);
+    }
+
+    @Test
+    void start_ShouldReplaySegmentsLeftByACrash() throws Exception {
+        VisitJournal crashed = journal();
+        crashed.recordVisit("hashA", 1, FIRST_SEEN.plusHours(1), null);
+        crashed.recordVisit("hashA", 1, FIRST_SEEN.plusHours(1), null);
+        // Closed without rolling and compacting: the active segment is all that is left after a crash
+        crashed.stop();
+
+        VisitJournal restarted = journal();
+        VisitJournalCompactor compactor = compactor(restarted);
+
+        assertEquals(3, visitCount("hashA"));
+        assertTrue(restarted.sealedSegments().isEmpty());
+        stop(restarted, compactor);
+    }
+
+    @Test
+    void start_ShouldSkipSegmentsAppliedBeforeACrash() throws Exception {
+        VisitJournal journal = journal();
+        VisitJournalCompactor compactor = compactor(journal);
+        journal.recordVisit("hashB", 1, FIRST_SEEN.plusHours(1), null);
+        journal.roll();
+        Path segment = journal.sealedSegments().get(0);
+        byte[] contents = Files.readAllBytes(segment);
+        compactor.compact();
+        stop(journal, compactor);
+        // The crash came after the commit but before the segment was deleted
+        Files.write(segment, contents);
+
+        VisitJournal restarted = journal();
+        VisitJournalCompactor restartedCompactor = compactor(restarted);
+
+        assertEquals(2, visitCount("hashB"));
+        assertFalse(Files.exists(segment));
+        stop(restarted, restartedCompactor);
+    }
+
+    @Test
+    void start_ShouldCompactVisitsJournaledAfterACleanRestart() throws Exception {
+        VisitJournal journal = journal();
+        VisitJournalCompactor compactor = compactor(journal);
+        journal.recordVisit("hashA", 1, FIRST_SEEN.plusHours(1), null);
+        // A clean shutdown compacts the active segment and deletes every segment file
+        stop(journal, compactor);
+        assertEquals(2, visitCount("hashA"));
+
+        VisitJournal restarted = journal();
+        VisitJournalCompactor restartedCompactor = compactor(restarted);
+        restarted.recordVisit("hashA", 2, FIRST_SEEN.plusHours(2), null);
+        restarted.roll();
+        restartedCompactor.compact();
+
+        assertEquals(3, visitCount("hashA"));
+        stop(restarted, restartedCompactor);
+    }
+
+    private VisitJournal journal() throws Exception {
+        VisitJournal journal = new VisitJournal(loggingService, true, directory.toString(), 1, 60_000, "interval",
+                1000, false);
+        journal.start();
+        return journal;
+    }
+
+    private VisitJournalCompactor compactor(VisitJournal journal) throws Exception {
+        VisitJournalCompactor compactor = new VisitJournalCompactor(journal, jdbcTemplate, transactionManager,
+                loggingService, 60_000, 500, false);
+        compactor.start();
+        return compactor;
+    }
+
+    private void stop(VisitJournal journal, VisitJournalCompactor compactor) throws Exception {
+        compactor.stop();
+        journal.stop();
+    }
+
+    private int visitCount(String deviceId) {
+        return jdbcTemplate.queryForObject("SELECT visit_count FROM devices WHERE device_id = ?", Integer.class,
+                deviceId);
+    }
+}
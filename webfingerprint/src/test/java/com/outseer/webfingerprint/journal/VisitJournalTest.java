@@ -0,0 +1,207 @@
+package com.outseer.webfingerprint.journal;
+
+import com.outseer.webfingerprint.service.LoggingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class VisitJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private LoggingService loggingService;
+
+    private VisitJournal journal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journal = new VisitJournal(loggingService, true, directory.toString(), 1, 60_000, "never", 1000, false);
+        journal.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        journal.stop();
+    }
+
+    @Test
+    void recordVisit_ShouldCountFromPersistedVisitCount() {
+        LocalDateTime now = LocalDateTime.now();
+
+        assertEquals(4, journal.recordVisit("hashA", 3, now, "10.0.0.1"));
+        assertEquals(5, journal.recordVisit("hashA", 3, now, "10.0.0.1"));
+        assertEquals(1, journal.recordVisit("hashB", 0, now, null));
+        assertEquals(2, journal.pendingDevices());
+    }
+
+    @Test
+    void recordVisits_ShouldAppendOneRecordPerVisit() throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+
+        assertEquals(6, journal.recordVisits("hashA", 3, 3, now, null));
+        journal.roll();
+
+        assertEquals(3, read(journal.sealedSegments().get(0)).size());
+    }
+
+    @Test
+    void roll_ShouldSealSegmentWithEveryVisit() throws IOException {
+        LocalDateTime seenAt = LocalDateTime.of(2025, 1, 2, 3, 4, 5);
+        journal.recordVisit("hashA", 0, seenAt, "10.0.0.1");
+        journal.recordVisit("hashB", 0, seenAt.plusSeconds(1), null);
+
+        journal.roll();
+
+        List<Path> segments = journal.sealedSegments();
+        assertEquals(1, segments.size());
+        List<VisitJournalSegment.Visit> visits = read(segments.get(0));
+        assertEquals(2, visits.size());
+        assertEquals("hashA", visits.get(0).deviceId());
+        assertEquals("10.0.0.1", visits.get(0).ip());
+        assertEquals("", visits.get(1).ip());
+        assertEquals(1000, visits.get(1).visitedAt() - visits.get(0).visitedAt());
+    }
+
+    @Test
+    void recordVisit_ShouldRollSegmentWhenFull() throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        int recordSize = VisitJournalSegment.recordSize("hash000".length(), "192.168.100.100".length());
+        int visits = 1024 * 1024 / recordSize + 1;
+        for (int i = 0; i < visits; i++) {
+            journal.recordVisit(String.format("hash%03d", i % 100), 0, now, "192.168.100.100");
+        }
+        journal.roll();
+
+        List<Path> segments = journal.sealedSegments();
+        assertEquals(2, segments.size());
+        assertEquals(visits, read(segments.get(0)).size() + read(segments.get(1)).size());
+    }
+
+    @Test
+    void recordVisit_ShouldKeepEveryVisitWhenThreadsAppendAcrossRolls() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        int threads = 8;
+        int visitsPerThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> appenders = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String deviceId = "hash" + t;
+                appenders.add(executor.submit(() -> {
+                    for (int i = 0; i < visitsPerThread; i++) {
+                        journal.recordVisit(deviceId, 0, now, "10.0.0." + i % 256);
+                    }
+                }));
+            }
+            for (Future<?> appender : appenders) {
+                appender.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        journal.roll();
+
+        List<Path> segments = journal.sealedSegments();
+        assertTrue(segments.size() > 1);
+        Map<String, Integer> counts = new HashMap<>();
+        for (Path segment : segments) {
+            read(segment).forEach(visit -> counts.merge(visit.deviceId(), 1, Integer::sum));
+        }
+        for (int t = 0; t < threads; t++) {
+            assertEquals(visitsPerThread, counts.get("hash" + t));
+        }
+    }
+
+    @Test
+    void roll_ShouldEncodeNonAsciiDeviceIdsAsUtf8() throws IOException {
+        String deviceId = "h\u00e9\u20ac\uD83D\uDE00";
+        assertEquals(deviceId.getBytes(StandardCharsets.UTF_8).length, VisitJournalSegment.utf8Length(deviceId));
+
+        journal.recordVisit(deviceId, 0, LocalDateTime.now(), "10.0.0.1");
+        journal.roll();
+
+        assertEquals(deviceId, read(journal.sealedSegments().get(0)).get(0).deviceId());
+    }
+
+    @Test
+    void read_ShouldStopAtTornRecord() throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 3; i++) {
+            journal.recordVisit("hash" + i, 0, now, "10.0.0.1");
+        }
+        journal.roll();
+        Path segment = journal.sealedSegments().get(0);
+
+        // Damage the last record as a crash in the middle of writing it would
+        int recordSize = VisitJournalSegment.recordSize("hash2".length(), "10.0.0.1".length());
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0}), 2L * recordSize + 20);
+        }
+
+        assertEquals(List.of("hash0", "hash1"), read(segment).stream().map(VisitJournalSegment.Visit::deviceId).toList());
+    }
+
+    @Test
+    void compacted_ShouldDeleteSegmentAndForgetIdleDevices() throws Exception {
+        VisitJournal idleJournal = new VisitJournal(loggingService, true, directory.resolve("idle").toString(), 1, 1,
+                "never", 1000, false);
+        idleJournal.start();
+        try {
+            idleJournal.recordVisit("hashA", 0, LocalDateTime.now(), null);
+            idleJournal.roll();
+            Path segment = idleJournal.sealedSegments().get(0);
+            Thread.sleep(5);
+
+            idleJournal.compacted(segment, Map.of("hashA", 1));
+
+            assertFalse(segment.toFile().exists());
+            assertTrue(idleJournal.sealedSegments().isEmpty());
+            assertEquals(0, idleJournal.pendingDevices());
+        } finally {
+            idleJournal.stop();
+        }
+    }
+
+    @Test
+    void crc32_ShouldMatchTheJdkChecksum() {
+        byte[] bytes = new byte[300];
+        new Random(42).nextBytes(bytes);
+        CRC32 expected = new CRC32();
+        expected.update(bytes, 7, 250);
+
+        assertEquals((int) expected.getValue(), VisitJournalSegment.crc32(MemorySegment.ofArray(bytes), 7, 250));
+    }
+
+    private List<VisitJournalSegment.Visit> read(Path segment) throws IOException {
+        List<VisitJournalSegment.Visit> visits = new ArrayList<>();
+        VisitJournalSegment.read(segment, visits::add);
+        return visits;
+    }
+}
@@ -0,0 +1,129 @@
+package com.outseer.webfingerprint.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.AppenderBase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentedAsyncAppenderTest {
+
+    private LoggerContext context;
+    private BlockingAppender target;
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        context = new LoggerContext();
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        logger = context.getLogger("test");
+        target = new BlockingAppender();
+        target.setContext(context);
+        target.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        target.release.countDown();
+        context.stop();
+    }
+
+    private InstrumentedAsyncAppender appender(int discardingThreshold, boolean neverBlock) {
+        InstrumentedAsyncAppender appender = new InstrumentedAsyncAppender();
+        appender.setContext(context);
+        appender.setName("ASYNC_TEST");
+        appender.setQueueSize(4);
+        appender.setDiscardingThreshold(discardingThreshold);
+        appender.setNeverBlock(neverBlock);
+        appender.addAppender(target);
+        appender.start();
+        return appender;
+    }
+
+    @Test
+    void append_ShouldDropInfoButKeepWarningsAboveThreshold() throws Exception {
+        InstrumentedAsyncAppender appender = appender(2, true);
+        appender.doAppend(event(Level.INFO, "taken by the worker"));
+        assertTrue(target.blocked.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 4; i++) {
+            appender.doAppend(event(Level.INFO, "info " + i));
+        }
+        appender.doAppend(event(Level.WARN, "warning"));
+
+        // The fourth INFO event finds fewer than two free slots and is dropped; the warning is kept
+        assertEquals(1, appender.getDroppedEvents());
+        assertEquals(4, appender.getNumberOfElementsInQueue());
+
+        target.release.countDown();
+        appender.stop();
+        assertEquals(5, target.events.size());
+        assertEquals("warning", target.events.get(4).getFormattedMessage());
+    }
+
+    @Test
+    void append_ShouldNeverDropWhenThresholdIsZeroAndBlocking() throws Exception {
+        InstrumentedAsyncAppender appender = appender(0, false);
+        appender.doAppend(event(Level.INFO, "taken by the worker"));
+        assertTrue(target.blocked.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 4; i++) {
+            appender.doAppend(event(Level.INFO, "security " + i));
+        }
+
+        target.release.countDown();
+        appender.stop();
+        assertEquals(0, appender.getDroppedEvents());
+        assertEquals(5, target.events.size());
+    }
+
+    @Test
+    void bindTo_ShouldExportQueueAndDropMetrics() {
+        InstrumentedAsyncAppender appender = appender(2, true);
+        logger.addAppender(appender);
+        logger.setAdditive(false);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        new AsyncLoggingMetrics(() -> context).bindTo(registry);
+
+        assertEquals(0.0, registry.get("logging.async.queue.depth").tag("appender", "ASYNC_TEST").gauge().value());
+        assertEquals(4.0, registry.get("logging.async.queue.remaining").tag("appender", "ASYNC_TEST").gauge().value());
+        assertEquals(0.0, registry.get("logging.async.dropped").tag("appender", "ASYNC_TEST").functionCounter().count());
+    }
+
+    private LoggingEvent event(Level level, String message) {
+        return new LoggingEvent(Logger.FQCN, logger, level, message, null, null);
+    }
+
+    /**
+     * Target that blocks on the first event until released, so the async queue fills up.
+     */
+    private static final class BlockingAppender extends AppenderBase<ILoggingEvent> {
+        private final List<ILoggingEvent> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            events.add(event);
+            blocked.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
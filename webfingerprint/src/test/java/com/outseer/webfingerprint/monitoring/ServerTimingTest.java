@@ -0,0 +1,63 @@
+package com.outseer.webfingerprint.monitoring;
+
+import com.outseer.webfingerprint.monitoring.ServerTiming.Phase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerTimingTest {
+
+    @AfterEach
+    void tearDown() {
+        ServerTiming.close();
+    }
+
+    @Test
+    void headerValue_ShouldListRecordedPhasesAndTotalInMillis() {
+        ServerTiming timing = ServerTiming.open(0);
+        timing.add(Phase.CACHE, 120_000);
+        timing.add(Phase.DB_WRITE, 1_000_000);
+        timing.add(Phase.DB_WRITE, 305_400);
+        timing.add(Phase.RESPONSE, 7_000);
+
+        assertSame(timing, ServerTiming.current());
+        assertEquals(1_305_400, timing.durationNanos(Phase.DB_WRITE));
+        assertEquals("cache;dur=0.120, db-write;dur=1.305, response;dur=0.007, total;dur=12.034",
+                timing.headerValue(12_034_999));
+    }
+
+    @Test
+    void record_ShouldAddToOpenContextOnly() {
+        ServerTiming.record(Phase.DB_READ, ServerTiming.start());
+        assertNull(ServerTiming.current());
+        assertEquals(0, ServerTiming.start());
+
+        ServerTiming timing = ServerTiming.open(System.nanoTime());
+        long start = ServerTiming.start() - TimeUnit.MILLISECONDS.toNanos(2);
+        ServerTiming.record(Phase.DB_READ, start);
+
+        assertTrue(timing.durationNanos(Phase.DB_READ) >= TimeUnit.MILLISECONDS.toNanos(2));
+        assertTrue(timing.headerValue(System.nanoTime()).startsWith("db-read;dur=2."));
+    }
+
+    @Test
+    void record_ShouldNotAllocateWithoutOpenContext() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        ServerTiming.record(Phase.CACHE, ServerTiming.start());
+        threads.getThreadAllocatedBytes(threadId);
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 10_000; i++) {
+            ServerTiming.record(Phase.CACHE, ServerTiming.start());
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // Anything allocated per call would add up to at least 160 KB
+        assertTrue(allocated < 1024, "Allocated " + allocated + " bytes");
+    }
+}
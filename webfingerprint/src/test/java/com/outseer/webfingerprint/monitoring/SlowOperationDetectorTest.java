@@ -0,0 +1,86 @@
+package com.outseer.webfingerprint.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlowOperationDetectorTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private SlowOperationDetector detector(int recentCapacity) {
+        return new SlowOperationDetector(3.0, 1, 100, 60, 10, recentCapacity, meterRegistry);
+    }
+
+    @Test
+    void record_ShouldUseFallbackThresholdUntilEnoughSamples() {
+        SlowOperationDetector detector = detector(10);
+
+        assertNull(detector.record("GET /api/device/{id}", 50 * MILLIS, 100));
+        SlowCall slowCall = detector.record("GET /api/device/{id}", 150 * MILLIS, 100);
+
+        assertNotNull(slowCall);
+        assertFalse(slowCall.adaptive());
+        assertEquals(100.0, slowCall.thresholdMs());
+        assertEquals(List.of(slowCall), detector.recentSlowCalls());
+    }
+
+    @Test
+    void record_ShouldFlagCallsAboveMultipleOfRecentP99() {
+        SlowOperationDetector detector = detector(10);
+        for (int i = 0; i < 200; i++) {
+            assertNull(detector.record("LOOKUP", MILLIS, 1000));
+        }
+
+        assertNull(detector.record("LOOKUP", 2 * MILLIS, 1000));
+        SlowCall slowCall = detector.record("LOOKUP", 5 * MILLIS, 1000);
+
+        assertNotNull(slowCall);
+        assertTrue(slowCall.adaptive());
+        assertEquals(1.0, slowCall.p99Ms(), 0.05);
+        assertEquals(3.0, slowCall.thresholdMs(), 0.15);
+        assertEquals(1.0, meterRegistry.get("telemetry.slow.calls").tag("operation", "LOOKUP").counter().count());
+        assertEquals(true, detector.operationLatencies().get("LOOKUP").get("adaptive"));
+    }
+
+    @Test
+    void recentSlowCalls_ShouldKeepNewestCallsUpToCapacity() {
+        SlowOperationDetector detector = detector(2);
+
+        detector.record("FIRST", 20 * MILLIS, 10);
+        detector.record("SECOND", 20 * MILLIS, 10);
+        detector.record("THIRD", 20 * MILLIS, 10);
+
+        assertEquals(List.of("THIRD", "SECOND"),
+                detector.recentSlowCalls().stream().map(SlowCall::operation).toList());
+    }
+
+    @Test
+    void sketch_ShouldEstimateQuantilesWithinRelativeAccuracyAndForgetOldSamples() {
+        long window = TimeUnit.SECONDS.toNanos(60);
+        RollingQuantileSketch sketch = new RollingQuantileSketch(window, 6);
+        for (int micros = 1; micros <= 10_000; micros++) {
+            sketch.record(micros * 1_000L, 0);
+        }
+
+        long[] summary = sketch.summarize(new double[] {0.5, 0.99}, 0);
+
+        assertEquals(10_000, summary[0]);
+        assertEquals(5_000_000, summary[1], 5_000_000 * RollingQuantileSketch.RELATIVE_ACCURACY);
+        assertEquals(9_900_000, summary[2], 9_900_000 * RollingQuantileSketch.RELATIVE_ACCURACY);
+        assertEquals(0, sketch.summarize(new double[] {0.5}, window)[0]);
+    }
+}
@@ -0,0 +1,48 @@
+package com.outseer.webfingerprint.ratelimit;
+
+import com.outseer.webfingerprint.exception.RateLimitExceededException;
+import com.outseer.webfingerprint.service.LoggingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private static RateLimiter rateLimiter(boolean enabled, long ingestMaxWaitMs) {
+        // Ingest: 1,000 fingerprints per second, burst 10
+        return new RateLimiter(Mockito.mock(LoggingService.class), new SimpleMeterRegistry(), enabled, 1, 2, 1, 2,
+                1000, 10, ingestMaxWaitMs, 100, 60_000, false);
+    }
+
+    @Test
+    void acquireIngest_ShouldWaitForTheQuotaToRefill() {
+        RateLimiter rateLimiter = rateLimiter(true, 5_000);
+        rateLimiter.acquireIngest("10.0.0.1", 10);
+
+        long start = System.nanoTime();
+        rateLimiter.acquireIngest("10.0.0.1", 50);
+
+        assertTrue(System.nanoTime() - start >= 40_000_000L, "50 fingerprints at 1,000/s take about 50 ms");
+    }
+
+    @Test
+    void acquireIngest_ShouldRejectWithoutReservingWhenTheWaitIsTooLong() {
+        RateLimiter rateLimiter = rateLimiter(true, 100);
+
+        assertThrows(RateLimitExceededException.class, () -> rateLimiter.acquireIngest("10.0.0.1", 1_000));
+
+        long start = System.nanoTime();
+        rateLimiter.acquireIngest("10.0.0.1", 10);
+        assertTrue(System.nanoTime() - start < 40_000_000L, "the rejected fingerprints were not reserved");
+    }
+
+    @Test
+    void acquireIngest_ShouldNotWaitWhenDisabled() {
+        long start = System.nanoTime();
+        rateLimiter(false, 100).acquireIngest("10.0.0.1", 1_000_000);
+
+        assertTrue(System.nanoTime() - start < 40_000_000L);
+    }
+}
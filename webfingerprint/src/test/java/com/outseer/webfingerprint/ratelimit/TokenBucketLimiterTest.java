@@ -0,0 +1,100 @@
+package com.outseer.webfingerprint.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.outseer.webfingerprint.ratelimit.TokenBucketLimiter.Decision.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(42 * SECOND);
+
+    @Test
+    void tryAcquire_ShouldAllowBurstThenRefillAtRate() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, 3, 10, clock::get);
+
+        assertEquals(ALLOWED, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(ALLOWED, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(ALLOWED, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(REJECTED, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(ALLOWED, limiter.tryAcquire("10.0.0.2"));
+
+        clock.addAndGet(SECOND / 2);
+        assertEquals(ALLOWED, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(REJECTED, limiter.tryAcquire("10.0.0.1"));
+
+        clock.addAndGet(10 * SECOND);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(ALLOWED, limiter.tryAcquire("10.0.0.1"));
+        }
+        assertEquals(REJECTED, limiter.tryAcquire("10.0.0.1"));
+    }
+
+    @Test
+    void reserve_ShouldReturnTheWaitForTokensBeyondTheBurst() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(10, 5, 10, clock::get);
+
+        assertEquals(0, limiter.reserve("10.0.0.1", 5, SECOND));
+        assertEquals(SECOND / 2, limiter.reserve("10.0.0.1", 5, SECOND));
+        // Another 20 tokens would be ready in 2.5 s, so nothing is reserved
+        assertTrue(limiter.reserve("10.0.0.1", 20, SECOND) < 0);
+        assertEquals(SECOND, limiter.reserve("10.0.0.1", 5, SECOND));
+        assertEquals(REJECTED, limiter.tryAcquire("10.0.0.1"));
+    }
+
+    @Test
+    void retryAfterSeconds_ShouldRoundUpTheWaitForTheNextToken() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(0.25, 1, 10, clock::get);
+        limiter.tryAcquire("hashA");
+
+        assertEquals(4, limiter.retryAfterSeconds("hashA"));
+        clock.addAndGet(SECOND / 2);
+        assertEquals(4, limiter.retryAfterSeconds("hashA"));
+        clock.addAndGet(SECOND);
+        assertEquals(3, limiter.retryAfterSeconds("hashA"));
+        assertEquals(1, limiter.retryAfterSeconds("unknown"));
+    }
+
+    @Test
+    void evictIdle_ShouldRemoveOnlyRefilledBuckets() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 5, 10, clock::get);
+        limiter.tryAcquire("idle");
+        clock.addAndGet(2 * SECOND);
+        limiter.tryAcquire("busy");
+
+        assertEquals(1, limiter.evictIdle());
+        assertEquals(1, limiter.size());
+    }
+
+    @Test
+    void tryAcquire_ShouldEvictTheFullestBucketToTrackANewKeyWhenFull() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 1, 2, clock::get);
+        limiter.tryAcquire("10.0.0.1");
+        clock.addAndGet(SECOND / 2);
+        limiter.tryAcquire("10.0.0.2");
+
+        // Neither bucket has refilled; 10.0.0.1 is the closer to full and makes room
+        assertEquals(ALLOWED, limiter.tryAcquire("10.0.0.3"));
+        assertEquals(REJECTED, limiter.tryAcquire("10.0.0.3"));
+        assertEquals(REJECTED, limiter.tryAcquire("10.0.0.2"));
+        assertEquals(2, limiter.size());
+    }
+
+    @Test
+    void tryAcquire_ShouldKeepLimitingWhileKeysRotate() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 1, 16, clock::get);
+        limiter.tryAcquire("attacker");
+
+        for (int i = 0; i < 1_000; i++) {
+            limiter.tryAcquire("rotated-" + i);
+            clock.addAndGet(1_000);
+        }
+
+        assertTrue(limiter.size() <= 16);
+        assertEquals(REJECTED, limiter.tryAcquire("rotated-999"));
+    }
+}
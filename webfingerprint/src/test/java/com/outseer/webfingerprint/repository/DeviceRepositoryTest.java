@@ -0,0 +1,63 @@
+package com.outseer.webfingerprint.repository;
+
+import com.outseer.webfingerprint.model.Device;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class DeviceRepositoryTest {
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Test
+    void upsertVisit_ShouldInsertThenIncrement() {
+        Device candidate = new Device("upsertHash", "testAgent", "1920x1080", "UTC", "en", "testPlatform");
+
+        Device inserted = deviceRepository.upsertVisit(candidate, LocalDateTime.now());
+        Device updated = deviceRepository.upsertVisit(candidate, LocalDateTime.now());
+
+        assertEquals(1, inserted.getVisitCount());
+        assertEquals(2, updated.getVisitCount());
+        assertEquals("testAgent", updated.getUserAgent());
+        assertEquals(inserted.getFirstSeen(), updated.getFirstSeen());
+    }
+
+    @Test
+    void upsertVisit_ShouldNotLoseUpdatesUnderParallelLoad() throws Exception {
+        int threads = 8;
+        int visitsPerThread = 50;
+        Device candidate = new Device("parallelHash", "testAgent", "1920x1080", "UTC", "en", "testPlatform");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                tasks.add(() -> {
+                    for (int v = 0; v < visitsPerThread; v++) {
+                        deviceRepository.upsertVisit(candidate, LocalDateTime.now());
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads * visitsPerThread, deviceRepository.findById("parallelHash").orElseThrow().getVisitCount());
+    }
+}
@@ -0,0 +1,144 @@
+package com.outseer.webfingerprint.retention;
+
+import com.outseer.webfingerprint.history.VisitHistory;
+import com.outseer.webfingerprint.service.LoggingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:retention")
+class RetentionPurgerTest {
+
+    private static final int EXPIRED = 7;
+    private static final int RECENT = 3;
+    private static final int BATCH_SIZE = 3;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LoggingService loggingService;
+
+    @Autowired
+    private VisitHistory visitHistory;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS retention_checkpoint");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS devices_archive");
+        jdbcTemplate.update("DELETE FROM devices");
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < EXPIRED; i++) {
+            insertDevice("expired" + i, now.minusDays(100 + i % 2));
+        }
+        for (int i = 0; i < RECENT; i++) {
+            insertDevice("recent" + i, now.minusDays(i));
+        }
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void purge_ShouldDeleteExpiredDevicesInBatches() {
+        RetentionPurger.Result result = purger("delete").purge();
+
+        assertTrue(result.completed());
+        assertEquals(EXPIRED, result.purged());
+        assertEquals(3, result.batches());
+        assertEquals(0, count("SELECT COUNT(*) FROM devices WHERE device_id LIKE 'expired%'"));
+        assertEquals(RECENT, count("SELECT COUNT(*) FROM devices"));
+        assertEquals(EXPIRED, meterRegistry.get("retention.purge.rows").counter().count());
+        assertEquals(3, meterRegistry.get("retention.purge.batches").counter().count());
+        assertEquals(0, meterRegistry.get("retention.purge.remaining").gauge().value());
+    }
+
+    @Test
+    void purge_ShouldDeleteVisitHistoryOfPurgedDevices() {
+        jdbcTemplate.update("DELETE FROM device_visit_blocks");
+        for (String deviceId : new String[] {"expired0", "recent0"}) {
+            jdbcTemplate.update("INSERT INTO device_visit_blocks (device_id, block_seq, block_start, block_end, "
+                    + "visits, resolution, data) VALUES (?, 0, 0, 0, 1, 1, ?)", deviceId, new byte[] {0});
+        }
+
+        purger("delete").purge();
+
+        assertEquals(0, count("SELECT COUNT(*) FROM device_visit_blocks WHERE device_id = 'expired0'"));
+        assertEquals(1, count("SELECT COUNT(*) FROM device_visit_blocks WHERE device_id = 'recent0'"));
+    }
+
+    @Test
+    void purge_ShouldArchiveDevicesBeforeDeletingThem() {
+        RetentionPurger.Result result = purger("archive").purge();
+
+        assertEquals(EXPIRED, result.purged());
+        assertEquals(RECENT, count("SELECT COUNT(*) FROM devices"));
+        assertEquals(EXPIRED, count("SELECT COUNT(*) FROM devices_archive WHERE device_id LIKE 'expired%'"));
+        assertEquals(EXPIRED, meterRegistry.get("retention.purge.rows").tag("action", "archived").counter().count());
+    }
+
+    @Test
+    void purge_ShouldResumeFromCheckpointAfterInterruption() {
+        RetentionPurger.Result first = purger("delete").purge(1);
+
+        assertFalse(first.completed());
+        assertEquals(BATCH_SIZE, first.purged());
+        assertEquals(EXPIRED - BATCH_SIZE, count("SELECT COUNT(*) FROM devices WHERE device_id LIKE 'expired%'"));
+
+        RetentionPurger.Result resumed = purger("delete").purge();
+
+        assertTrue(resumed.completed());
+        assertEquals(first.cutoff(), resumed.cutoff());
+        assertEquals(EXPIRED - BATCH_SIZE, resumed.purged());
+        assertEquals(RECENT, count("SELECT COUNT(*) FROM devices"));
+        assertEquals(EXPIRED, count("SELECT purged FROM retention_checkpoint"));
+    }
+
+    @Test
+    void purge_ShouldKeepDevicesVisitedDuringThePurge() {
+        RetentionPurger purger = purger("delete");
+        purger.purge(1);
+        jdbcTemplate.update("UPDATE devices SET last_seen = ? WHERE device_id = 'expired6'",
+                Timestamp.valueOf(LocalDateTime.now()));
+
+        RetentionPurger.Result resumed = purger.purge();
+
+        assertTrue(resumed.completed());
+        assertEquals(1, count("SELECT COUNT(*) FROM devices WHERE device_id = 'expired6'"));
+        assertEquals(RECENT + 1, count("SELECT COUNT(*) FROM devices"));
+    }
+
+    @Test
+    void isCleanupRun_ShouldOnlyAcceptTheRunCleanupFlag() {
+        assertTrue(RetentionCleanupRunner.isCleanupRun("--runCleanup=true"));
+        assertTrue(RetentionCleanupRunner.isCleanupRun("--runCleanup"));
+        assertFalse(RetentionCleanupRunner.isCleanupRun("--runCleanup=false"));
+        assertFalse(RetentionCleanupRunner.isCleanupRun());
+    }
+
+    private RetentionPurger purger(String mode) {
+        return new RetentionPurger(jdbcTemplate, transactionManager, loggingService, visitHistory, meterRegistry,
+                90, mode, BATCH_SIZE, 0, 5);
+    }
+
+    private void insertDevice(String deviceId, LocalDateTime lastSeen) {
+        jdbcTemplate.update("INSERT INTO devices (device_id, first_seen, last_seen, visit_count) VALUES (?, ?, ?, 1)",
+                deviceId, Timestamp.valueOf(lastSeen.minusDays(1)), Timestamp.valueOf(lastSeen));
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
@@ -0,0 +1,50 @@
+package com.outseer.webfingerprint.service;
+
+import com.outseer.webfingerprint.dto.DeviceTrackingResponse;
+import com.outseer.webfingerprint.repository.DeviceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static com.outseer.webfingerprint.service.TestFingerprints.fingerprint;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class DeviceBatchTrackingServiceTest {
+
+    @Autowired
+    private DeviceBatchTrackingService deviceBatchTrackingService;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Test
+    void trackDevices_ShouldReturnOneResponsePerRequestInOrder() {
+        List<DeviceTrackingResponse> responses = deviceBatchTrackingService.trackDevices(List.of(
+                fingerprint("batchA"), fingerprint("batchB"), fingerprint("batchA")));
+
+        assertEquals(3, responses.size());
+        assertEquals("batchA", responses.get(0).getDeviceId());
+        assertEquals(1, responses.get(0).getVisitCount());
+        assertEquals("batchB", responses.get(1).getDeviceId());
+        assertEquals(1, responses.get(1).getVisitCount());
+        assertEquals("batchA", responses.get(2).getDeviceId());
+        assertEquals(2, responses.get(2).getVisitCount());
+        assertEquals(2, deviceRepository.findById("batchA").orElseThrow().getVisitCount());
+    }
+
+    @Test
+    void trackDevices_ShouldIncrementExistingDevices() {
+        deviceBatchTrackingService.trackDevices(List.of(fingerprint("batchExisting")));
+
+        List<DeviceTrackingResponse> responses = deviceBatchTrackingService.trackDevices(List.of(
+                fingerprint("batchExisting"), fingerprint("batchExisting"), fingerprint("batchNew")));
+
+        assertEquals(2, responses.get(0).getVisitCount());
+        assertEquals(3, responses.get(1).getVisitCount());
+        assertEquals("Welcome! This is your first visit.", responses.get(2).getMessage());
+        assertEquals(3, deviceRepository.findById("batchExisting").orElseThrow().getVisitCount());
+    }
+}
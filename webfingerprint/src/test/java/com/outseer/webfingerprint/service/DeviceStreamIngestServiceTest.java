@@ -0,0 +1,116 @@
+package com.outseer.webfingerprint.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.outseer.webfingerprint.dto.DeviceIngestSummary;
+import com.outseer.webfingerprint.exception.RateLimitExceededException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class DeviceStreamIngestServiceTest {
+
+    @Autowired
+    private DeviceStreamIngestService deviceStreamIngestService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private List<JsonNode> ingest(String ndjson, boolean summaryOnly) throws Exception {
+        return ingest(ndjson, summaryOnly, fingerprints -> { });
+    }
+
+    private List<JsonNode> ingest(String ndjson, boolean summaryOnly, IntConsumer throttle) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        deviceStreamIngestService.ingest(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), output, summaryOnly, throttle);
+        return output.toString(StandardCharsets.UTF_8).lines()
+                .map(line -> {
+                    try {
+                        return objectMapper.readTree(line);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toList();
+    }
+
+    @Test
+    void ingest_ShouldStreamOneResultPerLineAndSummary() throws Exception {
+        String ndjson = """
+                {"hash":"streamA","userAgent":"testAgent"}
+                {"userAgent":"missingHash"}
+                {"hash":"streamA","userAgent":"testAgent"}
+                """;
+
+        List<JsonNode> lines = ingest(ndjson, false);
+
+        assertEquals(4, lines.size());
+        assertEquals(1, lines.get(0).get("visitCount").asInt());
+        assertEquals("rejected", lines.get(1).get("status").asText());
+        assertEquals(2, lines.get(2).get("visitCount").asInt());
+        DeviceIngestSummary summary = objectMapper.treeToValue(lines.get(3), DeviceIngestSummary.class);
+        assertEquals(3, summary.getLines());
+        assertEquals(2, summary.getTracked());
+        assertEquals(1, summary.getRejected());
+        assertEquals("success", summary.getStatus());
+    }
+
+    @Test
+    void ingest_ShouldStopAtMalformedLineAndKeepEarlierRecords() throws Exception {
+        String ndjson = """
+                {"hash":"streamB"}
+                {"hash":
+                """;
+
+        List<JsonNode> lines = ingest(ndjson, true);
+
+        assertEquals(1, lines.size());
+        DeviceIngestSummary summary = objectMapper.treeToValue(lines.get(0), DeviceIngestSummary.class);
+        assertEquals(1, summary.getTracked());
+        assertEquals("partial", summary.getStatus());
+    }
+
+    @Test
+    void ingest_ShouldThrottleEachChunkBeforeTrackingIt() throws Exception {
+        String ndjson = """
+                {"hash":"streamC"}
+                {"hash":"streamD"}
+                """;
+        List<Integer> throttled = new ArrayList<>();
+
+        List<JsonNode> lines = ingest(ndjson, true, throttled::add);
+
+        assertEquals(List.of(2), throttled);
+        DeviceIngestSummary summary = objectMapper.treeToValue(lines.get(0), DeviceIngestSummary.class);
+        assertEquals(2, summary.getTracked());
+        assertEquals("success", summary.getStatus());
+    }
+
+    @Test
+    void ingest_ShouldStopWithTheLineToResendFromWhenThrottled() throws Exception {
+        String ndjson = """
+                {"hash":"streamE"}
+                {"hash":"streamF"}
+                """;
+
+        List<JsonNode> lines = ingest(ndjson, true, fingerprints -> {
+            throw new RateLimitExceededException("Too many fingerprints from this client", 1);
+        });
+
+        DeviceIngestSummary summary = objectMapper.treeToValue(lines.get(0), DeviceIngestSummary.class);
+        assertEquals(0, summary.getTracked());
+        assertEquals("partial", summary.getStatus());
+        assertTrue(summary.getMessage().endsWith("resend from line 1"), summary.getMessage());
+    }
+}
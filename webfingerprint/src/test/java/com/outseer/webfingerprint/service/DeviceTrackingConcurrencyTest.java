@@ -0,0 +1,136 @@
+package com.outseer.webfingerprint.service;
+
+import com.outseer.webfingerprint.analytics.DeviceAnalytics;
+import com.outseer.webfingerprint.cache.DeviceCache;
+import com.outseer.webfingerprint.history.VisitHistory;
+import com.outseer.webfingerprint.journal.VisitJournal;
+import com.outseer.webfingerprint.model.Device;
+import com.outseer.webfingerprint.repository.DeviceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import static com.outseer.webfingerprint.service.TestFingerprints.fingerprint;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress test for concurrent visits: N threads x M visits must add up to exactly N x M.
+ * Throughput of the locked service is logged next to the plain atomic upsert for comparison.
+ */
+@SpringBootTest
+class DeviceTrackingConcurrencyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceTrackingConcurrencyTest.class);
+    private static final int THREADS = 8;
+    private static final int VISITS_PER_THREAD = 100;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private DeviceCache deviceCache;
+
+    @Autowired
+    private VisitCounterBuffer visitCounterBuffer;
+
+    @Autowired
+    private VisitJournal visitJournal;
+
+    @Autowired
+    private VisitHistory visitHistory;
+
+    @Autowired
+    private DeviceAnalytics deviceAnalytics;
+
+    @Autowired
+    private LoggingService loggingService;
+
+    @Test
+    void createOrUpdateDeviceInfo_ShouldCountEveryVisitToOneDevice() throws Exception {
+        DeviceTrackingService service = serviceWithStripes(1024);
+
+        run("striped, one device", thread -> "hotHash", hash -> service.createOrUpdateDeviceInfo(fingerprint(hash), hash));
+
+        int expected = THREADS * VISITS_PER_THREAD;
+        assertEquals(expected, deviceRepository.findById("hotHash").orElseThrow().getVisitCount());
+        assertEquals(expected, deviceCache.get("hotHash").orElseThrow().getVisitCount());
+    }
+
+    @Test
+    void getDeviceStats_ShouldCountEveryVisitToOneDevice() throws Exception {
+        DeviceTrackingService service = serviceWithStripes(1024);
+        service.createOrUpdateDeviceInfo(fingerprint("statsHash"), "statsHash");
+
+        run("striped, stats", thread -> "statsHash", service::getDeviceStats);
+
+        int expected = THREADS * VISITS_PER_THREAD + 1;
+        assertEquals(expected, deviceRepository.findById("statsHash").orElseThrow().getVisitCount());
+        assertEquals(expected, deviceCache.get("statsHash").orElseThrow().getVisitCount());
+    }
+
+    @Test
+    void throughput_ShouldCompareLockingAgainstPlainUpsert() throws Exception {
+        DeviceTrackingService striped = serviceWithStripes(1024);
+        DeviceTrackingService global = serviceWithStripes(1);
+
+        run("plain upsert, device per thread", thread -> "plain" + thread,
+                hash -> deviceRepository.upsertVisit(device(hash), LocalDateTime.now()));
+        run("striped, device per thread", thread -> "striped" + thread,
+                hash -> striped.createOrUpdateDeviceInfo(fingerprint(hash), hash));
+        run("global lock, device per thread", thread -> "global" + thread,
+                hash -> global.createOrUpdateDeviceInfo(fingerprint(hash), hash));
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            assertEquals(VISITS_PER_THREAD, deviceRepository.findById("plain" + thread).orElseThrow().getVisitCount());
+            assertEquals(VISITS_PER_THREAD, deviceRepository.findById("striped" + thread).orElseThrow().getVisitCount());
+            assertEquals(VISITS_PER_THREAD, deviceRepository.findById("global" + thread).orElseThrow().getVisitCount());
+        }
+    }
+
+    private DeviceTrackingService serviceWithStripes(int stripes) {
+        return new DeviceTrackingService(deviceRepository, loggingService, visitCounterBuffer, visitJournal,
+                visitHistory, deviceAnalytics, deviceCache, new DeviceLockStripes(stripes, new SimpleMeterRegistry()));
+    }
+
+    private void run(String label, IntFunction<String> deviceForThread, Consumer<String> visit) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long startTime = System.nanoTime();
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                String hash = deviceForThread.apply(i);
+                tasks.add(() -> {
+                    for (int v = 0; v < VISITS_PER_THREAD; v++) {
+                        visit.accept(hash);
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        log.info("{}: {} visits in {} ms ({} visits/s)", label, THREADS * VISITS_PER_THREAD,
+                String.format("%.1f", seconds * 1000), String.format("%.0f", THREADS * VISITS_PER_THREAD / seconds));
+    }
+
+    private static Device device(String hash) {
+        return new Device(hash, "testAgent", "1920x1080", "UTC", "en", "testPlatform");
+    }
+}
@@ -1,15 +1,21 @@
 package com.outseer.webfingerprint.service;
 
+import com.outseer.webfingerprint.analytics.DeviceAnalytics;
+import com.outseer.webfingerprint.cache.DeviceCache;
 import com.outseer.webfingerprint.dto.DeviceFingerprintRequest;
 import com.outseer.webfingerprint.dto.DeviceTrackingResponse;
 import com.outseer.webfingerprint.exception.DeviceNotFoundException;
+import com.outseer.webfingerprint.history.VisitHistory;
+import com.outseer.webfingerprint.journal.VisitJournal;
 import com.outseer.webfingerprint.model.Device;
 import com.outseer.webfingerprint.repository.DeviceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
@@ -20,7 +26,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyInt;
-import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +38,24 @@ class DeviceTrackingServiceTest {
     @Mock
     private LoggingService loggingService;
 
+    @Mock
+    private VisitCounterBuffer visitCounterBuffer;
+
+    @Mock
+    private VisitJournal visitJournal;
+
+    @Mock
+    private VisitHistory visitHistory;
+
+    @Mock
+    private DeviceAnalytics deviceAnalytics;
+
+    @Mock
+    private DeviceCache deviceCache;
+
+    @Spy
+    private DeviceLockStripes deviceLocks = new DeviceLockStripes(16, new SimpleMeterRegistry());
+
     @InjectMocks
     private DeviceTrackingService deviceTrackingService;
 
@@ -62,63 +86,90 @@ class DeviceTrackingServiceTest {
 
     @Test
     void createOrUpdateDeviceInfo_ShouldCreateNewDevice() {
-        when(deviceRepository.save(any(Device.class))).thenReturn(device);
+        when(deviceRepository.upsertVisit(any(Device.class), any(LocalDateTime.class))).thenReturn(device);
         // Mock logging service calls
-        doNothing().when(loggingService).debug(anyString(), any(Object[].class));
+        doNothing().when(loggingService).debug(anyString(), anyString());
         doNothing().when(loggingService).newDeviceRegistered(anyString(), anyString());
         doNothing().when(loggingService).databaseOperation(anyString(), anyString(), anyLong());
-        doNothing().when(loggingService).performanceMetric(anyString(), anyLong(), anyString());
+        doNothing().when(loggingService).devicePerformanceMetric(anyString(), anyLong(), anyString(), anyInt());
 
-        DeviceTrackingResponse response = deviceTrackingService.createOrUpdateDeviceInfo(request);
+        DeviceTrackingResponse response = deviceTrackingService.createOrUpdateDeviceInfo(request, request.getHash());
 
         assertNotNull(response);
         assertEquals(device.getDeviceId(), response.getDeviceId());
         assertEquals("success", response.getStatus());
-        verify(deviceRepository).save(any(Device.class));
-        verify(loggingService).debug(anyString(), any(Object[].class));
+        verify(deviceRepository).upsertVisit(any(Device.class), any(LocalDateTime.class));
+        verify(deviceRepository, never()).findById(anyString());
+        verify(deviceCache).put(device);
+        verify(loggingService).debug(anyString(), anyString());
         verify(loggingService).newDeviceRegistered(anyString(), anyString());
         verify(loggingService).databaseOperation(anyString(), anyString(), anyLong());
-        verify(loggingService).performanceMetric(anyString(), anyLong(), anyString());
+        verify(loggingService).devicePerformanceMetric(anyString(), anyLong(), anyString(), anyInt());
     }
 
     @Test
     void getDeviceStats_ShouldReturnDeviceStats_WhenDeviceExists() {
-        when(deviceRepository.findById(anyString())).thenReturn(Optional.of(device));
-        when(deviceRepository.save(any(Device.class))).thenReturn(device);
+        when(deviceCache.get(anyString())).thenReturn(Optional.of(device));
+        when(deviceRepository.incrementVisit(eq("testHash"), any(LocalDateTime.class))).thenReturn(Optional.of(device));
         // Mock logging service calls
-        doNothing().when(loggingService).debug(anyString(), any(Object[].class));
+        doNothing().when(loggingService).debug(anyString(), anyString());
         doNothing().when(loggingService).deviceTracked(anyString(), anyString(), anyInt());
         doNothing().when(loggingService).databaseOperation(anyString(), anyString(), anyLong());
-        doNothing().when(loggingService).performanceMetric(anyString(), anyLong(), anyString());
-        doNothing().when(loggingService).cacheOperation(anyString(), anyString(), anyBoolean());
+        doNothing().when(loggingService).devicePerformanceMetric(anyString(), anyLong(), anyString(), anyInt());
 
         DeviceTrackingResponse response = deviceTrackingService.getDeviceStats("testHash");
 
         assertNotNull(response);
         assertEquals(device.getDeviceId(), response.getDeviceId());
         assertEquals("success", response.getStatus());
-        verify(deviceRepository).findById("testHash");
-        verify(deviceRepository).save(any(Device.class));
+        verify(deviceCache).get("testHash");
+        verify(deviceRepository).incrementVisit(eq("testHash"), any(LocalDateTime.class));
+        verify(deviceCache).put(device);
     }
 
     @Test
     void getDeviceStats_ShouldThrowException_WhenDeviceNotFound() {
-        when(deviceRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(deviceCache.get(anyString())).thenReturn(Optional.empty());
         // Mock logging service calls
-        doNothing().when(loggingService).debug(anyString(), any(Object[].class));
+        doNothing().when(loggingService).debug(anyString(), anyString());
         doNothing().when(loggingService).warn(anyString(), any(Object[].class));
-        doNothing().when(loggingService).cacheOperation(anyString(), anyString(), anyBoolean());
-        doNothing().when(loggingService).databaseOperation(anyString(), anyString(), anyLong());
 
         assertThrows(DeviceNotFoundException.class, () -> 
             deviceTrackingService.getDeviceStats("nonexistentHash")
         );
 
-        verify(deviceRepository).findById("nonexistentHash");
-        verify(deviceRepository, never()).save(any(Device.class));
-        verify(loggingService).debug(anyString(), any(Object[].class));
+        verify(deviceCache).get("nonexistentHash");
+        verify(deviceRepository, never()).incrementVisit(anyString(), any(LocalDateTime.class));
+        verify(loggingService).debug(anyString(), anyString());
         verify(loggingService).warn(anyString(), any(Object[].class));
-        verify(loggingService).cacheOperation(anyString(), anyString(), anyBoolean());
-        verify(loggingService).databaseOperation(anyString(), anyString(), anyLong());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getDeviceStats_ShouldBufferVisit_WhenWriteBehindEnabled() {
+        device.setVisitCount(3);
+        when(deviceCache.get(anyString())).thenReturn(Optional.of(device));
+        when(visitCounterBuffer.isEnabled()).thenReturn(true);
+        when(visitCounterBuffer.recordVisit(eq("testHash"), eq(3), any(LocalDateTime.class))).thenReturn(5);
+
+        DeviceTrackingResponse response = deviceTrackingService.getDeviceStats("testHash");
+
+        assertEquals(5, response.getVisitCount());
+        assertEquals(3, device.getVisitCount());
+        verify(deviceRepository, never()).incrementVisit(anyString(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void getDeviceStats_ShouldJournalVisit_WhenJournalEnabled() {
+        device.setVisitCount(3);
+        when(deviceCache.get(anyString())).thenReturn(Optional.of(device));
+        when(visitJournal.isEnabled()).thenReturn(true);
+        when(visitJournal.recordVisit(eq("testHash"), eq(3), any(LocalDateTime.class), eq("10.0.0.1"))).thenReturn(4);
+
+        DeviceTrackingResponse response = deviceTrackingService.getDeviceStats("testHash", "10.0.0.1");
+
+        assertEquals(4, response.getVisitCount());
+        assertEquals(3, device.getVisitCount());
+        verify(deviceRepository, never()).incrementVisit(anyString(), any(LocalDateTime.class));
+        verify(visitCounterBuffer, never()).recordVisit(anyString(), anyInt(), any(LocalDateTime.class));
+    }
+}
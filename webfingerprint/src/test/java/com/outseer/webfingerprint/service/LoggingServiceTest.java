@@ -1,9 +1,13 @@
 package com.outseer.webfingerprint.service;
 
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 
@@ -85,5 +89,46 @@ class LoggingServiceTest {
         assertNotNull(correlationId);
         assertFalse(correlationId.isEmpty());
         assertTrue(correlationId.length() > 0);
+        assertTrue(correlationId.matches("[0-9a-f]{12}-[0-9a-f]{12}"));
+        assertNotEquals(correlationId, loggingService.generateCorrelationId());
+    }
+
+    @Test
+    void testDeviceTrackedLogsStructuredFields() {
+        Logger businessLogger = (Logger) LoggerFactory.getLogger("com.outseer.webfingerprint.business");
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        businessLogger.addAppender(appender);
+        try {
+            loggingService.deviceTracked("test-hash", "test-user-agent", 5);
+        } finally {
+            businessLogger.detachAppender(appender);
+        }
+
+        assertEquals(1, appender.list.size());
+        ILoggingEvent event = appender.list.get(0);
+        assertEquals("BUSINESS_EVENT: DEVICE_TRACKED - deviceHash=test-hash visitCount=5 userAgent=test-user-agent",
+            event.getFormattedMessage());
+        assertEquals(4, event.getArgumentArray().length);
+    }
+
+    @Test
+    void testDeviceBatchTrackedLogsStructuredFields() {
+        Logger businessLogger = (Logger) LoggerFactory.getLogger("com.outseer.webfingerprint.business");
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        businessLogger.addAppender(appender);
+        try {
+            loggingService.deviceBatchTracked(3, 2, 1);
+            loggingService.deviceStreamIngested(10, 8, 2);
+        } finally {
+            businessLogger.detachAppender(appender);
+        }
+
+        assertEquals(2, appender.list.size());
+        assertEquals("BUSINESS_EVENT: DEVICE_BATCH_TRACKED - fingerprints=3 devices=2 newDevices=1",
+            appender.list.get(0).getFormattedMessage());
+        assertEquals("BUSINESS_EVENT: DEVICE_STREAM_INGESTED - lines=10 tracked=8 rejected=2",
+            appender.list.get(1).getFormattedMessage());
     }
 }
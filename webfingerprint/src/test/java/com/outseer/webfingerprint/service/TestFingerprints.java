@@ -0,0 +1,26 @@
+package com.outseer.webfingerprint.service;
+
+import com.outseer.webfingerprint.dto.DeviceFingerprintRequest;
+
+/**
+ * Fingerprint requests shared by the tracking service tests.
+ */
+final class TestFingerprints {
+
+    private TestFingerprints() {
+    }
+
+    /**
+     * Minimal fingerprint of a device with the given client hash.
+     */
+    static DeviceFingerprintRequest fingerprint(String hash) {
+        DeviceFingerprintRequest request = new DeviceFingerprintRequest();
+        request.setHash(hash);
+        request.setUserAgent("testAgent");
+        request.setPlatform("testPlatform");
+        request.setScreenResolution("1920x1080");
+        request.setTimezone("UTC");
+        request.setLanguage("en");
+        return request;
+    }
+}
@@ -0,0 +1,105 @@
+package com.outseer.webfingerprint.service;
+
+import com.outseer.webfingerprint.repository.DeviceRepository;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static com.outseer.webfingerprint.service.TestFingerprints.fingerprint;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that device tracking on virtual threads never blocks while pinned to its carrier thread,
+ * e.g. inside a synchronized block of the connection pool or JDBC driver.
+ * Many more virtual threads than connections are run so they queue for the pool, and every
+ * jdk.VirtualThreadPinned event is recorded with JFR regardless of its duration.
+ */
+@SpringBootTest(properties = {
+        "spring.threads.virtual.enabled=true",
+        "spring.datasource.url=jdbc:h2:mem:pinning",
+        "spring.datasource.hikari.maximum-pool-size=2"
+})
+class VirtualThreadPinningTest {
+
+    private static final int THREADS = 64;
+    private static final int VISITS_PER_THREAD = 20;
+
+    @TempDir
+    Path recordingDirectory;
+
+    @Autowired
+    private DeviceTrackingService deviceTrackingService;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Test
+    void trackingOnVirtualThreads_ShouldNotPinCarrierThreads() throws Exception {
+        Path dump = recordingDirectory.resolve("pinning.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+            runVisits();
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> pinned = RecordingFile.readAllEvents(dump).stream()
+                .filter(event -> event.getEventType().getName().equals("jdk.VirtualThreadPinned"))
+                .toList();
+        assertTrue(pinned.isEmpty(), () -> pinned.size() + " pinned virtual threads, first at:\n" + frames(pinned.get(0)));
+        assertEquals(VISITS_PER_THREAD * THREADS / 2 + 1,
+                deviceRepository.findById("pinning-shared").orElseThrow().getVisitCount());
+    }
+
+    /**
+     * Half of the threads add visits to a device of their own, half read the stats of a shared one.
+     */
+    private void runVisits() throws Exception {
+        deviceTrackingService.createOrUpdateDeviceInfo(fingerprint("pinning-shared"), "pinning-shared");
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                String hash = i % 2 == 0 ? "pinning-" + i : "pinning-shared";
+                futures.add(executor.submit(() -> {
+                    for (int v = 0; v < VISITS_PER_THREAD; v++) {
+                        if (hash.equals("pinning-shared")) {
+                            deviceTrackingService.getDeviceStats(hash);
+                        } else {
+                            deviceTrackingService.createOrUpdateDeviceInfo(fingerprint(hash), hash);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+    }
+
+    private static String frames(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "(no stack trace)";
+        }
+        return event.getStackTrace().getFrames().stream()
+                .limit(15)
+                .map(RecordedFrame::getMethod)
+                .map(method -> "  " + method.getType().getName() + "." + method.getName())
+                .collect(Collectors.joining("\n"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.outseer.webfingerprint.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VisitCounterBufferTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private LoggingService loggingService;
+
+    private VisitCounterBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new VisitCounterBuffer(jdbcTemplate, transactionManager, loggingService, true, 1000, 5000, false);
+    }
+
+    @Test
+    void recordVisit_ShouldAddUpVisitsOnTopOfPersistedCount() {
+        LocalDateTime now = LocalDateTime.now();
+
+        assertEquals(4, buffer.recordVisit("testHash", 3, now));
+        assertEquals(5, buffer.recordVisit("testHash", 3, now));
+        assertEquals(2, buffer.recordVisit("otherHash", 1, now));
+        assertEquals(2, buffer.pendingDevices());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldWriteDeltasInOneBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        buffer.recordVisit("testHash", 3, now);
+        buffer.recordVisit("testHash", 3, now);
+        buffer.recordVisit("otherHash", 1, now);
+
+        assertEquals(2, buffer.flush(true));
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(VisitCounterBuffer.FLUSH_SQL), batch.capture());
+        int totalDelta = batch.getValue().stream().mapToInt(args -> (Integer) args[0]).sum();
+        assertEquals(3, totalDelta);
+
+        // Nothing left to write, but the counts keep building on the flushed state
+        assertEquals(0, buffer.flush(true));
+        assertEquals(6, buffer.recordVisit("testHash", 3, now));
+    }
+
+    @Test
+    void flush_ShouldHoldDeltasYoungerThanMaxLag() {
+        buffer.recordVisit("testHash", 3, LocalDateTime.now());
+
+        assertEquals(0, buffer.flush(false));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+}